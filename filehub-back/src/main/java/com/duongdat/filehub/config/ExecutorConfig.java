@@ -0,0 +1,130 @@
+package com.duongdat.filehub.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Bounded worker pools for background work, sized from configuration
+ */
+@Configuration
+public class ExecutorConfig {
+    
+    @Bean(name = "analysisExecutor")
+    public ThreadPoolTaskExecutor analysisExecutor(@Value("${ai.analysis.workers:2}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        // Jobs wait in the database, not in memory; the dispatcher only hands over what the pool can run
+        executor.setQueueCapacity(workers);
+        executor.setThreadNamePrefix("ai-analysis-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+    
+    @Bean(name = "storageExecutor")
+    public ThreadPoolTaskExecutor storageExecutor(@Value("${file.storage.workers:8}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(workers * 16);
+        executor.setThreadNamePrefix("storage-write-");
+        // Let background writes and retries finish so stored content is recorded
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
+    
+    @Bean(name = "batchExecutor")
+    public ThreadPoolTaskExecutor batchExecutor(@Value("${file.upload.batch.workers:4}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        // Unbounded queue: a batch submits all of its items up front and waits for them
+        executor.setThreadNamePrefix("batch-upload-");
+        executor.initialize();
+        return executor;
+    }
+    
+    @Bean(name = "downloadExecutor")
+    public ThreadPoolTaskExecutor downloadExecutor(@Value("${file.download.workers:64}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        // Each streamed response holds a thread for as long as the client reads; excess downloads wait here
+        executor.setQueueCapacity(workers * 4);
+        executor.setThreadNamePrefix("download-");
+        executor.initialize();
+        return executor;
+    }
+    
+    @Bean(name = "archiveExecutor")
+    public ThreadPoolTaskExecutor archiveExecutor(@Value("${file.download.archive.workers:8}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        // Unbounded queue: each archive only submits as many prefetches as its lookahead allows
+        executor.setThreadNamePrefix("archive-prefetch-");
+        executor.initialize();
+        return executor;
+    }
+    
+    @Bean(name = "renditionExecutor")
+    public ThreadPoolTaskExecutor renditionExecutor(@Value("${file.rendition.workers:2}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        // Renditions are regenerated on demand, so a full queue rejects instead of holding up uploads
+        executor.setQueueCapacity(256);
+        executor.setThreadNamePrefix("rendition-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+    
+    @Bean(name = "searchIndexExecutor")
+    public ThreadPoolTaskExecutor searchIndexExecutor(@Value("${file.search.workers:2}") int workers) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        // Unbounded queue: a dropped update would leave the index stale until the next restart
+        executor.setThreadNamePrefix("search-index-");
+        executor.initialize();
+        return executor;
+    }
+    
+    @Bean(name = "maintenanceExecutor")
+    public ThreadPoolTaskExecutor maintenanceExecutor() {
+        // Single thread for long-running admin jobs such as storage migrations
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setThreadNamePrefix("maintenance-");
+        executor.initialize();
+        return executor;
+    }
+    
+    @Bean(name = "taskScheduler")
+    public ThreadPoolTaskScheduler taskScheduler(@Value("${spring.task.scheduling.pool.size:4}") int poolSize) {
+        // Default scheduler of @Scheduled methods; several threads so one slow sync or sweep does not hold up the others
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduling-");
+        scheduler.initialize();
+        return scheduler;
+    }
+    
+    @Bean(name = "heartbeatScheduler")
+    public ThreadPoolTaskScheduler heartbeatScheduler() {
+        // Own thread for analysis heartbeats: a late heartbeat gets running jobs requeued and analyzed twice
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("analysis-heartbeat-");
+        scheduler.initialize();
+        return scheduler;
+    }
+}
@@ -7,6 +7,8 @@ import com.duongdat.filehub.dto.request.UserAssignmentRequest;
 import com.duongdat.filehub.dto.request.BatchUserAssignmentRequest;
 import com.duongdat.filehub.dto.response.ApiResponse;
 import com.duongdat.filehub.dto.response.DashboardStatsResponse;
+import com.duongdat.filehub.dto.response.HotContentCacheResponse;
+import com.duongdat.filehub.dto.response.LocalStorageMigrationResponse;
 import com.duongdat.filehub.dto.response.PageResponse;
 import com.duongdat.filehub.dto.response.UserResponse;
 import com.duongdat.filehub.dto.response.RecentActivityResponse;
@@ -20,6 +22,8 @@ import com.duongdat.filehub.service.AdminService;
 import com.duongdat.filehub.service.DepartmentService;
 import com.duongdat.filehub.service.ProjectService;
 import com.duongdat.filehub.service.FileService;
+import com.duongdat.filehub.service.HotContentCache;
+import com.duongdat.filehub.service.LocalStorageMigrationService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -38,6 +42,8 @@ public class AdminController {
     private final DepartmentService departmentService;
     private final ProjectService projectService;
     private final FileService fileService;
+    private final LocalStorageMigrationService localStorageMigrationService;
+    private final HotContentCache hotContentCache;
 
     @GetMapping("/users")
     public ResponseEntity<ApiResponse<PageResponse<UserResponse>>> getAllUsers(
@@ -413,16 +419,40 @@ public class AdminController {
             @RequestParam(required = false) Long uploaderId,
             @RequestParam(required = false) Long fileTypeId,
             @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(defaultValue = "any") String tagMatch,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "uploadedAt") String sortBy,
             @RequestParam(defaultValue = "DESC") String sortDirection) {
         try {
             PageResponse<com.duongdat.filehub.dto.response.FileResponse> files = fileService.getAllFilesWithFilters(
-                    filename, departmentCategoryId, departmentId, projectId, uploaderId, fileTypeId, contentType, page, size, sortBy, sortDirection);
+                    filename, departmentCategoryId, departmentId, projectId, uploaderId, fileTypeId, contentType, tags, tagMatch, page, size, sortBy, sortDirection);
             return ResponseEntity.ok(ApiResponse.success("All shared files retrieved successfully", files));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
+
+    @PostMapping("/storage/local-migration")
+    public ResponseEntity<ApiResponse<LocalStorageMigrationResponse>> startLocalStorageMigration() {
+        try {
+            LocalStorageMigrationResponse status = localStorageMigrationService.start();
+            return ResponseEntity.ok(ApiResponse.success("Local storage migration started", status));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/storage/local-migration")
+    public ResponseEntity<ApiResponse<LocalStorageMigrationResponse>> getLocalStorageMigrationStatus() {
+        return ResponseEntity.ok(ApiResponse.success("Local storage migration status retrieved successfully",
+                localStorageMigrationService.getStatus()));
+    }
+
+    @GetMapping("/storage/hot-cache")
+    public ResponseEntity<ApiResponse<HotContentCacheResponse>> getHotContentCacheStats() {
+        return ResponseEntity.ok(ApiResponse.success("Hot content cache statistics retrieved successfully",
+                hotContentCache.getStats()));
+    }
 }
@@ -2,26 +2,59 @@ package com.duongdat.filehub.controller;
 
 import com.duongdat.filehub.dto.request.FileAnalysisRequest;
 import com.duongdat.filehub.dto.request.FileUploadRequest;
+import com.duongdat.filehub.dto.request.HashProbeRequest;
+import com.duongdat.filehub.dto.request.UploadByReferenceRequest;
+import com.duongdat.filehub.dto.response.AnalysisJobResponse;
 import com.duongdat.filehub.dto.response.ApiResponse;
+import com.duongdat.filehub.dto.response.BatchUploadResponse;
+import com.duongdat.filehub.dto.response.CursorPageResponse;
 import com.duongdat.filehub.dto.response.FileAnalysisResponse;
 import com.duongdat.filehub.dto.response.FileResponse;
 import com.duongdat.filehub.dto.response.FileUploadWithAnalysisResponse;
+import com.duongdat.filehub.dto.response.HashProbeResponse;
 import com.duongdat.filehub.dto.response.PageResponse;
+import com.duongdat.filehub.dto.response.SignedDownloadResponse;
+import com.duongdat.filehub.dto.response.TagCountResponse;
+import com.duongdat.filehub.entity.AnalysisJob;
+import com.duongdat.filehub.service.AnalysisJobService;
+import com.duongdat.filehub.service.ArchiveDownloadService;
+import com.duongdat.filehub.service.ArchiveIngestService;
+import com.duongdat.filehub.service.FileDownload;
 import com.duongdat.filehub.service.FileService;
 import com.duongdat.filehub.service.GeminiAnalysisService;
+import com.duongdat.filehub.service.StagedUpload;
+import com.duongdat.filehub.service.TagService;
+import com.duongdat.filehub.service.UploadStagingService;
 import com.duongdat.filehub.util.SecurityUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/files")
@@ -32,6 +65,19 @@ public class FileController {
     private final FileService fileService;
     private final SecurityUtil securityUtil;
     private final GeminiAnalysisService geminiAnalysisService;
+    private final UploadStagingService uploadStagingService;
+    private final AnalysisJobService analysisJobService;
+    private final ArchiveIngestService archiveIngestService;
+    private final ArchiveDownloadService archiveDownloadService;
+    private final TagService tagService;
+    
+    private static final byte[] CRLF = {'\r', '\n'};
+    
+    // Tomcat's sendfile request attributes (see org.apache.coyote.Constants)
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
     
     @PostMapping(value = "/upload", consumes = {"multipart/form-data"})
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
@@ -69,73 +115,48 @@ public class FileController {
             request.setVisibility(visibility != null ? visibility.toUpperCase() : "PRIVATE");
             
             log.debug("Processing file upload for user with request: {}", request);
-            FileResponse fileResponse = fileService.uploadFile(file, request);
-            log.info("File uploaded successfully - ID: {}, Filename: {}", fileResponse.getId(), fileResponse.getOriginalFilename());
             
-            // Perform AI analysis if enabled
+            // Stream the body once into staging; analysis runs later from the stored copy
             FileUploadWithAnalysisResponse uploadResponse;
-            if (enableAiAnalysis) {
-                try {
-                    String fileName = file.getOriginalFilename();
-                    if (fileName == null) {
-                        fileName = "unknown";
-                    }
-                    
-                    // Check if file can be analyzed
-                    if (geminiAnalysisService.canAnalyzeFile(fileName, file.getSize(), file.getContentType())) {
-                        // Determine analysis capability
-                        GeminiAnalysisService.AnalysisCapability capability = 
-                            geminiAnalysisService.getAnalysisCapability(fileName, file.getSize(), file.getContentType());
-                        
-                        // Get file data for Files API analysis
-                        byte[] fileData = null;
-                        
-                        try {
-                            // Always get file data for Gemini Files API analysis
-                            fileData = file.getBytes();
-                            log.info("File data prepared for analysis: {} bytes for file {}", fileData.length, fileName);
-                        } catch (Exception e) {
-                            log.warn("Failed to get file data for analysis: {} - {}", fileName, e.getMessage());
+            try (StagedUpload stagedUpload = uploadStagingService.stage(file)) {
+                FileResponse fileResponse = fileService.uploadFile(stagedUpload, request);
+                log.info("File uploaded successfully - ID: {}, Filename: {}", fileResponse.getId(), fileResponse.getOriginalFilename());
+                
+                // Queue AI analysis if enabled; the response returns as soon as the file is stored
+                if (enableAiAnalysis) {
+                    try {
+                        String fileName = file.getOriginalFilename();
+                        if (fileName == null) {
+                            fileName = "unknown";
                         }
                         
-                        // Create analysis request with file data for Files API
-                        FileAnalysisRequest analysisRequest = new FileAnalysisRequest();
-                        analysisRequest.setFileName(fileName);
-                        analysisRequest.setFileData(fileData);  // Files API will handle content extraction
-                        analysisRequest.setContentType(file.getContentType());
-                        analysisRequest.setDepartmentId(departmentId);
-                        analysisRequest.setProjectId(projectId);
-                        analysisRequest.setDescription(description);
-                        analysisRequest.setFileSize(file.getSize());
-                        analysisRequest.setTitle(title); // Use the title from upload request
-                        analysisRequest.setFileData(fileData); // Add file data for binary analysis
-                        
-                        log.info("Analysis request for file {}: hasFileData={}, fileDataLength={}, fileSize={}", 
-                            fileName, fileData != null, 
-                            fileData != null ? fileData.length : 0, file.getSize());
-                        
-                        // Analyze with Gemini AI
-                        FileAnalysisResponse analysisResponse = geminiAnalysisService.analyzeFile(analysisRequest);
-                        uploadResponse = FileUploadWithAnalysisResponse.withAnalysis(fileResponse, analysisResponse);
-                        
-                        if (capability == GeminiAnalysisService.AnalysisCapability.METADATA_ONLY) {
-                            log.info("AI analysis completed for large file using metadata only: {} ({})", 
-                                fileName, formatBytes(file.getSize()));
+                        // Check if file can be analyzed
+                        if (geminiAnalysisService.canAnalyzeFile(fileName, stagedUpload.getSize(), file.getContentType())) {
+                            // Analysis context; content is read from storage by the worker
+                            FileAnalysisRequest analysisRequest = new FileAnalysisRequest();
+                            analysisRequest.setDepartmentId(departmentId);
+                            analysisRequest.setProjectId(projectId);
+                            analysisRequest.setDescription(description);
+                            analysisRequest.setTitle(title); // Use the title from upload request
+                            
+                            Long userId = securityUtil.getCurrentUserId()
+                                    .orElseThrow(() -> new RuntimeException("User not authenticated"));
+                            AnalysisJob job = analysisJobService.enqueue(fileResponse.getId(), userId, analysisRequest);
+                            uploadResponse = FileUploadWithAnalysisResponse.withAnalysisQueued(fileResponse, job.getId());
+                            log.info("AI analysis queued for file {} as job {}", fileName, job.getId());
                         } else {
-                            log.info("AI analysis completed for file with content: {}", fileName);
+                            uploadResponse = FileUploadWithAnalysisResponse.withoutAnalysis(fileResponse, 
+                                    "File type not supported for AI analysis");
+                            log.debug("AI analysis skipped for file: {} - unsupported type", fileName);
                         }
-                    } else {
-                        uploadResponse = FileUploadWithAnalysisResponse.withoutAnalysis(fileResponse, 
-                                "File type not supported for AI analysis");
-                        log.debug("AI analysis skipped for file: {} - unsupported type", fileName);
+                    } catch (Exception aiException) {
+                        log.warn("Failed to queue AI analysis for file: {} - {}", file.getOriginalFilename(), aiException.getMessage());
+                        uploadResponse = FileUploadWithAnalysisResponse.withAnalysisError(fileResponse, aiException.getMessage());
                     }
-                } catch (Exception aiException) {
-                    log.warn("AI analysis failed for file: {} - {}", file.getOriginalFilename(), aiException.getMessage());
-                    uploadResponse = FileUploadWithAnalysisResponse.withAnalysisError(fileResponse, aiException.getMessage());
+                } else {
+                    uploadResponse = FileUploadWithAnalysisResponse.withoutAnalysis(fileResponse, "AI analysis disabled by user");
+                    log.debug("AI analysis disabled for file: {}", file.getOriginalFilename());
                 }
-            } else {
-                uploadResponse = FileUploadWithAnalysisResponse.withoutAnalysis(fileResponse, "AI analysis disabled by user");
-                log.debug("AI analysis disabled for file: {}", file.getOriginalFilename());
             }
             
             return ResponseEntity.ok(ApiResponse.success("File uploaded successfully", uploadResponse));
@@ -151,6 +172,128 @@ public class FileController {
         }
     }
     
+    @PostMapping(value = "/upload/batch", consumes = {"multipart/form-data"})
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BatchUploadResponse>> uploadFiles(
+            @RequestParam("files") List<MultipartFile> files,
+            @RequestParam(value = "description", required = false) String description,
+            @RequestParam(value = "departmentCategoryId", required = false) Long departmentCategoryId,
+            @RequestParam(value = "departmentId", required = false) Long departmentId,
+            @RequestParam(value = "projectId", required = false) Long projectId,
+            @RequestParam(value = "fileTypeId", required = false) Long fileTypeId,
+            @RequestParam(value = "tags", required = false) String tags,
+            @RequestParam(value = "visibility", defaultValue = "PRIVATE") String visibility) {
+        try {
+            if (files == null || files.isEmpty()) {
+                return ResponseEntity.badRequest().body(ApiResponse.error("At least one file is required"));
+            }
+            
+            // Shared metadata for every file; each title defaults to its filename
+            FileUploadRequest request = new FileUploadRequest();
+            request.setDescription(description != null ? description.trim() : null);
+            request.setDepartmentCategoryId(departmentCategoryId);
+            request.setDepartmentId(departmentId);
+            request.setProjectId(projectId);
+            request.setFileTypeId(fileTypeId);
+            request.setTags(tags != null && !tags.trim().isEmpty() ? tags.trim() : null);
+            request.setVisibility(visibility != null ? visibility.toUpperCase() : "PRIVATE");
+            
+            BatchUploadResponse response = fileService.uploadFiles(files, request);
+            String message = response.getFailureCount() == 0
+                    ? "Files uploaded successfully"
+                    : response.getSuccessCount() + " of " + response.getTotalFiles() + " files uploaded";
+            return ResponseEntity.ok(ApiResponse.success(message, response));
+        } catch (RuntimeException e) {
+            log.error("Batch upload failed: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        } catch (Exception e) {
+            log.error("Batch upload failed due to unexpected error: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body(ApiResponse.error("Unexpected error occurred: " + e.getMessage()));
+        }
+    }
+    
+    @PostMapping(value = "/upload/archive", consumes = {"multipart/form-data"})
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<BatchUploadResponse>> uploadArchive(
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(value = "description", required = false) String description,
+            @RequestParam(value = "departmentCategoryId", required = false) Long departmentCategoryId,
+            @RequestParam(value = "departmentId", required = false) Long departmentId,
+            @RequestParam(value = "projectId", required = false) Long projectId,
+            @RequestParam(value = "fileTypeId", required = false) Long fileTypeId,
+            @RequestParam(value = "tags", required = false) String tags,
+            @RequestParam(value = "visibility", defaultValue = "PRIVATE") String visibility) {
+        try {
+            if (file == null || file.isEmpty()) {
+                return ResponseEntity.badRequest().body(ApiResponse.error("File is required and cannot be empty"));
+            }
+            
+            // Shared metadata for every entry; each title defaults to the entry's filename
+            FileUploadRequest request = new FileUploadRequest();
+            request.setDescription(description != null ? description.trim() : null);
+            request.setDepartmentCategoryId(departmentCategoryId);
+            request.setDepartmentId(departmentId);
+            request.setProjectId(projectId);
+            request.setFileTypeId(fileTypeId);
+            request.setTags(tags != null && !tags.trim().isEmpty() ? tags.trim() : null);
+            request.setVisibility(visibility != null ? visibility.toUpperCase() : "PRIVATE");
+            
+            BatchUploadResponse response = archiveIngestService.ingest(file, request);
+            String message = response.getFailureCount() == 0
+                    ? "Archive expanded successfully"
+                    : response.getSuccessCount() + " of " + response.getTotalFiles() + " files uploaded";
+            return ResponseEntity.ok(ApiResponse.success(message, response));
+        } catch (IOException e) {
+            log.error("Archive upload failed due to IOException: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to read archive: " + e.getMessage()));
+        } catch (RuntimeException e) {
+            log.error("Archive upload failed: {}", e.getMessage(), e);
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/probe")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<HashProbeResponse>> probeContent(@Valid @RequestBody HashProbeRequest request) {
+        try {
+            boolean exists = fileService.contentExists(request.getFileHash(), request.getFileSize());
+            HashProbeResponse response = new HashProbeResponse(request.getFileHash(), request.getFileSize(), exists);
+            return ResponseEntity.ok(ApiResponse.success(exists ? "Content already exists" : "Content not found", response));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @PostMapping("/upload-by-reference")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<FileResponse>> uploadByReference(@Valid @RequestBody UploadByReferenceRequest request) {
+        try {
+            FileResponse fileResponse = fileService.uploadByReference(request);
+            log.info("File created by reference - ID: {}, Filename: {}", fileResponse.getId(), fileResponse.getOriginalFilename());
+            return ResponseEntity.ok(ApiResponse.success("File uploaded successfully", fileResponse));
+        } catch (Exception e) {
+            log.warn("Upload by reference failed: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/analysis-jobs/{jobId}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<AnalysisJobResponse>> getAnalysisJob(@PathVariable Long jobId) {
+        try {
+            AnalysisJobResponse job = analysisJobService.getJob(jobId);
+            return ResponseEntity.ok(ApiResponse.success("Analysis job retrieved successfully", job));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping(value = "/analysis-jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public SseEmitter subscribeAnalysisJob(@PathVariable Long jobId) {
+        return analysisJobService.subscribe(jobId);
+    }
+    
     @PostMapping("/{fileId}/analyze")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
     public ResponseEntity<ApiResponse<FileAnalysisResponse>> analyzeExistingFile(
@@ -227,6 +370,8 @@ public class FileController {
             @RequestParam(required = false) Long projectId,
             @RequestParam(required = false) Long fileTypeId,
             @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(defaultValue = "any") String tagMatch,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "uploadedAt") String sortBy,
@@ -236,7 +381,7 @@ public class FileController {
                     .orElseThrow(() -> new RuntimeException("User not authenticated"));
             
             PageResponse<FileResponse> files = fileService.getUserFiles(
-                    userId, filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType, page, size, sortBy, sortDirection);
+                    userId, filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType, tags, tagMatch, page, size, sortBy, sortDirection);
             return ResponseEntity.ok(ApiResponse.success("Files retrieved successfully", files));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -253,13 +398,15 @@ public class FileController {
             @RequestParam(required = false) Long userId,
             @RequestParam(required = false) Long fileTypeId,
             @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(defaultValue = "any") String tagMatch,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "uploadedAt") String sortBy,
             @RequestParam(defaultValue = "DESC") String sortDirection) {
         try {
             PageResponse<FileResponse> files = fileService.getAllFilesWithFilters(
-                    filename, departmentCategoryId, departmentId, projectId, userId, fileTypeId, contentType, page, size, sortBy, sortDirection);
+                    filename, departmentCategoryId, departmentId, projectId, userId, fileTypeId, contentType, tags, tagMatch, page, size, sortBy, sortDirection);
             return ResponseEntity.ok(ApiResponse.success("Files retrieved successfully", files));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -297,6 +444,8 @@ public class FileController {
             @RequestParam(required = false) Long projectId,
             @RequestParam(required = false) Long fileTypeId,
             @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(defaultValue = "any") String tagMatch,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "uploadedAt") String sortBy,
@@ -306,7 +455,7 @@ public class FileController {
                     .orElseThrow(() -> new RuntimeException("User not authenticated"));
             
             PageResponse<FileResponse> files = fileService.getSharedFiles(
-                    userId, filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType, page, size, sortBy, sortDirection);
+                    userId, filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType, tags, tagMatch, page, size, sortBy, sortDirection);
             return ResponseEntity.ok(ApiResponse.success("Shared files retrieved successfully", files));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -321,6 +470,8 @@ public class FileController {
             @RequestParam(required = false) Long departmentCategoryId,
             @RequestParam(required = false) Long fileTypeId,
             @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(defaultValue = "any") String tagMatch,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "uploadedAt") String sortBy,
@@ -330,7 +481,7 @@ public class FileController {
                     .orElseThrow(() -> new RuntimeException("User not authenticated"));
             
             PageResponse<FileResponse> files = fileService.getSharedFilesByDepartment(
-                    userId, departmentId, filename, departmentCategoryId, fileTypeId, contentType, page, size, sortBy, sortDirection);
+                    userId, departmentId, filename, departmentCategoryId, fileTypeId, contentType, tags, tagMatch, page, size, sortBy, sortDirection);
             return ResponseEntity.ok(ApiResponse.success("Department shared files retrieved successfully", files));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
@@ -344,6 +495,8 @@ public class FileController {
             @RequestParam(required = false) String filename,
             @RequestParam(required = false) Long fileTypeId,
             @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(defaultValue = "any") String tagMatch,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "uploadedAt") String sortBy,
@@ -353,12 +506,154 @@ public class FileController {
                     .orElseThrow(() -> new RuntimeException("User not authenticated"));
             
             PageResponse<FileResponse> files = fileService.getSharedFilesByProject(
-                    userId, projectId, filename, fileTypeId, contentType, page, size, sortBy, sortDirection);
+                    userId, projectId, filename, fileTypeId, contentType, tags, tagMatch, page, size, sortBy, sortDirection);
             return ResponseEntity.ok(ApiResponse.success("Project shared files retrieved successfully", files));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
         }
     }
+
+    // Cursor-paginated variants: pass the previous response's nextCursor to get the following page
+    
+    @GetMapping("/scroll")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPageResponse<FileResponse>>> scrollUserFiles(
+            @RequestParam(required = false) String filename,
+            @RequestParam(required = false) Long departmentCategoryId,
+            @RequestParam(required = false) Long departmentId,
+            @RequestParam(required = false) Long projectId,
+            @RequestParam(required = false) Long fileTypeId,
+            @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(defaultValue = "any") String tagMatch,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "uploadedAt") String sortBy,
+            @RequestParam(defaultValue = "DESC") String sortDirection) {
+        try {
+            Long userId = securityUtil.getCurrentUserId()
+                    .orElseThrow(() -> new RuntimeException("User not authenticated"));
+            
+            CursorPageResponse<FileResponse> files = fileService.scrollUserFiles(
+                    userId, filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType, tags, tagMatch, cursor, size, sortBy, sortDirection);
+            return ResponseEntity.ok(ApiResponse.success("Files retrieved successfully", files));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/shared/scroll")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPageResponse<FileResponse>>> scrollSharedFiles(
+            @RequestParam(required = false) String filename,
+            @RequestParam(required = false) Long departmentCategoryId,
+            @RequestParam(required = false) Long departmentId,
+            @RequestParam(required = false) Long projectId,
+            @RequestParam(required = false) Long fileTypeId,
+            @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(defaultValue = "any") String tagMatch,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "uploadedAt") String sortBy,
+            @RequestParam(defaultValue = "DESC") String sortDirection) {
+        try {
+            Long userId = securityUtil.getCurrentUserId()
+                    .orElseThrow(() -> new RuntimeException("User not authenticated"));
+            
+            CursorPageResponse<FileResponse> files = fileService.scrollSharedFiles(
+                    userId, filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType, tags, tagMatch, cursor, size, sortBy, sortDirection);
+            return ResponseEntity.ok(ApiResponse.success("Shared files retrieved successfully", files));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/shared/department/{departmentId}/scroll")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPageResponse<FileResponse>>> scrollSharedFilesByDepartment(
+            @PathVariable Long departmentId,
+            @RequestParam(required = false) String filename,
+            @RequestParam(required = false) Long departmentCategoryId,
+            @RequestParam(required = false) Long fileTypeId,
+            @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(defaultValue = "any") String tagMatch,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "uploadedAt") String sortBy,
+            @RequestParam(defaultValue = "DESC") String sortDirection) {
+        try {
+            Long userId = securityUtil.getCurrentUserId()
+                    .orElseThrow(() -> new RuntimeException("User not authenticated"));
+            
+            CursorPageResponse<FileResponse> files = fileService.scrollSharedFilesByDepartment(
+                    userId, departmentId, filename, departmentCategoryId, fileTypeId, contentType, tags, tagMatch, cursor, size, sortBy, sortDirection);
+            return ResponseEntity.ok(ApiResponse.success("Department shared files retrieved successfully", files));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/shared/project/{projectId}/scroll")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<CursorPageResponse<FileResponse>>> scrollSharedFilesByProject(
+            @PathVariable Long projectId,
+            @RequestParam(required = false) String filename,
+            @RequestParam(required = false) Long fileTypeId,
+            @RequestParam(required = false) String contentType,
+            @RequestParam(required = false) List<String> tags,
+            @RequestParam(defaultValue = "any") String tagMatch,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "uploadedAt") String sortBy,
+            @RequestParam(defaultValue = "DESC") String sortDirection) {
+        try {
+            Long userId = securityUtil.getCurrentUserId()
+                    .orElseThrow(() -> new RuntimeException("User not authenticated"));
+            
+            CursorPageResponse<FileResponse> files = fileService.scrollSharedFilesByProject(
+                    userId, projectId, filename, fileTypeId, contentType, tags, tagMatch, cursor, size, sortBy, sortDirection);
+            return ResponseEntity.ok(ApiResponse.success("Project shared files retrieved successfully", files));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/search")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<PageResponse<FileResponse>>> searchFiles(
+            @RequestParam("q") String query,
+            @RequestParam(required = false) Long departmentId,
+            @RequestParam(required = false) Long projectId,
+            @RequestParam(required = false) Long fileTypeId,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            Long userId = securityUtil.getCurrentUserId()
+                    .orElseThrow(() -> new RuntimeException("User not authenticated"));
+            
+            PageResponse<FileResponse> files = fileService.searchFiles(userId, query, departmentId, projectId, fileTypeId, page, size);
+            return ResponseEntity.ok(ApiResponse.success("Search completed successfully", files));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    @GetMapping("/tags")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<List<TagCountResponse>>> getTagCloud(
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            Long userId = securityUtil.getCurrentUserId()
+                    .orElseThrow(() -> new RuntimeException("User not authenticated"));
+            
+            List<TagCountResponse> tags = tagService.getTagCloud(userId, limit);
+            return ResponseEntity.ok(ApiResponse.success("Tags retrieved successfully", tags));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
     
     @GetMapping("/{id}")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
@@ -387,21 +682,49 @@ public class FileController {
         }
     }
     
-    @GetMapping("/{id}/download")
+    /**
+     * Download several files as one ZIP, streamed while it is built: the listed files, or every accessible
+     * file of a project or department. Authorization is checked for every file before anything is sent.
+     */
+    @GetMapping("/archive")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<Resource> downloadFile(@PathVariable Long id) {
+    public ResponseEntity<StreamingResponseBody> downloadArchive(
+            @RequestParam(value = "ids", required = false) List<Long> ids,
+            @RequestParam(value = "departmentId", required = false) Long departmentId,
+            @RequestParam(value = "projectId", required = false) Long projectId) {
         try {
-            FileResponse file = fileService.getFileById(id)
-                    .orElseThrow(() -> new RuntimeException("File not found"));
+            List<FileDownload> downloads = fileService.prepareArchive(ids, departmentId, projectId);
             
-            byte[] fileContent = fileService.downloadFile(id);
-            ByteArrayResource resource = new ByteArrayResource(fileContent);
+            String archiveName = "files.zip";
+            if ((ids == null || ids.isEmpty()) && projectId != null) {
+                archiveName = "project-" + projectId + ".zip";
+            } else if ((ids == null || ids.isEmpty()) && departmentId != null) {
+                archiveName = "department-" + departmentId + ".zip";
+            }
             
+            StreamingResponseBody body = outputStream -> archiveDownloadService.writeArchive(downloads, outputStream);
             return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(file.getContentType()))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, 
-                            "attachment; filename=\"" + file.getOriginalFilename() + "\"")
-                    .body(resource);
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archiveName + "\"")
+                    .cacheControl(CacheControl.noStore())
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .body(body);
+        } catch (Exception e) {
+            log.warn("Archive download rejected: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    @GetMapping("/{id}/download")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> downloadFile(
+            HttpServletRequest request,
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) {
+        try {
+            // Authorize up front; content is streamed from storage after the headers are sent
+            FileDownload download = fileService.prepareDownload(id);
+            return serveContent(request, download, "attachment; filename=\"" + download.getOriginalFilename() + "\"", range, ifRange);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
@@ -409,29 +732,302 @@ public class FileController {
     
     @GetMapping("/{id}/preview")
     @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
-    public ResponseEntity<Resource> previewFile(@PathVariable Long id) {
+    public ResponseEntity<StreamingResponseBody> previewFile(
+            HttpServletRequest request,
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) {
         try {
-            FileResponse file = fileService.getFileById(id)
-                    .orElseThrow(() -> new RuntimeException("File not found"));
+            FileDownload download = fileService.prepareDownload(id);
             
             // Only allow preview for certain file types
-            String contentType = file.getContentType();
+            String contentType = download.getContentType();
             if (!isPreviewableType(contentType)) {
                 return ResponseEntity.badRequest().build();
             }
             
-            byte[] fileContent = fileService.downloadFile(id);
-            ByteArrayResource resource = new ByteArrayResource(fileContent);
+            return serveContent(request, download, "inline", range, ifRange);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * Small preview image (image thumbnail or first PDF page). 404 while it is still being generated, so a grid
+     * can show a placeholder. Caches must revalidate every use, so access is re-authorized the same way as for the
+     * file's content; an unchanged rendition costs a 304 only.
+     */
+    @GetMapping("/{id}/thumbnail")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<StreamingResponseBody> getThumbnail(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        try {
+            Optional<Path> rendition = fileService.findRendition(id);
+            if (rendition.isEmpty()) {
+                return ResponseEntity.notFound().build();
+            }
+            Path path = rendition.get();
+            // The rendition file is named after the content hash and size, which makes a strong validator
+            String etag = "\"" + path.getFileName().toString().replaceFirst("\\.[a-z]+$", "") + "\"";
+            CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+            if (etag.equals(ifNoneMatch)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+            }
             
+            StreamingResponseBody body = outputStream -> Files.copy(path, outputStream);
             return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline")
-                    .body(resource);
+                    .eTag(etag)
+                    .cacheControl(cacheControl)
+                    .contentType(MediaType.parseMediaType(path.toString().endsWith(".png") ? "image/png" : "image/jpeg"))
+                    .contentLength(Files.size(path))
+                    .body(body);
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
+    @PostMapping("/{id}/signed-url")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<SignedDownloadResponse>> createSignedDownloadUrl(
+            @PathVariable Long id,
+            @RequestParam(value = "inline", defaultValue = "false") boolean inline) {
+        try {
+            SignedDownloadResponse response = fileService.createSignedDownload(id, inline);
+            return ResponseEntity.ok(ApiResponse.success("Download link created successfully", response));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+    
+    /**
+     * Serve a signed download link. No JWT is needed: the signature is verified in memory, so repeated
+     * and ranged requests against the link reach storage without any user or permission lookups.
+     */
+    @GetMapping("/signed/{id}")
+    public ResponseEntity<StreamingResponseBody> downloadSigned(
+            HttpServletRequest request,
+            @PathVariable Long id,
+            @RequestParam("hash") String hash,
+            @RequestParam("expires") long expires,
+            @RequestParam("disposition") String disposition,
+            @RequestParam("signature") String signature,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) {
+        try {
+            FileDownload download = fileService.resolveSignedDownload(id, hash, expires, disposition, signature);
+            // Anyone holding the link can open it, so markup that could run script on the API origin is never inline
+            String contentDisposition = "inline".equals(disposition) && isSignedInlineType(download.getContentType())
+                    ? "inline"
+                    : "attachment; filename=\"" + download.getOriginalFilename() + "\"";
+            ResponseEntity<StreamingResponseBody> response = serveContent(request, download, contentDisposition, range, ifRange);
+            return ResponseEntity.status(response.getStatusCode())
+                    .headers(response.getHeaders())
+                    .header("X-Content-Type-Options", "nosniff")
+                    .header("Content-Security-Policy", "sandbox")
+                    .body(response.getBody());
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+    }
+    
+    /**
+     * Build a not modified (304), full (200), single-range or multi-range (206) response for a prepared download.
+     * Conditional headers are evaluated first, so a 304 never touches storage or counts as a download.
+     * A Range header is honoured only while If-Range, when sent, still matches this content;
+     * a malformed Range header is ignored and the whole file is sent.
+     */
+    private ResponseEntity<StreamingResponseBody> serveContent(HttpServletRequest request, FileDownload download,
+                                                               String contentDisposition, String rangeHeader, String ifRange) {
+        long fileSize = download.getFileSize();
+        MediaType contentType = MediaType.parseMediaType(download.getContentType());
+        
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag(download.getETag());
+        if (download.getLastModified() != null) {
+            headers.setLastModified(download.getLastModified());
+        }
+        headers.setCacheControl(cacheControlFor(download));
+        
+        if (isNotModified(request, download)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .headers(headers)
+                    .build();
+        }
+        
+        headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+        headers.set(HttpHeaders.CONTENT_DISPOSITION, contentDisposition);
+        
+        List<HttpRange> ranges = List.of();
+        if (rangeHeader != null && ifRangeMatches(ifRange, download)) {
+            try {
+                ranges = HttpRange.parseRanges(rangeHeader);
+            } catch (IllegalArgumentException e) {
+                log.debug("Ignoring malformed Range header '{}': {}", rangeHeader, e.getMessage());
+            }
+        }
+        if (ranges.isEmpty()) {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .headers(headers)
+                    .contentType(contentType)
+                    .contentLength(fileSize);
+            if (useSendfile(request, download, 0, fileSize)) {
+                return response.build();
+            }
+            StreamingResponseBody body = outputStream -> fileService.writeContent(download, outputStream);
+            return response.body(body);
+        }
+        
+        // Resolve to absolute [start, end] pairs, dropping ranges that lie beyond the end of the file
+        List<long[]> regions = new ArrayList<>();
+        long requested = 0;
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(fileSize);
+            long end = range.getRangeEnd(fileSize);
+            if (start < fileSize && start <= end) {
+                regions.add(new long[]{start, end});
+                requested += end - start + 1;
+            }
+        }
+        // Overlapping ranges that add up to more than the file would only amplify the response
+        if (regions.isEmpty() || requested > fileSize) {
+            return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes */" + fileSize)
+                    .build();
+        }
+        
+        if (regions.size() == 1) {
+            long start = regions.get(0)[0];
+            long end = regions.get(0)[1];
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .headers(headers)
+                    .header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + fileSize)
+                    .contentType(contentType)
+                    .contentLength(end - start + 1);
+            if (useSendfile(request, download, start, end - start + 1)) {
+                return response.build();
+            }
+            StreamingResponseBody body = outputStream -> fileService.writeContent(download, outputStream, start, end - start + 1);
+            return response.body(body);
+        }
+        
+        // multipart/byteranges: every part carries its own Content-Type and Content-Range
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>();
+        long contentLength = 0;
+        for (long[] region : regions) {
+            byte[] partHeader = ("--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + region[0] + "-" + region[1] + "/" + fileSize + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + (region[1] - region[0] + 1) + 2;
+        }
+        byte[] closingBoundary = ("--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        contentLength += closingBoundary.length;
+        
+        StreamingResponseBody body = outputStream -> {
+            for (int i = 0; i < regions.size(); i++) {
+                long[] region = regions.get(i);
+                outputStream.write(partHeaders.get(i));
+                fileService.writeContent(download, outputStream, region[0], region[1] - region[0] + 1);
+                outputStream.write(CRLF);
+            }
+            outputStream.write(closingBoundary);
+        };
+        return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                .headers(headers)
+                .contentType(MediaType.parseMediaType("multipart/byteranges; boundary=" + boundary))
+                .contentLength(contentLength)
+                .body(body);
+    }
+    
+    /**
+     * Let Tomcat send a local copy itself with sendfile: the response is committed without a body and the
+     * connector transfers the file region straight to the socket. Only possible when the connector reports
+     * support (NIO/NIO2 without TLS); otherwise the caller streams the content as usual.
+     */
+    private boolean useSendfile(HttpServletRequest request, FileDownload download, long start, long length) {
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            return false;
+        }
+        Optional<Path> source = fileService.sendfileSource(download, length);
+        if (source.isEmpty()) {
+            return false;
+        }
+        request.setAttribute(SENDFILE_FILENAME_ATTR, source.get().toString());
+        request.setAttribute(SENDFILE_START_ATTR, start);
+        request.setAttribute(SENDFILE_END_ATTR, start + length); // Exclusive
+        if (start == 0) {
+            fileService.recordDownload(download);
+        }
+        return true;
+    }
+    
+    /**
+     * If-Range holds either an entity tag (strong comparison) or the Last-Modified date this content was sent with
+     */
+    private boolean ifRangeMatches(String ifRange, FileDownload download) {
+        if (ifRange == null) {
+            return true;
+        }
+        String validator = ifRange.trim();
+        if (validator.startsWith("\"") || validator.startsWith("W/")) {
+            return validator.equals(download.getETag());
+        }
+        Instant date = parseHttpDate(validator);
+        return date != null && download.getLastModified() != null
+                && date.getEpochSecond() == download.getLastModified().getEpochSecond();
+    }
+    
+    /**
+     * Evaluate If-None-Match (weak comparison, as RFC 9110 requires for it) or, only when that header is
+     * absent, If-Modified-Since. Content never changes under a file id, so either validator is reliable.
+     */
+    private boolean isNotModified(HttpServletRequest request, FileDownload download) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            String etag = download.getETag();
+            for (String candidate : ifNoneMatch.split(",")) {
+                String tag = candidate.trim();
+                if (tag.startsWith("W/")) {
+                    tag = tag.substring(2);
+                }
+                if (tag.equals("*") || tag.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        String ifModifiedSince = request.getHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        if (ifModifiedSince == null || download.getLastModified() == null) {
+            return false;
+        }
+        Instant date = parseHttpDate(ifModifiedSince.trim());
+        return date != null && download.getLastModified().getEpochSecond() <= date.getEpochSecond();
+    }
+    
+    /**
+     * Caching policy by visibility. Every response may be stored, but always revalidated with the ETag so a
+     * cached copy is never reused after access is revoked; revalidation is a cheap 304. Only public files may
+     * be kept by shared caches such as the reverse proxy, which forwards the caller's credentials when it revalidates.
+     */
+    private CacheControl cacheControlFor(FileDownload download) {
+        if ("PUBLIC".equals(download.getVisibility())) {
+            return CacheControl.noCache().cachePublic();
+        }
+        return CacheControl.noCache().cachePrivate();
+    }
+    
+    private Instant parseHttpDate(String value) {
+        try {
+            return ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+    
     private String formatBytes(long bytes) {
         if (bytes < 1024) return bytes + " B";
         int exp = (int) (Math.log(bytes) / Math.log(1024));
@@ -439,6 +1035,22 @@ public class FileController {
         return String.format("%.1f %sB", bytes / Math.pow(1024, exp), pre);
     }
     
+    /**
+     * Previewable types that are also safe to render inline from an unauthenticated, shareable link:
+     * no HTML, SVG or XML, which browsers may render as active documents
+     */
+    private boolean isSignedInlineType(String contentType) {
+        if (!isPreviewableType(contentType)) {
+            return false;
+        }
+        String type = contentType.toLowerCase(Locale.ROOT);
+        return !type.startsWith("text/html")
+                && !type.startsWith("image/svg+xml")
+                && !type.startsWith("text/xml")
+                && !type.startsWith("application/xml")
+                && !type.contains("+xml");
+    }
+    
     private boolean isPreviewableType(String contentType) {
         return contentType != null && (
                 contentType.startsWith("image/") ||
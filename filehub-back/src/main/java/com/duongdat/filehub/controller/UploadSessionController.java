@@ -0,0 +1,91 @@
+package com.duongdat.filehub.controller;
+
+import com.duongdat.filehub.dto.request.CreateUploadSessionRequest;
+import com.duongdat.filehub.dto.response.ApiResponse;
+import com.duongdat.filehub.dto.response.FileResponse;
+import com.duongdat.filehub.dto.response.UploadSessionResponse;
+import com.duongdat.filehub.service.UploadSessionService;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/files/upload-sessions")
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionController {
+
+    private final UploadSessionService uploadSessionService;
+
+    @PostMapping
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> createSession(
+            @Valid @RequestBody CreateUploadSessionRequest request) {
+        try {
+            UploadSessionResponse session = uploadSessionService.createSession(request);
+            return ResponseEntity.ok(ApiResponse.success("Upload session created successfully", session));
+        } catch (Exception e) {
+            log.warn("Failed to create upload session: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @PutMapping(value = "/{sessionId}/chunks/{chunkIndex}", consumes = "application/octet-stream")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> uploadChunk(
+            @PathVariable String sessionId,
+            @PathVariable int chunkIndex,
+            InputStream body) {
+        try {
+            UploadSessionResponse session = uploadSessionService.uploadChunk(sessionId, chunkIndex, body);
+            return ResponseEntity.ok(ApiResponse.success("Chunk uploaded successfully", session));
+        } catch (IOException e) {
+            log.error("Failed to store chunk {} for upload session {}: {}", chunkIndex, sessionId, e.getMessage(), e);
+            return ResponseEntity.internalServerError().body(ApiResponse.error("Failed to store chunk: " + e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/{sessionId}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<UploadSessionResponse>> getSession(@PathVariable String sessionId) {
+        try {
+            UploadSessionResponse session = uploadSessionService.getSession(sessionId);
+            return ResponseEntity.ok(ApiResponse.success("Upload session retrieved successfully", session));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @PostMapping("/{sessionId}/complete")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<FileResponse>> completeSession(@PathVariable String sessionId) {
+        try {
+            FileResponse file = uploadSessionService.completeSession(sessionId);
+            return ResponseEntity.ok(ApiResponse.success("File uploaded successfully", file));
+        } catch (IOException e) {
+            log.error("Failed to complete upload session {}: {}", sessionId, e.getMessage(), e);
+            return ResponseEntity.badRequest().body(ApiResponse.error("Failed to upload file: " + e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{sessionId}")
+    @PreAuthorize("hasRole('USER') or hasRole('ADMIN')")
+    public ResponseEntity<ApiResponse<Void>> abortSession(@PathVariable String sessionId) {
+        try {
+            uploadSessionService.abortSession(sessionId);
+            return ResponseEntity.ok(ApiResponse.success("Upload session aborted", null));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.duongdat.filehub.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class CreateUploadSessionRequest {
+    
+    @NotBlank(message = "Original filename is required")
+    @Size(max = 255, message = "Filename must not exceed 255 characters")
+    private String originalFilename;
+    
+    private String contentType;
+    
+    @NotNull(message = "Total size is required")
+    @Positive(message = "Total size must be positive")
+    private Long totalSize;
+    
+    @Positive(message = "Chunk size must be positive")
+    private Long chunkSize; // Optional, server default is used when omitted
+    
+    @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "File hash must be a hex SHA-256 digest")
+    private String fileHash; // Optional, verified when the session is completed
+    
+    @Size(max = 255, message = "Title must not exceed 255 characters")
+    private String title;
+    
+    @Size(max = 1000, message = "Description must not exceed 1000 characters")
+    private String description;
+    
+    private Long departmentCategoryId;
+    
+    private Long departmentId;
+    
+    private Long projectId;
+    
+    private Long fileTypeId;
+    
+    private String tags;
+    
+    private String visibility = "PRIVATE"; // PRIVATE, DEPARTMENT, PUBLIC
+}
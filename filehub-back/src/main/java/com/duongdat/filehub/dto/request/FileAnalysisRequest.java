@@ -1,9 +1,12 @@
 package com.duongdat.filehub.dto.request;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
+import java.nio.file.Path;
+
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -16,4 +19,7 @@ public class FileAnalysisRequest {
     private Long fileSize; // File size in bytes
     private String title; // File title for analysis
     private byte[] fileData; // Raw file data uploaded to Gemini Files API
+    
+    @JsonIgnore
+    private Path filePath; // Server-side staged copy, streamed to Gemini instead of fileData
 }
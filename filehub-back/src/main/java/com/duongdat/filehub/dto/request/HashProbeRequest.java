@@ -0,0 +1,19 @@
+package com.duongdat.filehub.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import lombok.Data;
+
+@Data
+public class HashProbeRequest {
+    
+    @NotBlank(message = "File hash is required")
+    @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "File hash must be a hex SHA-256 digest")
+    private String fileHash;
+    
+    @NotNull(message = "File size is required")
+    @Positive(message = "File size must be positive")
+    private Long fileSize;
+}
@@ -0,0 +1,41 @@
+package com.duongdat.filehub.dto.request;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+@Data
+public class UploadByReferenceRequest {
+    
+    @NotBlank(message = "File hash is required")
+    @Pattern(regexp = "^[0-9a-fA-F]{64}$", message = "File hash must be a hex SHA-256 digest")
+    private String fileHash;
+    
+    @NotNull(message = "File size is required")
+    @Positive(message = "File size must be positive")
+    private Long fileSize;
+    
+    @Size(max = 255, message = "Filename must not exceed 255 characters")
+    private String originalFilename; // Optional, defaults to the name of the existing content
+    
+    @Size(max = 255, message = "Title must not exceed 255 characters")
+    private String title;
+    
+    @Size(max = 1000, message = "Description must not exceed 1000 characters")
+    private String description;
+    
+    private Long departmentCategoryId;
+    
+    private Long departmentId;
+    
+    private Long projectId;
+    
+    private Long fileTypeId;
+    
+    private String tags;
+    
+    private String visibility = "PRIVATE"; // PRIVATE, DEPARTMENT, PUBLIC
+}
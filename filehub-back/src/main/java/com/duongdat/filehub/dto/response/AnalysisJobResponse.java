@@ -0,0 +1,21 @@
+package com.duongdat.filehub.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalysisJobResponse {
+    private Long jobId;
+    private Long fileId;
+    private String status; // QUEUED, RUNNING, DONE, FAILED
+    private FileAnalysisResponse result;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime completedAt;
+}
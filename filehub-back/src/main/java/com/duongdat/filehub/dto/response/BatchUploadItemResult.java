@@ -0,0 +1,25 @@
+package com.duongdat.filehub.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchUploadItemResult {
+    
+    private int index; // Position of the part in the request
+    private String originalFilename;
+    private boolean success;
+    private FileResponse file;
+    private String errorMessage;
+    
+    public static BatchUploadItemResult success(int index, FileResponse file) {
+        return new BatchUploadItemResult(index, file.getOriginalFilename(), true, file, null);
+    }
+    
+    public static BatchUploadItemResult failure(int index, String originalFilename, String errorMessage) {
+        return new BatchUploadItemResult(index, originalFilename, false, null, errorMessage);
+    }
+}
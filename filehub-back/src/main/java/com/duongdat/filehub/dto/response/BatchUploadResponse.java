@@ -0,0 +1,23 @@
+package com.duongdat.filehub.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchUploadResponse {
+    
+    private int totalFiles;
+    private int successCount;
+    private int failureCount;
+    private List<BatchUploadItemResult> results;
+    
+    public static BatchUploadResponse of(List<BatchUploadItemResult> results) {
+        int successCount = (int) results.stream().filter(BatchUploadItemResult::isSuccess).count();
+        return new BatchUploadResponse(results.size(), successCount, results.size() - successCount, results);
+    }
+}
@@ -13,17 +13,22 @@ public class FileUploadWithAnalysisResponse {
     private FileAnalysisResponse analysisResponse;
     private boolean analysisEnabled;
     private String analysisMessage;
+    private Long analysisJobId; // Set when analysis runs in the background
     
     // Static factory methods for convenience
     public static FileUploadWithAnalysisResponse withAnalysis(FileResponse fileResponse, FileAnalysisResponse analysisResponse) {
-        return new FileUploadWithAnalysisResponse(fileResponse, analysisResponse, true, "AI analysis completed successfully");
+        return new FileUploadWithAnalysisResponse(fileResponse, analysisResponse, true, "AI analysis completed successfully", null);
     }
     
     public static FileUploadWithAnalysisResponse withoutAnalysis(FileResponse fileResponse, String reason) {
-        return new FileUploadWithAnalysisResponse(fileResponse, null, false, reason);
+        return new FileUploadWithAnalysisResponse(fileResponse, null, false, reason, null);
     }
     
     public static FileUploadWithAnalysisResponse withAnalysisError(FileResponse fileResponse, String errorMessage) {
-        return new FileUploadWithAnalysisResponse(fileResponse, null, true, "AI analysis failed: " + errorMessage);
+        return new FileUploadWithAnalysisResponse(fileResponse, null, true, "AI analysis failed: " + errorMessage, null);
+    }
+    
+    public static FileUploadWithAnalysisResponse withAnalysisQueued(FileResponse fileResponse, Long analysisJobId) {
+        return new FileUploadWithAnalysisResponse(fileResponse, null, true, "AI analysis queued", analysisJobId);
     }
 }
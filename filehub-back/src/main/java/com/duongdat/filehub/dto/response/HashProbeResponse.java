@@ -0,0 +1,14 @@
+package com.duongdat.filehub.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HashProbeResponse {
+    private String fileHash;
+    private Long fileSize;
+    private boolean exists; // True if the content can be added with upload-by-reference
+}
@@ -0,0 +1,22 @@
+package com.duongdat.filehub.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class HotContentCacheResponse {
+    private boolean enabled;
+    private boolean offHeap;
+    private long maxBytes;
+    private long maxEntryBytes;
+    private long usedBytes;
+    private int entries;
+    private long hits;
+    private long misses;
+    private long evictions; // Entries displaced by more popular content
+    private long rejections; // Content not admitted because what it would displace is more popular
+    private double hitRate;
+}
@@ -0,0 +1,15 @@
+package com.duongdat.filehub.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SignedDownloadResponse {
+    private String url; // Relative to the API root, usable without an Authorization header
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,13 @@
+package com.duongdat.filehub.dto.response;
+
+import lombok.Data;
+import lombok.AllArgsConstructor;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TagCountResponse {
+    private String name;
+    private Long fileCount; // Non-deleted files carrying the tag, across all departments
+}
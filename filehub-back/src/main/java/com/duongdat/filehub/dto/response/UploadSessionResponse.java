@@ -0,0 +1,25 @@
+package com.duongdat.filehub.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionResponse {
+    private String sessionId;
+    private String status;
+    private String originalFilename;
+    private Long totalSize;
+    private Long chunkSize;
+    private Integer totalChunks;
+    private List<Integer> receivedChunks;
+    private Long receivedBytes;
+    private Long committedOffset; // Bytes received contiguously from the start of the file
+    private Long fileId;
+    private LocalDateTime expiresAt;
+}
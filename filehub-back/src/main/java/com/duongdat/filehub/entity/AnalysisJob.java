@@ -0,0 +1,82 @@
+package com.duongdat.filehub.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "analysis_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnalysisJob {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "file_id", nullable = false)
+    private Long fileId;
+    
+    @Column(name = "requested_by", nullable = false)
+    private Long requestedBy; // User who triggered the analysis
+    
+    @Column(name = "status", nullable = false, length = 20)
+    private String status = "QUEUED"; // 'QUEUED', 'RUNNING', 'DONE', 'FAILED'
+    
+    // Analysis context supplied with the request
+    @Column(name = "department_id")
+    private Long departmentId;
+    
+    @Column(name = "project_id")
+    private Long projectId;
+    
+    @Column(name = "title")
+    private String title;
+    
+    @Column(name = "description", columnDefinition = "TEXT")
+    private String description;
+    
+    @Column(name = "result", columnDefinition = "TEXT")
+    private String result; // Serialized FileAnalysisResponse
+    
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+    
+    @Column(name = "attempts")
+    private Integer attempts = 0;
+    
+    @Column(name = "worker_id", length = 64)
+    private String workerId; // Instance that claimed the job while it is RUNNING
+    
+    @Column(name = "heartbeat_at")
+    private LocalDateTime heartbeatAt; // Refreshed by that instance; RUNNING jobs without a recent heartbeat are requeued
+    
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt; // A failed job waits until then before it is claimed again
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+    
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+    
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -24,8 +24,8 @@ public class File {
     @Column(name = "stored_filename", unique = true, nullable = false)
     private String storedFilename;
     
-    @Column(name = "file_path", nullable = false, length = 500)
-    private String filePath;
+    @Column(name = "file_path", length = 500)
+    private String filePath; // Local copy; null while only stored on Google Drive
     
     @Column(name = "file_size", nullable = false)
     private Long fileSize;
@@ -33,8 +33,8 @@ public class File {
     @Column(name = "content_type", nullable = false, length = 100)
     private String contentType;
     
-    @Column(name = "file_hash", unique = true, nullable = false, length = 64)
-    private String fileHash;
+    @Column(name = "file_hash", nullable = false, length = 64)
+    private String fileHash; // Content address of the shared FileBlob
     
     // Core classifications
     @Column(name = "uploader_id", nullable = false)
@@ -68,7 +68,7 @@ public class File {
     private String visibility = "PRIVATE"; // 'PRIVATE', 'DEPARTMENT', 'PUBLIC'
     
     // System fields
-    @Column(name = "download_count")
+    @Column(name = "download_count", updatable = false) // Only written by DownloadCounterService, so saves never overwrite it
     private Long downloadCount = 0L;
     
     @Column(name = "is_deleted")
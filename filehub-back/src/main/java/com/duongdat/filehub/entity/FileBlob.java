@@ -0,0 +1,62 @@
+package com.duongdat.filehub.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * Stored content addressed by its SHA-256 hash.
+ * Any number of {@link File} rows with the same file_hash share one blob; ref_count tracks them.
+ */
+@Entity
+@Table(name = "file_blobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileBlob {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "file_hash", unique = true, nullable = false, length = 64)
+    private String fileHash;
+    
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+    
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+    
+    // Physical locations of the content
+    @Column(name = "drive_file_id")
+    private String driveFileId;
+    
+    @Column(name = "file_path", length = 500)
+    private String filePath;
+    
+    @Column(name = "ref_count", nullable = false)
+    private Integer refCount = 0; // Number of non-deleted File rows pointing at this blob
+    
+    @Column(name = "status", nullable = false, length = 20)
+    private String status = "ACTIVE"; // 'ACTIVE', 'RECLAIMING'
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
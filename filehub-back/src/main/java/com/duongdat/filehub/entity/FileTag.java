@@ -0,0 +1,44 @@
+package com.duongdat.filehub.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "file_tags",
+       uniqueConstraints = @UniqueConstraint(name = "uk_file_tags_file_tag", columnNames = {"file_id", "tag_id"}),
+       indexes = @Index(name = "idx_file_tags_tag_file", columnList = "tag_id, file_id"))
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FileTag {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "file_id", nullable = false)
+    private Long fileId;
+    
+    @Column(name = "tag_id", nullable = false)
+    private Long tagId;
+    
+    @Column(name = "source", nullable = false, length = 10)
+    private String source = "USER"; // 'USER' (entered on upload), 'AI' (suggested by analysis)
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    public FileTag(Long fileId, Long tagId, String source) {
+        this.fileId = fileId;
+        this.tagId = tagId;
+        this.source = source;
+    }
+    
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
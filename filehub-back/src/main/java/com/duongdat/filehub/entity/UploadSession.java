@@ -0,0 +1,91 @@
+package com.duongdat.filehub.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "upload_sessions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSession {
+    
+    @Id
+    @Column(name = "id", length = 36)
+    private String id; // Random UUID, also used as the staging directory name
+    
+    @Column(name = "uploader_id", nullable = false)
+    private Long uploaderId;
+    
+    @Column(name = "original_filename", nullable = false)
+    private String originalFilename;
+    
+    @Column(name = "content_type", length = 100)
+    private String contentType;
+    
+    @Column(name = "total_size", nullable = false)
+    private Long totalSize;
+    
+    @Column(name = "chunk_size", nullable = false)
+    private Long chunkSize;
+    
+    @Column(name = "total_chunks", nullable = false)
+    private Integer totalChunks;
+    
+    @Column(name = "expected_hash", length = 64)
+    private String expectedHash; // Optional SHA-256 declared by the client, verified on completion
+    
+    // Upload metadata applied when the session is completed
+    @Column(name = "title")
+    private String title;
+    
+    @Column(name = "description", columnDefinition = "TEXT")
+    private String description;
+    
+    @Column(name = "department_id")
+    private Long departmentId;
+    
+    @Column(name = "department_category_id")
+    private Long departmentCategoryId;
+    
+    @Column(name = "file_type_id")
+    private Long fileTypeId;
+    
+    @Column(name = "project_id")
+    private Long projectId;
+    
+    @Column(name = "tags", columnDefinition = "TEXT")
+    private String tags;
+    
+    @Column(name = "visibility", length = 20)
+    private String visibility = "PRIVATE";
+    
+    @Column(name = "status", nullable = false, length = 20)
+    private String status = "ACTIVE"; // 'ACTIVE', 'ASSEMBLING', 'COMPLETED', 'ABORTED'
+    
+    @Column(name = "file_id")
+    private Long fileId; // Resulting file once completed
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+    
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+    
+    @PrePersist
+    public void prePersist() {
+        this.createdAt = LocalDateTime.now();
+        this.updatedAt = LocalDateTime.now();
+    }
+    
+    @PreUpdate
+    public void preUpdate() {
+        this.updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,81 @@
+package com.duongdat.filehub.repository;
+
+import com.duongdat.filehub.entity.AnalysisJob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface AnalysisJobRepository extends JpaRepository<AnalysisJob, Long> {
+    
+    @Query("SELECT j.id FROM AnalysisJob j WHERE j.status = 'QUEUED' " +
+           "AND (j.nextAttemptAt IS NULL OR j.nextAttemptAt <= CURRENT_TIMESTAMP) ORDER BY j.createdAt ASC, j.id ASC")
+    List<Long> findQueuedJobIds(Pageable pageable);
+    
+    List<AnalysisJob> findByFileIdOrderByCreatedAtDesc(Long fileId);
+    
+    /**
+     * Claim a queued job for a worker of this instance; returns 0 if another worker claimed it first
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AnalysisJob j SET j.status = 'RUNNING', j.startedAt = CURRENT_TIMESTAMP, j.attempts = j.attempts + 1, " +
+           "j.workerId = :workerId, j.heartbeatAt = CURRENT_TIMESTAMP, j.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE j.id = :id AND j.status = 'QUEUED'")
+    int claimJob(@Param("id") Long id, @Param("workerId") String workerId);
+    
+    /**
+     * Mark the jobs an instance is running as still alive
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AnalysisJob j SET j.heartbeatAt = CURRENT_TIMESTAMP WHERE j.status = 'RUNNING' AND j.workerId = :workerId")
+    int heartbeat(@Param("workerId") String workerId);
+    
+    /**
+     * Put running jobs whose instance stopped sending heartbeats (e.g. it was stopped or crashed) back on the queue
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AnalysisJob j SET j.status = 'QUEUED', j.workerId = NULL, j.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE j.status = 'RUNNING' AND (j.heartbeatAt IS NULL OR j.heartbeatAt < :cutoff)")
+    int requeueStaleJobs(@Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * Give back a job this worker claimed but could not start, without counting it as an attempt
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AnalysisJob j SET j.status = 'QUEUED', j.workerId = NULL, j.attempts = j.attempts - 1, " +
+           "j.updatedAt = CURRENT_TIMESTAMP WHERE j.id = :id AND j.workerId = :workerId AND j.status = 'RUNNING'")
+    int unclaimJob(@Param("id") Long id, @Param("workerId") String workerId);
+    
+    /**
+     * Record the outcome of a job; returns 0 if the job no longer belongs to this worker (requeued and claimed elsewhere)
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AnalysisJob j SET j.status = :status, j.result = :result, j.errorMessage = :errorMessage, " +
+           "j.completedAt = CURRENT_TIMESTAMP, j.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE j.id = :id AND j.workerId = :workerId AND j.status = 'RUNNING'")
+    int finishJob(@Param("id") Long id, @Param("workerId") String workerId, @Param("status") String status,
+                  @Param("result") String result, @Param("errorMessage") String errorMessage);
+    
+    /**
+     * Put a failed job back on the queue, not to be claimed again before nextAttemptAt
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE AnalysisJob j SET j.status = 'QUEUED', j.workerId = NULL, j.errorMessage = :errorMessage, " +
+           "j.nextAttemptAt = :nextAttemptAt, j.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE j.id = :id AND j.workerId = :workerId AND j.status = 'RUNNING'")
+    int retryJob(@Param("id") Long id, @Param("workerId") String workerId, @Param("errorMessage") String errorMessage,
+                 @Param("nextAttemptAt") LocalDateTime nextAttemptAt);
+}
@@ -0,0 +1,79 @@
+package com.duongdat.filehub.repository;
+
+import com.duongdat.filehub.entity.FileBlob;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface FileBlobRepository extends JpaRepository<FileBlob, Long> {
+    
+    Optional<FileBlob> findByFileHash(String fileHash);
+    
+    List<FileBlob> findByFileHashIn(Collection<String> fileHashes);
+    
+    @Query("SELECT b FROM FileBlob b WHERE b.refCount = 0 AND b.status = 'ACTIVE' AND b.updatedAt < :cutoff ORDER BY b.id ASC")
+    List<FileBlob> findUnreferencedBefore(@Param("cutoff") LocalDateTime cutoff, Pageable pageable);
+    
+    /**
+     * Take a reference on an existing blob; returns 0 if there is no live blob for the hash
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount + :count, b.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE b.fileHash = :fileHash AND b.status = 'ACTIVE'")
+    int acquire(@Param("fileHash") String fileHash, @Param("count") int count);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileBlob b SET b.refCount = b.refCount - :count, b.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE b.fileHash = :fileHash AND b.refCount >= :count")
+    int release(@Param("fileHash") String fileHash, @Param("count") int count);
+    
+    /**
+     * Mark an unreferenced blob for removal; returns 0 if it was referenced again in the meantime
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileBlob b SET b.status = 'RECLAIMING', b.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE b.id = :id AND b.refCount = 0 AND b.status = 'ACTIVE'")
+    int markReclaiming(@Param("id") Long id);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileBlob b SET b.driveFileId = :driveFileId, b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :id")
+    int updateDriveFileId(@Param("id") Long id, @Param("driveFileId") String driveFileId);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileBlob b SET b.filePath = :filePath, b.updatedAt = CURRENT_TIMESTAMP WHERE b.id = :id")
+    int updateFilePath(@Param("id") Long id, @Param("filePath") String filePath);
+    
+    /**
+     * Reset reference counts to the number of live files per hash, for blobs untouched since the cutoff.
+     * Corrects counts left behind when a process died between storing a blob and saving its file row.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE file_blobs b SET ref_count = " +
+                   "(SELECT COUNT(*) FROM files f WHERE f.file_hash = b.file_hash AND f.is_deleted = false), " +
+                   "updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE b.status = 'ACTIVE' AND b.updated_at < :cutoff AND b.ref_count <> " +
+                   "(SELECT COUNT(*) FROM files f WHERE f.file_hash = b.file_hash AND f.is_deleted = false)",
+           nativeQuery = true)
+    int reconcileRefCounts(@Param("cutoff") LocalDateTime cutoff);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE FileBlob b SET b.filePath = :newPath, b.updatedAt = CURRENT_TIMESTAMP WHERE b.filePath = :oldPath")
+    int relocateFilePath(@Param("oldPath") String oldPath, @Param("newPath") String newPath);
+}
@@ -4,15 +4,19 @@ import com.duongdat.filehub.entity.File;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface FileRepository extends JpaRepository<File, Long> {
+public interface FileRepository extends JpaRepository<File, Long>, JpaSpecificationExecutor<File> {
     
     // Basic file queries
     List<File> findByUploaderIdAndIsDeletedFalse(Long uploaderId);
@@ -21,10 +25,45 @@ public interface FileRepository extends JpaRepository<File, Long> {
     
     Optional<File> findByIdAndUploaderIdAndIsDeletedFalse(Long id, Long uploaderId);
     
-    Optional<File> findByFileHash(String fileHash);
+    boolean existsByIdAndIsDeletedFalse(Long id);
+    
+    List<File> findByFileHashAndIsDeletedFalse(String fileHash);
+    
+    // Fill in storage locations that were written after the file rows were created
+    @Modifying
+    @Transactional
+    @Query("UPDATE File f SET f.driveFileId = :driveFileId WHERE f.fileHash = :fileHash AND f.driveFileId IS NULL")
+    int fillDriveFileIdByHash(@Param("fileHash") String fileHash, @Param("driveFileId") String driveFileId);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE File f SET f.filePath = :filePath WHERE f.fileHash = :fileHash AND f.filePath IS NULL")
+    int fillFilePathByHash(@Param("fileHash") String fileHash, @Param("filePath") String filePath);
+    
+    // Local storage migration
+    List<File> findByIdGreaterThanAndFilePathIsNotNullOrderByIdAsc(Long id, Pageable pageable);
+    
+    @Query("SELECT f.id FROM File f WHERE f.filePath = :filePath")
+    List<Long> findIdsByFilePath(@Param("filePath") String filePath);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE File f SET f.filePath = :newPath WHERE f.filePath = :oldPath")
+    int relocateFilePath(@Param("oldPath") String oldPath, @Param("newPath") String newPath);
     
     Optional<File> findByDriveFileId(String driveFileId);
     
+    // Search index reconciliation (includes deleted files, which are removed from the index)
+    @Query("SELECT f.id FROM File f WHERE f.updatedAt >= :since AND f.id > :afterId ORDER BY f.id")
+    List<Long> findIdsUpdatedSince(@Param("since") LocalDateTime since, @Param("afterId") Long afterId, Pageable pageable);
+    
+    // Names and titles for the filename trigram index, as (id, originalFilename, title) rows
+    @Query("SELECT f.id, f.originalFilename, f.title FROM File f WHERE f.isDeleted = false AND f.id > :afterId ORDER BY f.id")
+    List<Object[]> findSearchNamesAfter(@Param("afterId") Long afterId, Pageable pageable);
+    
+    // Files whose free-form tags are copied into the tag store
+    List<File> findByIsDeletedFalseAndTagsIsNotNullAndIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+    
     // Department-based queries
     List<File> findByDepartmentIdAndIsDeletedFalse(Long departmentId);
     
@@ -50,7 +89,8 @@ public interface FileRepository extends JpaRepository<File, Long> {
     
     // Complex filter query for users
     @Query("SELECT f FROM File f WHERE f.uploaderId = :uploaderId AND f.isDeleted = false AND " +
-           "(:filename IS NULL OR LOWER(f.originalFilename) LIKE LOWER(CONCAT('%', :filename, '%'))) AND " +
+           "(:filename IS NULL OR LOWER(f.originalFilename) LIKE LOWER(CONCAT('%', :filename, '%')) " +
+           " OR LOWER(f.title) LIKE LOWER(CONCAT('%', :filename, '%'))) AND " +
            "(:departmentCategoryId IS NULL OR f.departmentCategoryId = :departmentCategoryId) AND " +
            "(:departmentId IS NULL OR f.departmentId = :departmentId) AND " +
            "(:projectId IS NULL OR f.projectId = :projectId) AND " +
@@ -67,7 +107,8 @@ public interface FileRepository extends JpaRepository<File, Long> {
     
     // Admin query for all files with filters
     @Query("SELECT f FROM File f WHERE f.isDeleted = false AND " +
-           "(:filename IS NULL OR LOWER(f.originalFilename) LIKE LOWER(CONCAT('%', :filename, '%'))) AND " +
+           "(:filename IS NULL OR LOWER(f.originalFilename) LIKE LOWER(CONCAT('%', :filename, '%')) " +
+           " OR LOWER(f.title) LIKE LOWER(CONCAT('%', :filename, '%'))) AND " +
            "(:departmentCategoryId IS NULL OR f.departmentCategoryId = :departmentCategoryId) AND " +
            "(:departmentId IS NULL OR f.departmentId = :departmentId) AND " +
            "(:projectId IS NULL OR f.projectId = :projectId) AND " +
@@ -86,7 +127,8 @@ public interface FileRepository extends JpaRepository<File, Long> {
     // Query for files with authorization filters (for regular users)
     // Project files are only visible to project members, department files without projects are visible to department members
     @Query("SELECT f FROM File f WHERE f.isDeleted = false AND " +
-           "(:filename IS NULL OR LOWER(f.originalFilename) LIKE LOWER(CONCAT('%', :filename, '%'))) AND " +
+           "(:filename IS NULL OR LOWER(f.originalFilename) LIKE LOWER(CONCAT('%', :filename, '%')) " +
+           " OR LOWER(f.title) LIKE LOWER(CONCAT('%', :filename, '%'))) AND " +
            "(:departmentCategoryId IS NULL OR f.departmentCategoryId = :departmentCategoryId) AND " +
            "(:departmentId IS NULL OR f.departmentId = :departmentId) AND " +
            "(:projectId IS NULL OR f.projectId = :projectId) AND " +
@@ -109,7 +151,8 @@ public interface FileRepository extends JpaRepository<File, Long> {
     // Query for shared files (from all users) with authorization filters
     // Project files are only visible to project members, department files without projects are visible to department members
     @Query("SELECT f FROM File f WHERE f.isDeleted = false AND " +
-           "(:filename IS NULL OR LOWER(f.originalFilename) LIKE LOWER(CONCAT('%', :filename, '%'))) AND " +
+           "(:filename IS NULL OR LOWER(f.originalFilename) LIKE LOWER(CONCAT('%', :filename, '%')) " +
+           " OR LOWER(f.title) LIKE LOWER(CONCAT('%', :filename, '%'))) AND " +
            "(:departmentCategoryId IS NULL OR f.departmentCategoryId = :departmentCategoryId) AND " +
            "(:departmentId IS NULL OR f.departmentId = :departmentId) AND " +
            "(:projectId IS NULL OR f.projectId = :projectId) AND " +
@@ -130,7 +173,8 @@ public interface FileRepository extends JpaRepository<File, Long> {
 
     // Query for shared files by department (excluding project files)
     @Query("SELECT f FROM File f WHERE f.isDeleted = false AND f.departmentId = :departmentId AND f.projectId IS NULL AND " +
-           "(:filename IS NULL OR LOWER(f.originalFilename) LIKE LOWER(CONCAT('%', :filename, '%'))) AND " +
+           "(:filename IS NULL OR LOWER(f.originalFilename) LIKE LOWER(CONCAT('%', :filename, '%')) " +
+           " OR LOWER(f.title) LIKE LOWER(CONCAT('%', :filename, '%'))) AND " +
            "(:departmentCategoryId IS NULL OR f.departmentCategoryId = :departmentCategoryId) AND " +
            "(:fileTypeId IS NULL OR f.fileTypeId = :fileTypeId) AND " +
            "(:contentType IS NULL OR f.contentType LIKE CONCAT(:contentType, '%')) AND " +
@@ -144,7 +188,8 @@ public interface FileRepository extends JpaRepository<File, Long> {
 
     // Query for shared files by project
     @Query("SELECT f FROM File f WHERE f.isDeleted = false AND f.projectId = :projectId AND " +
-           "(:filename IS NULL OR LOWER(f.originalFilename) LIKE LOWER(CONCAT('%', :filename, '%'))) AND " +
+           "(:filename IS NULL OR LOWER(f.originalFilename) LIKE LOWER(CONCAT('%', :filename, '%')) " +
+           " OR LOWER(f.title) LIKE LOWER(CONCAT('%', :filename, '%'))) AND " +
            "(:fileTypeId IS NULL OR f.fileTypeId = :fileTypeId) AND " +
            "(:contentType IS NULL OR f.contentType LIKE CONCAT(:contentType, '%')) AND " +
            "(f.visibility = 'PUBLIC' OR f.visibility = 'DEPARTMENT' OR f.visibility = 'PROJECT')")
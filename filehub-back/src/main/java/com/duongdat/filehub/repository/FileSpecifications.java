@@ -0,0 +1,134 @@
+package com.duongdat.filehub.repository;
+
+import com.duongdat.filehub.entity.File;
+import com.duongdat.filehub.entity.FileTag;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Criteria versions of the {@link FileRepository} filter queries, for listings whose ORDER BY and
+ * seek condition depend on the requested sort column (keyset pagination).
+ */
+public final class FileSpecifications {
+
+    private FileSpecifications() {
+    }
+
+    // Same filters as findAllFilesWithFilters
+    public static Specification<File> matchesFilters(String filename, Long departmentCategoryId, Long departmentId,
+                                                     Long projectId, Long fileTypeId, String contentType) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get("isDeleted"), false));
+            if (filename != null) {
+                String pattern = "%" + filename.toLowerCase(Locale.ROOT) + "%";
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("originalFilename")), pattern),
+                        cb.like(cb.lower(root.get("title")), pattern)));
+            }
+            if (departmentCategoryId != null) {
+                predicates.add(cb.equal(root.get("departmentCategoryId"), departmentCategoryId));
+            }
+            if (departmentId != null) {
+                predicates.add(cb.equal(root.get("departmentId"), departmentId));
+            }
+            if (projectId != null) {
+                predicates.add(cb.equal(root.get("projectId"), projectId));
+            }
+            if (fileTypeId != null) {
+                predicates.add(cb.equal(root.get("fileTypeId"), fileTypeId));
+            }
+            if (contentType != null) {
+                predicates.add(cb.like(root.get("contentType"), contentType + "%"));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    public static Specification<File> uploadedBy(Long uploaderId) {
+        return (root, query, cb) -> uploaderId == null ? cb.conjunction() : cb.equal(root.get("uploaderId"), uploaderId);
+    }
+
+    // Candidate ids from the filename trigram index; the filename LIKE still checks each of them
+    public static Specification<File> idIn(Collection<Long> ids) {
+        return (root, query, cb) -> root.get("id").in(ids);
+    }
+
+    // Files carrying at least one of the tags; served by the (tag_id, file_id) index on file_tags
+    public static Specification<File> taggedWithAny(Collection<Long> tagIds) {
+        return (root, query, cb) -> {
+            Subquery<Long> tagged = query.subquery(Long.class);
+            Root<FileTag> fileTag = tagged.from(FileTag.class);
+            tagged.select(fileTag.get("fileId")).where(fileTag.get("tagId").in(tagIds));
+            return root.get("id").in(tagged);
+        };
+    }
+
+    // Files carrying every one of the tags
+    public static Specification<File> taggedWithAll(Collection<Long> tagIds) {
+        return (root, query, cb) -> {
+            Subquery<Long> tagged = query.subquery(Long.class);
+            Root<FileTag> fileTag = tagged.from(FileTag.class);
+            tagged.select(fileTag.get("fileId"))
+                    .where(fileTag.get("tagId").in(tagIds))
+                    .groupBy(fileTag.get("fileId"))
+                    .having(cb.equal(cb.count(fileTag), (long) tagIds.size()));
+            return root.get("id").in(tagged);
+        };
+    }
+
+    public static Specification<File> none() {
+        return (root, query, cb) -> cb.disjunction();
+    }
+
+    // Project files are only visible to project members, department files without projects are visible to department members
+    public static Specification<File> accessibleTo(List<Long> accessibleDepartmentIds, List<Long> accessibleProjectIds) {
+        return (root, query, cb) -> cb.or(
+                cb.equal(root.get("visibility"), "PUBLIC"),
+                cb.and(cb.isNotNull(root.get("projectId")), root.get("projectId").in(accessibleProjectIds)),
+                cb.and(cb.isNull(root.get("projectId")), root.get("departmentId").in(accessibleDepartmentIds)));
+    }
+
+    // Same scope as findSharedFilesByDepartment (excluding project files)
+    public static Specification<File> sharedInDepartment(Long departmentId) {
+        return (root, query, cb) -> cb.and(
+                cb.equal(root.get("departmentId"), departmentId),
+                cb.isNull(root.get("projectId")),
+                root.get("visibility").in("PUBLIC", "DEPARTMENT"));
+    }
+
+    // Same scope as findSharedFilesByProject
+    public static Specification<File> sharedInProject(Long projectId) {
+        return (root, query, cb) -> cb.and(
+                cb.equal(root.get("projectId"), projectId),
+                root.get("visibility").in("PUBLIC", "DEPARTMENT", "PROJECT"));
+    }
+
+    /**
+     * Rows that come after (sortValue, id) in ORDER BY sortKey, id with the given direction.
+     * With an index on the sort column this is a range scan, so every page costs the same as the first.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<File> after(String sortKey, Sort.Direction direction, Comparable<?> sortValue, Long id) {
+        return (root, query, cb) -> {
+            Expression<Long> fileId = root.get("id");
+            Predicate idBeyond = direction.isAscending() ? cb.greaterThan(fileId, id) : cb.lessThan(fileId, id);
+            if ("id".equals(sortKey)) {
+                return idBeyond;
+            }
+            Expression<Comparable> key = root.get(sortKey);
+            Comparable value = sortValue;
+            Predicate keyBeyond = direction.isAscending() ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+            return cb.or(keyBeyond, cb.and(cb.equal(key, value), idBeyond));
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.duongdat.filehub.repository;
+
+import com.duongdat.filehub.entity.FileTag;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface FileTagRepository extends JpaRepository<FileTag, Long> {
+    
+    List<FileTag> findByFileId(Long fileId);
+    
+    // Tag names of many files at once, as (fileId, name) rows
+    @Query("SELECT ft.fileId, t.name FROM FileTag ft JOIN Tag t ON t.id = ft.tagId WHERE ft.fileId IN :fileIds")
+    List<Object[]> findTagNamesByFileIds(@Param("fileIds") Collection<Long> fileIds);
+    
+    // Tag usage over the files a user can see (same scope as the authorized listings, plus their own uploads),
+    // as (name, fileCount) rows, most used first
+    @Query("SELECT t.name, COUNT(ft.fileId) FROM FileTag ft JOIN Tag t ON t.id = ft.tagId JOIN File f ON f.id = ft.fileId " +
+           "WHERE f.isDeleted = false AND (f.visibility = 'PUBLIC' OR f.uploaderId = :userId " +
+           "OR (f.projectId IS NOT NULL AND f.projectId IN :projectIds) " +
+           "OR (f.projectId IS NULL AND f.departmentId IN :departmentIds)) " +
+           "GROUP BY t.name ORDER BY COUNT(ft.fileId) DESC, t.name ASC")
+    List<Object[]> countTagsAccessibleTo(@Param("userId") Long userId,
+                                         @Param("departmentIds") Collection<Long> departmentIds,
+                                         @Param("projectIds") Collection<Long> projectIds,
+                                         Pageable pageable);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM FileTag ft WHERE ft.fileId = :fileId AND ft.tagId = :tagId")
+    int deleteLink(@Param("fileId") Long fileId, @Param("tagId") Long tagId);
+}
@@ -0,0 +1,43 @@
+package com.duongdat.filehub.repository;
+
+import com.duongdat.filehub.entity.Tag;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface TagRepository extends JpaRepository<Tag, Long> {
+    
+    List<Tag> findByNameIn(Collection<String> names);
+    
+    // Tag cloud, most used first
+    List<Tag> findByFileCountGreaterThanOrderByFileCountDescNameAsc(Long fileCount, Pageable pageable);
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE Tag t SET t.fileCount = t.fileCount + :delta, t.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE t.id IN :ids AND t.fileCount + :delta >= 0")
+    int adjustFileCounts(@Param("ids") Collection<Long> ids, @Param("delta") long delta);
+    
+    /**
+     * Reset file counts to the number of tagged files, for tags untouched since the cutoff.
+     * Corrects counts left behind when a process died between linking a file and counting it.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE tags t SET file_count = " +
+                   "(SELECT COUNT(*) FROM file_tags ft WHERE ft.tag_id = t.id), " +
+                   "updated_at = CURRENT_TIMESTAMP " +
+                   "WHERE t.updated_at < :cutoff AND t.file_count <> " +
+                   "(SELECT COUNT(*) FROM file_tags ft WHERE ft.tag_id = t.id)",
+           nativeQuery = true)
+    int reconcileFileCounts(@Param("cutoff") LocalDateTime cutoff);
+}
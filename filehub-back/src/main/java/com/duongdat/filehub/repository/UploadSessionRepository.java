@@ -0,0 +1,68 @@
+package com.duongdat.filehub.repository;
+
+import com.duongdat.filehub.entity.UploadSession;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    
+    Optional<UploadSession> findByIdAndUploaderId(String id, Long uploaderId);
+    
+    List<UploadSession> findByExpiresAtBefore(LocalDateTime cutoff);
+    
+    /**
+     * Atomically move a session from one status to another; returns 0 if another request got there first
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.status = :newStatus, s.updatedAt = CURRENT_TIMESTAMP WHERE s.id = :id AND s.status = :expectedStatus")
+    int transitionStatus(@Param("id") String id,
+                         @Param("expectedStatus") String expectedStatus,
+                         @Param("newStatus") String newStatus);
+    
+    /**
+     * Move every session left in one status since before the cutoff to another, e.g. completions abandoned by a crash
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.status = :newStatus, s.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE s.status = :expectedStatus AND s.updatedAt < :cutoff")
+    int transitionStaleStatus(@Param("expectedStatus") String expectedStatus,
+                              @Param("newStatus") String newStatus,
+                              @Param("cutoff") LocalDateTime cutoff);
+    
+    /**
+     * Record the file an assembling session was stored as; returns 0 if the completion was reset as abandoned meanwhile
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.status = 'COMPLETED', s.fileId = :fileId, s.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE s.id = :id AND s.status = 'ASSEMBLING'")
+    int markCompleted(@Param("id") String id, @Param("fileId") Long fileId);
+    
+    /**
+     * Push back the expiry of a session that is still receiving chunks
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE UploadSession s SET s.expiresAt = :expiresAt, s.updatedAt = CURRENT_TIMESTAMP " +
+           "WHERE s.id = :id AND s.status = 'ACTIVE'")
+    int extendExpiry(@Param("id") String id, @Param("expiresAt") LocalDateTime expiresAt);
+    
+    /**
+     * Delete a session that is still expired and not being completed; returns 0 if it was extended or claimed meanwhile
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UploadSession s WHERE s.id = :id AND s.expiresAt < :now AND s.status <> 'ASSEMBLING'")
+    int deleteIfExpired(@Param("id") String id, @Param("now") LocalDateTime now);
+}
@@ -28,15 +28,18 @@ public class AiChatService {
     private final FileService fileService;
     private final GeminiProperties geminiProperties;
     private final SecurityUtil securityUtil;
+    private final TagService tagService;
     private final RestTemplate restTemplate;
     private final ObjectMapper objectMapper = new ObjectMapper();
     
     private static final String GEMINI_API_URL = "https://generativelanguage.googleapis.com/v1beta/models/{model}:generateContent";
 
-    public AiChatService(FileService fileService, GeminiProperties geminiProperties, SecurityUtil securityUtil, RestTemplateBuilder restTemplateBuilder) {
+    public AiChatService(FileService fileService, GeminiProperties geminiProperties, SecurityUtil securityUtil,
+                         TagService tagService, RestTemplateBuilder restTemplateBuilder) {
         this.fileService = fileService;
         this.geminiProperties = geminiProperties;
         this.securityUtil = securityUtil;
+        this.tagService = tagService;
         this.restTemplate = restTemplateBuilder
                 .connectTimeout(Duration.ofSeconds(30))
                 .readTimeout(Duration.ofSeconds(60))
@@ -137,7 +140,7 @@ public class AiChatService {
             
             // Get shared files (the main source for AI chat)
             PageResponse<FileResponse> filesPage = fileService.getSharedFiles(
-                    userId, filename, null, null, null, null, null, 
+                    userId, filename, null, null, null, null, null, null, null,
                     0, 20, // Get more files for better scoring
                     "uploadedAt", "DESC"
             );
@@ -193,9 +196,13 @@ public class AiChatService {
      * Score files based on relevance to keywords and intent
      */
     private List<AiChatResponse.FileSuggestion> scoreFiles(List<FileResponse> files, List<String> keywords, ChatIntent intent) {
+        // Tags of all candidates from the tag store in one query
+        Map<Long, Set<String>> tagsByFile = tagService.getTagNames(
+                files.stream().map(FileResponse::getId).collect(Collectors.toList()));
         return files.stream()
                 .map(file -> {
-                    double score = calculateRelevanceScore(file, keywords, intent);
+                    Set<String> tagTerms = tagTerms(tagsByFile.getOrDefault(file.getId(), Collections.emptySet()));
+                    double score = calculateRelevanceScore(file, keywords, intent, tagTerms);
                     String reason = generateReason(file, keywords, intent, score);
                     return new AiChatResponse.FileSuggestion(file, score, reason);
                 })
@@ -207,7 +214,7 @@ public class AiChatService {
     /**
      * Calculate relevance score for a file
      */
-    private double calculateRelevanceScore(FileResponse file, List<String> keywords, ChatIntent intent) {
+    private double calculateRelevanceScore(FileResponse file, List<String> keywords, ChatIntent intent, Set<String> tagTerms) {
         double score = 0.0;
 
         // Base score for all files
@@ -232,12 +239,9 @@ public class AiChatService {
         }
 
         // Score based on tags match
-        if (file.getTags() != null && !file.getTags().isEmpty()) {
-            String allTags = String.join(" ", file.getTags()).toLowerCase();
-            for (String keyword : keywords) {
-                if (allTags.contains(keyword.toLowerCase())) {
-                    score += 0.2;
-                }
+        for (String keyword : keywords) {
+            if (tagTerms.contains(keyword.toLowerCase())) {
+                score += 0.2;
             }
         }
 
@@ -276,6 +280,17 @@ public class AiChatService {
         return Math.min(1.0, score); // Cap at 1.0
     }
 
+    /**
+     * Normalized tags plus the words of multi-word tags, so a keyword matches "annual report" as well as "report"
+     */
+    private Set<String> tagTerms(Set<String> tags) {
+        Set<String> terms = new HashSet<>(tags);
+        for (String tag : tags) {
+            terms.addAll(Arrays.asList(tag.split("[\\s_-]+")));
+        }
+        return terms;
+    }
+
     /**
      * Generate reason for why a file was suggested
      */
@@ -0,0 +1,331 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.dto.request.FileAnalysisRequest;
+import com.duongdat.filehub.dto.response.AnalysisJobResponse;
+import com.duongdat.filehub.dto.response.FileAnalysisResponse;
+import com.duongdat.filehub.entity.AnalysisJob;
+import com.duongdat.filehub.entity.File;
+import com.duongdat.filehub.repository.AnalysisJobRepository;
+import com.duongdat.filehub.repository.FileRepository;
+import com.duongdat.filehub.util.SecurityUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs Gemini analysis out of band from uploads.
+ * Jobs are persisted in analysis_jobs so they survive restarts; a dispatcher claims queued jobs
+ * and hands them to a fixed-size worker pool, and clients poll or subscribe for the result.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AnalysisJobService {
+    
+    private static final String STATUS_QUEUED = "QUEUED";
+    private static final String STATUS_DONE = "DONE";
+    private static final String STATUS_FAILED = "FAILED";
+    
+    private final AnalysisJobRepository analysisJobRepository;
+    private final FileRepository fileRepository;
+    private final GeminiAnalysisService geminiAnalysisService;
+    private final GoogleDriveService googleDriveService;
+    private final UploadStagingService uploadStagingService;
+    private final UserAuthorizationService userAuthorizationService;
+    private final TagService tagService;
+    private final FileSearchIndex fileSearchIndex;
+    private final SecurityUtil securityUtil;
+    private final ObjectMapper objectMapper;
+    
+    private final ThreadPoolTaskExecutor analysisExecutor; // Resolved by name, see ExecutorConfig
+    
+    private final String instanceId = UUID.randomUUID().toString(); // Owner of the jobs claimed by this process
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<Long, List<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+    
+    @Value("${ai.analysis.workers:2}")
+    private int workers;
+    
+    @Value("${ai.analysis.max-attempts:3}")
+    private int maxAttempts;
+    
+    @Value("${ai.analysis.sse-timeout-ms:300000}")
+    private long sseTimeoutMs;
+    
+    @Value("${ai.analysis.stale-after-ms:120000}") // Running jobs without a heartbeat for this long are requeued
+    private long staleAfterMs;
+    
+    @Value("${ai.analysis.retry-delay-ms:60000}") // Multiplied by the attempt number before a failed job is retried
+    private long retryDelayMs;
+    
+    /**
+     * Record a queued analysis job for a stored file and wake the dispatcher
+     */
+    public AnalysisJob enqueue(Long fileId, Long requestedBy, FileAnalysisRequest context) {
+        AnalysisJob job = new AnalysisJob();
+        job.setFileId(fileId);
+        job.setRequestedBy(requestedBy);
+        job.setStatus(STATUS_QUEUED);
+        job.setDepartmentId(context.getDepartmentId());
+        job.setProjectId(context.getProjectId());
+        job.setTitle(context.getTitle());
+        job.setDescription(context.getDescription());
+        job = analysisJobRepository.save(job);
+        log.info("Queued AI analysis job {} for file {}", job.getId(), fileId);
+        
+        dispatch();
+        return job;
+    }
+    
+    public AnalysisJobResponse getJob(Long jobId) {
+        return toResponse(findAccessibleJob(jobId));
+    }
+    
+    /**
+     * Subscribe to a job's completion. The emitter is registered before the status is checked
+     * so a job finishing in between is still delivered.
+     */
+    public SseEmitter subscribe(Long jobId) {
+        AnalysisJob job = findAccessibleJob(jobId);
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        
+        List<SseEmitter> emitters = subscribers.computeIfAbsent(jobId, id -> new CopyOnWriteArrayList<>());
+        emitters.add(emitter);
+        Runnable unregister = () -> emitters.remove(emitter);
+        emitter.onCompletion(unregister);
+        emitter.onTimeout(unregister);
+        emitter.onError(e -> unregister.run());
+        
+        AnalysisJob current = analysisJobRepository.findById(job.getId()).orElse(job);
+        if (isFinished(current)) {
+            send(emitter, toResponse(current));
+        } else {
+            try {
+                emitter.send(SseEmitter.event().name("status").data(toResponse(current)));
+            } catch (IOException e) {
+                emitter.completeWithError(e);
+            }
+        }
+        return emitter;
+    }
+    
+    /**
+     * Claim queued jobs while the worker pool has free slots
+     */
+    @Scheduled(fixedDelayString = "${ai.analysis.poll-interval-ms:5000}")
+    public synchronized void dispatch() {
+        int freeSlots = workers - inFlight.get();
+        if (freeSlots <= 0) {
+            return;
+        }
+        
+        List<Long> queued = analysisJobRepository.findQueuedJobIds(PageRequest.of(0, freeSlots));
+        for (Long jobId : queued) {
+            if (analysisJobRepository.claimJob(jobId, instanceId) == 0) {
+                continue; // Claimed elsewhere
+            }
+            inFlight.incrementAndGet();
+            try {
+                analysisExecutor.execute(() -> {
+                    try {
+                        runJob(jobId);
+                    } finally {
+                        inFlight.decrementAndGet();
+                        dispatch(); // Take the next queued job now rather than at the next poll
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                inFlight.decrementAndGet();
+                analysisJobRepository.unclaimJob(jobId, instanceId);
+                log.warn("Analysis worker pool rejected job {}, left queued", jobId);
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Jobs left RUNNING by a stopped process never finish; put them back on the queue once their heartbeat is stale.
+     * Jobs running on other live instances keep their heartbeat and are left alone.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverInterruptedJobs() {
+        requeueStaleJobs();
+        dispatch();
+    }
+    
+    /**
+     * Keep this instance's running jobs alive and recover jobs abandoned by instances that stopped
+     */
+    @Scheduled(fixedDelayString = "${ai.analysis.heartbeat-interval-ms:30000}", scheduler = "heartbeatScheduler")
+    public void heartbeat() {
+        if (inFlight.get() > 0) {
+            analysisJobRepository.heartbeat(instanceId);
+        }
+        if (requeueStaleJobs() > 0) {
+            dispatch();
+        }
+    }
+    
+    private int requeueStaleJobs() {
+        int requeued = analysisJobRepository.requeueStaleJobs(LocalDateTime.now().minus(staleAfterMs, ChronoUnit.MILLIS));
+        if (requeued > 0) {
+            log.info("Requeued {} interrupted AI analysis jobs", requeued);
+        }
+        return requeued;
+    }
+    
+    /**
+     * Run a claimed job. Its outcome is only written while this instance still owns the job: if the job was requeued
+     * meanwhile (e.g. after a missed heartbeat) and claimed by another worker, that worker's run is left untouched.
+     */
+    private void runJob(Long jobId) {
+        AnalysisJob job = analysisJobRepository.findById(jobId).orElse(null);
+        if (job == null) {
+            return;
+        }
+        
+        File file = fileRepository.findById(job.getFileId())
+                .filter(f -> !Boolean.TRUE.equals(f.getIsDeleted()))
+                .orElse(null);
+        if (file == null) {
+            finish(jobId, STATUS_FAILED, null, "File not found");
+            return;
+        }
+        
+        Path tempFile = null;
+        try {            
+            Path contentPath = file.getFilePath() != null ? Paths.get(file.getFilePath()) : null;
+            if (contentPath == null || !Files.exists(contentPath)) {
+                if (file.getDriveFileId() == null) {
+                    throw new RuntimeException("File not found in any storage location");
+                }
+                tempFile = Files.createTempFile(uploadStagingService.getStagingPath(), "analysis-", ".part");
+                try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                    googleDriveService.downloadFile(file.getDriveFileId(), outputStream);
+                }
+                contentPath = tempFile;
+            }
+            
+            FileAnalysisRequest analysisRequest = new FileAnalysisRequest();
+            analysisRequest.setFileName(file.getOriginalFilename());
+            analysisRequest.setFilePath(contentPath);
+            analysisRequest.setContentType(file.getContentType());
+            analysisRequest.setFileSize(file.getFileSize());
+            analysisRequest.setDepartmentId(job.getDepartmentId());
+            analysisRequest.setProjectId(job.getProjectId());
+            analysisRequest.setTitle(job.getTitle());
+            analysisRequest.setDescription(job.getDescription());
+            
+            FileAnalysisResponse result = geminiAnalysisService.analyzeFile(analysisRequest);
+            if (finish(jobId, STATUS_DONE, objectMapper.writeValueAsString(result), null)) {
+                tagService.addTags(file.getId(), result.getTags(), TagService.SOURCE_AI);
+                fileSearchIndex.index(file); // Make the suggested tags searchable
+                log.info("AI analysis job {} completed for file {}", jobId, job.getFileId());
+            }
+        } catch (Exception e) {
+            int attempts = job.getAttempts() != null ? job.getAttempts() : 1;
+            if (attempts < maxAttempts) {
+                LocalDateTime nextAttemptAt = LocalDateTime.now().plus(retryDelayMs * attempts, ChronoUnit.MILLIS);
+                if (analysisJobRepository.retryJob(jobId, instanceId, e.getMessage(), nextAttemptAt) > 0) {
+                    log.warn("AI analysis job {} failed (attempt {}/{}), retry at {}: {}", jobId, attempts, maxAttempts,
+                            nextAttemptAt, e.getMessage());
+                } else {
+                    log.info("AI analysis job {} was taken over by another worker, dropping its failure", jobId);
+                }
+            } else if (finish(jobId, STATUS_FAILED, null, e.getMessage())) {
+                log.warn("AI analysis job {} failed: {}", jobId, e.getMessage());
+            }
+        } finally {
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException e) {
+                    log.warn("Failed to remove analysis temp file {}: {}", tempFile, e.getMessage());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Record a final outcome and notify subscribers; false if the job no longer belongs to this instance
+     */
+    private boolean finish(Long jobId, String status, String result, String errorMessage) {
+        if (analysisJobRepository.finishJob(jobId, instanceId, status, result, errorMessage) == 0) {
+            log.info("AI analysis job {} was taken over by another worker, dropping its outcome", jobId);
+            return false;
+        }
+        analysisJobRepository.findById(jobId).ifPresent(this::notifySubscribers);
+        return true;
+    }
+    
+    private AnalysisJob findAccessibleJob(Long jobId) {
+        Long userId = securityUtil.getCurrentUserId()
+                .orElseThrow(() -> new RuntimeException("User not authenticated"));
+        
+        AnalysisJob job = analysisJobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Analysis job not found"));
+        
+        if (!job.getRequestedBy().equals(userId) && !userAuthorizationService.isUserAdmin(userId)) {
+            throw new RuntimeException("Analysis job not found");
+        }
+        return job;
+    }
+    
+    private void notifySubscribers(AnalysisJob job) {
+        List<SseEmitter> emitters = subscribers.remove(job.getId());
+        if (emitters == null) {
+            return;
+        }
+        AnalysisJobResponse response = toResponse(job);
+        emitters.forEach(emitter -> send(emitter, response));
+    }
+    
+    private void send(SseEmitter emitter, AnalysisJobResponse response) {
+        try {
+            emitter.send(SseEmitter.event().name("result").data(response));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+    }
+    
+    private boolean isFinished(AnalysisJob job) {
+        return STATUS_DONE.equals(job.getStatus()) || STATUS_FAILED.equals(job.getStatus());
+    }
+    
+    private AnalysisJobResponse toResponse(AnalysisJob job) {
+        FileAnalysisResponse result = null;
+        if (job.getResult() != null) {
+            try {
+                result = objectMapper.readValue(job.getResult(), FileAnalysisResponse.class);
+            } catch (IOException e) {
+                log.warn("Failed to read stored result of analysis job {}: {}", job.getId(), e.getMessage());
+            }
+        }
+        return new AnalysisJobResponse(job.getId(), job.getFileId(), job.getStatus(), result,
+                job.getErrorMessage(), job.getCreatedAt(), job.getStartedAt(), job.getCompletedAt());
+    }
+}
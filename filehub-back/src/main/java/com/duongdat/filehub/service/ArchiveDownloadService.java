@@ -0,0 +1,180 @@
+package com.duongdat.filehub.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams several files to the client as one ZIP archive, built while it is sent.
+ * The next few entries are fetched from storage into staging files in parallel while the current one is
+ * written, so storage latency overlaps with the transfer; at most the lookahead is ever held on disk.
+ * Content that is already compressed is stored as is instead of being deflated again.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ArchiveDownloadService {
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = Set.of(
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst",
+            "jpg", "jpeg", "png", "gif", "webp", "heic",
+            "mp3", "m4a", "aac", "ogg", "opus", "flac",
+            "mp4", "m4v", "mov", "mkv", "webm", "avi",
+            "pdf", "docx", "xlsx", "pptx", "odt", "ods", "odp", "epub", "jar", "apk");
+
+    private final FileService fileService;
+    private final UploadStagingService uploadStagingService;
+    private final ThreadPoolTaskExecutor archiveExecutor; // Resolved by name, see ExecutorConfig
+
+    @Value("${file.download.archive.prefetch:4}") // Entries fetched ahead of the one being written
+    private int prefetch;
+
+    /**
+     * Write a ZIP of the given (already authorized) downloads. Entries whose content cannot be read are
+     * skipped and listed in a final MISSING_FILES.txt entry, since the response status has already been sent.
+     */
+    public void writeArchive(List<FileDownload> downloads, OutputStream outputStream) throws IOException {
+        Iterator<FileDownload> pending = downloads.iterator();
+        Deque<CompletableFuture<PrefetchedEntry>> ahead = new ArrayDeque<>();
+        Set<String> usedNames = new HashSet<>();
+        List<String> missing = new ArrayList<>();
+
+        try {
+            ZipOutputStream zip = new ZipOutputStream(outputStream, StandardCharsets.UTF_8);
+            while (ahead.size() < Math.max(1, prefetch) && pending.hasNext()) {
+                ahead.add(prefetch(pending.next()));
+            }
+            while (!ahead.isEmpty()) {
+                CompletableFuture<PrefetchedEntry> next = ahead.poll();
+                if (pending.hasNext()) {
+                    ahead.add(prefetch(pending.next()));
+                }
+
+                PrefetchedEntry entry;
+                try {
+                    entry = next.join();
+                } catch (CompletionException e) {
+                    log.warn("Skipping archive entry: {}", e.getCause().getMessage());
+                    missing.add(e.getCause().getMessage());
+                    continue;
+                }
+                try {
+                    writeEntry(zip, entry, uniqueName(entry.download().getOriginalFilename(), usedNames));
+                } finally {
+                    Files.deleteIfExists(entry.content());
+                }
+            }
+
+            if (!missing.isEmpty()) {
+                zip.putNextEntry(new ZipEntry(uniqueName("MISSING_FILES.txt", usedNames)));
+                zip.write(String.join("\n", missing).getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            zip.finish();
+            zip.flush();
+        } finally {
+            // Client gone or storage failed: staging files of entries still in flight are removed once fetched
+            for (CompletableFuture<PrefetchedEntry> future : ahead) {
+                future.thenAccept(entry -> deleteQuietly(entry.content()));
+            }
+        }
+    }
+
+    private CompletableFuture<PrefetchedEntry> prefetch(FileDownload download) {
+        return CompletableFuture.supplyAsync(() -> {
+            Path content = null;
+            CRC32 crc = new CRC32();
+            try {
+                content = Files.createTempFile(uploadStagingService.getStagingPath(), "archive-", ".tmp");
+                try (OutputStream outputStream = new CheckedOutputStream(new BufferedOutputStream(Files.newOutputStream(content)), crc)) {
+                    fileService.writeContent(download, outputStream);
+                }
+                return new PrefetchedEntry(download, content, crc.getValue());
+            } catch (IOException | RuntimeException e) {
+                if (content != null) {
+                    deleteQuietly(content);
+                }
+                throw new RuntimeException(download.getOriginalFilename() + " (id " + download.getFileId() + "): " + e.getMessage(), e);
+            }
+        }, archiveExecutor);
+    }
+
+    private void writeEntry(ZipOutputStream zip, PrefetchedEntry entry, String name) throws IOException {
+        ZipEntry zipEntry = new ZipEntry(name);
+        long size = Files.size(entry.content());
+        if (isCompressed(entry.download())) {
+            // STORED entries need their size and CRC up front, which the prefetch has already worked out
+            zipEntry.setMethod(ZipEntry.STORED);
+            zipEntry.setSize(size);
+            zipEntry.setCompressedSize(size);
+            zipEntry.setCrc(entry.crc());
+        }
+        if (entry.download().getLastModified() != null) {
+            zipEntry.setLastModifiedTime(FileTime.from(entry.download().getLastModified()));
+        }
+        zip.putNextEntry(zipEntry);
+        Files.copy(entry.content(), zip);
+        zip.closeEntry();
+    }
+
+    private boolean isCompressed(FileDownload download) {
+        String contentType = download.getContentType() != null ? download.getContentType().toLowerCase(Locale.ROOT) : "";
+        if (contentType.startsWith("video/") || contentType.startsWith("audio/")
+                || contentType.equals("image/jpeg") || contentType.equals("image/png")) {
+            return true;
+        }
+        String filename = download.getOriginalFilename() != null ? download.getOriginalFilename() : "";
+        int dot = filename.lastIndexOf('.');
+        return dot >= 0 && COMPRESSED_EXTENSIONS.contains(filename.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Flat entry names: path separators are replaced and repeated names get a " (n)" suffix
+     */
+    private String uniqueName(String filename, Set<String> usedNames) {
+        String name = filename == null || filename.isBlank() ? "file" : filename.replaceAll("[/\\\\]", "_");
+        String candidate = name;
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        String extension = dot > 0 ? name.substring(dot) : "";
+        for (int i = 2; !usedNames.add(candidate.toLowerCase(Locale.ROOT)); i++) {
+            candidate = base + " (" + i + ")" + extension;
+        }
+        return candidate;
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete archive staging file {}: {}", path, e.getMessage());
+        }
+    }
+
+    private record PrefetchedEntry(FileDownload download, Path content, long crc) {
+    }
+}
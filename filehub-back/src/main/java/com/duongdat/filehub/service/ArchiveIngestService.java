@@ -0,0 +1,270 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.dto.request.FileUploadRequest;
+import com.duongdat.filehub.dto.response.BatchUploadItemResult;
+import com.duongdat.filehub.dto.response.BatchUploadResponse;
+import com.duongdat.filehub.util.SecurityUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.ArchiveEntry;
+import org.apache.commons.compress.archivers.ArchiveInputStream;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Expands an uploaded ZIP or TAR archive into individual files.
+ * The archive is read as a stream, entry by entry; entries are staged (and hashed) as they are read
+ * and stored in small parallel windows, so neither memory nor staging space grows with the archive.
+ * Entry count and total expanded size are capped to protect against zip bombs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ArchiveIngestService {
+    
+    private final FileService fileService;
+    private final UploadStagingService uploadStagingService;
+    private final SecurityUtil securityUtil;
+    
+    @Value("${file.upload.archive.max-entries:1000}")
+    private int maxEntries;
+    
+    @Value("${file.upload.archive.max-expanded-size:2147483648}") // 2GB default
+    private long maxExpandedSize;
+    
+    @Value("${file.upload.archive.window-size:8}") // Entries staged before a window is stored in parallel
+    private int windowSize;
+    
+    public BatchUploadResponse ingest(MultipartFile archive, FileUploadRequest request) throws IOException {
+        Long userId = securityUtil.getCurrentUserId()
+                .orElseThrow(() -> new RuntimeException("User not authenticated"));
+        
+        // Validate required fields and upload permissions once for every entry
+        fileService.validateUploadPreconditions(request, 0);
+        
+        List<BatchUploadItemResult> results = new ArrayList<>();
+        List<StagedUpload> window = new ArrayList<>();
+        List<Integer> windowIndexes = new ArrayList<>();
+        
+        ExpansionBudget budget = new ExpansionBudget(maxExpandedSize);
+        try (ArchiveInputStream entries = openArchive(archive.getOriginalFilename(), archive.getInputStream())) {
+            ArchiveEntry entry;
+            int entryCount = 0;
+            while ((entry = entries.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                
+                String filename = baseName(entry.getName());
+                // Ignored entries count too, or an archive of metadata entries would bypass the limit
+                if (++entryCount > maxEntries) {
+                    results.add(BatchUploadItemResult.failure(results.size(), filename,
+                            "Archive has more than " + maxEntries + " files, remaining entries were skipped"));
+                    break;
+                }
+                if (!entries.canReadEntryData(entry)) {
+                    continue; // Skipped without being decompressed
+                }
+                // The archive stream is positioned at this entry's data and ends with it
+                InputStream entryData = new ExpansionLimitInputStream(entries, budget);
+                if (isIgnoredEntry(entry.getName())) {
+                    drain(entryData);
+                    continue;
+                }
+                
+                int index = results.size();
+                String contentType = MediaTypeFactory.getMediaType(filename)
+                        .orElse(MediaType.APPLICATION_OCTET_STREAM).toString();
+                try {
+                    window.add(uploadStagingService.stage(entryData, filename, contentType));
+                    windowIndexes.add(index);
+                    results.add(null); // Filled in when the window is stored
+                } catch (ExpansionLimitExceededException e) {
+                    results.add(BatchUploadItemResult.failure(index, filename, e.getMessage()));
+                    break;
+                } catch (IOException | RuntimeException e) {
+                    results.add(BatchUploadItemResult.failure(index, filename, e.getMessage()));
+                    drain(entryData);
+                }
+                
+                if (window.size() >= windowSize) {
+                    storeWindow(window, windowIndexes, request, userId, results);
+                }
+            }
+            storeWindow(window, windowIndexes, request, userId, results);
+        } catch (ExpansionLimitExceededException e) {
+            // Raised while skipping entries or reading the archive itself (compressed TAR stream, headers, padding)
+            results.add(BatchUploadItemResult.failure(results.size(), archive.getOriginalFilename(), e.getMessage()));
+            storeWindow(window, windowIndexes, request, userId, results);
+        } finally {
+            window.forEach(StagedUpload::close);
+        }
+        
+        if (results.isEmpty()) {
+            throw new RuntimeException("Archive contains no files");
+        }
+        
+        log.info("Archive {} expanded into {} entries by user {}", archive.getOriginalFilename(), results.size(), userId);
+        return BatchUploadResponse.of(results);
+    }
+    
+    private void storeWindow(List<StagedUpload> window, List<Integer> windowIndexes, FileUploadRequest request,
+                             Long userId, List<BatchUploadItemResult> results) {
+        if (window.isEmpty()) {
+            return;
+        }
+        try {
+            List<BatchUploadItemResult> stored = fileService.storeStagedBatch(window, request, userId);
+            for (int i = 0; i < stored.size(); i++) {
+                int index = windowIndexes.get(i);
+                BatchUploadItemResult result = stored.get(i);
+                result.setIndex(index);
+                results.set(index, result);
+            }
+        } finally {
+            window.forEach(StagedUpload::close);
+            window.clear();
+            windowIndexes.clear();
+        }
+    }
+    
+    /**
+     * Read the rest of an entry that is not stored through the budget, rather than letting the archive skip it:
+     * skipping still inflates compressed data, uncounted
+     */
+    private void drain(InputStream entryData) throws IOException {
+        entryData.transferTo(OutputStream.nullOutputStream());
+    }
+    
+    private ArchiveInputStream openArchive(String filename, InputStream inputStream) throws IOException {
+        String name = filename != null ? filename.toLowerCase() : "";
+        InputStream buffered = new BufferedInputStream(inputStream);
+        if (name.endsWith(".zip")) {
+            return new ZipArchiveInputStream(buffered);
+        }
+        if (name.endsWith(".tar")) {
+            return new TarArchiveInputStream(buffered);
+        }
+        if (name.endsWith(".tar.gz") || name.endsWith(".tgz")) {
+            // Everything gunzipped counts, including headers and data the TAR reader skips; entry bytes are also counted
+            // per entry against a budget of their own, so this one only bounds the decompression itself
+            InputStream expanded = new ExpansionLimitInputStream(new GzipCompressorInputStream(buffered),
+                    new ExpansionBudget(maxExpandedSize), true);
+            return new TarArchiveInputStream(expanded);
+        }
+        throw new RuntimeException("Unsupported archive format. Only ZIP, TAR and TAR.GZ are accepted.");
+    }
+    
+    private boolean isIgnoredEntry(String name) {
+        String baseName = baseName(name);
+        return name.startsWith("__MACOSX/") || baseName.startsWith("._") || baseName.equals(".DS_Store") || baseName.isEmpty();
+    }
+    
+    private String baseName(String entryName) {
+        String name = entryName.replace('\\', '/');
+        if (name.endsWith("/")) {
+            name = name.substring(0, name.length() - 1);
+        }
+        return name.substring(name.lastIndexOf('/') + 1);
+    }
+    
+    /**
+     * Remaining expanded bytes allowed for the whole archive
+     */
+    private static class ExpansionBudget {
+        
+        private final long limit;
+        private long used;
+        
+        ExpansionBudget(long limit) {
+            this.limit = limit;
+        }
+        
+        void consume(long bytes) throws ExpansionLimitExceededException {
+            used += bytes;
+            if (used > limit) {
+                throw new ExpansionLimitExceededException("Archive exceeds the maximum expanded size of " + limit + " bytes");
+            }
+        }
+    }
+    
+    /**
+     * Counts decompressed bytes as they are read, so the limit holds no matter what entry headers claim.
+     * Unless it owns its input, closing it leaves the archive stream open for the next entry.
+     */
+    private static class ExpansionLimitInputStream extends FilterInputStream {
+        
+        private final ExpansionBudget budget;
+        private final boolean ownsInput;
+        
+        ExpansionLimitInputStream(InputStream in, ExpansionBudget budget) {
+            this(in, budget, false);
+        }
+        
+        ExpansionLimitInputStream(InputStream in, ExpansionBudget budget, boolean ownsInput) {
+            super(in);
+            this.budget = budget;
+            this.ownsInput = ownsInput;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (ownsInput) {
+                super.close();
+            }
+        }
+        
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes are decompressed all the same
+            byte[] buffer = new byte[(int) Math.min(n, 8192)];
+            long skipped = 0;
+            while (skipped < n) {
+                int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+                if (read < 0) {
+                    break;
+                }
+                skipped += read;
+            }
+            return skipped;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                budget.consume(1);
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int read = super.read(buffer, offset, length);
+            if (read > 0) {
+                budget.consume(read);
+            }
+            return read;
+        }
+    }
+    
+    private static class ExpansionLimitExceededException extends IOException {
+        ExpansionLimitExceededException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,576 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.entity.File;
+import com.duongdat.filehub.entity.FileBlob;
+import com.duongdat.filehub.repository.FileBlobRepository;
+import com.duongdat.filehub.repository.FileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Content-addressable byte store.
+ * Content is written to primary/fallback storage once per SHA-256 hash; further uploads of the same
+ * bytes only take another reference. Blobs whose reference count drops to zero are reclaimed in the background.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BlobStoreService {
+    
+    private final FileBlobRepository fileBlobRepository;
+    private final FileRepository fileRepository;
+    private final GoogleDriveService googleDriveService;
+    private final LocalStorageLayout localStorageLayout;
+    private final StorageJournal storageJournal;
+    private final RenditionService renditionService;
+    private final ThreadPoolTaskExecutor storageExecutor; // Resolved by name, see ExecutorConfig
+    private final ThreadPoolTaskExecutor maintenanceExecutor; // Resolved by name, see ExecutorConfig
+    
+    private final AtomicBoolean reclaiming = new AtomicBoolean();
+    
+    @Value("${file.storage.primary:google-drive}")
+    private String primaryStorage;
+    
+    @Value("${file.storage.fallback:local}")
+    private String fallbackStorage;
+    
+    @Value("${file.storage.write-quorum:all}") // "first" returns after the first durable write, "all" waits for every target
+    private String writeQuorum;
+    
+    @Value("${file.storage.retry-attempts:3}")
+    private int retryAttempts;
+    
+    @Value("${file.storage.retry-delay-ms:5000}")
+    private long retryDelayMs;
+    
+    @Value("${file.blob.reclaim-grace-minutes:60}")
+    private long reclaimGraceMinutes;
+    
+    @Value("${file.blob.reclaim-batch-size:200}") // Blobs deleted per maintenance task; a backlog continues in further tasks
+    private int reclaimBatchSize;
+    
+    /**
+     * Take a reference on the blob for this hash if the content is already stored
+     */
+    public Optional<FileBlob> acquire(String fileHash) {
+        return acquire(fileHash, 1);
+    }
+    
+    /**
+     * Take several references at once, e.g. for identical files in one batch
+     */
+    public Optional<FileBlob> acquire(String fileHash, int references) {
+        if (fileBlobRepository.acquire(fileHash, references) == 0) {
+            return Optional.empty();
+        }
+        return fileBlobRepository.findByFileHash(fileHash);
+    }
+    
+    /**
+     * Take a reference on the content of an existing file.
+     * Files stored before blobs were introduced get a blob adopted for them first, owning their existing reference.
+     */
+    public FileBlob acquireFor(File file) {
+        return acquire(file.getFileHash())
+                .or(() -> adoptExisting(file.getFileHash(), 1))
+                .orElseThrow(() -> new RuntimeException("File is being processed, please try again"));
+    }
+    
+    /**
+     * Return a referenced blob for the staged content, writing it to storage only if no blob exists yet.
+     * Storage targets are written concurrently; the call returns once the configured write quorum is met
+     * and the locations written so far are saved with the blob. Writes that finish later are recorded afterwards.
+     * Every copy is named in the {@link StorageJournal} before it is created, and local copies are fsynced under a
+     * temporary name and renamed into place only after the blob row has been committed.
+     * The caller owns one reference on the returned blob and must {@link #release} it if it is not used.
+     */
+    public FileBlob store(StagedUpload stagedUpload, String storedFilename) throws IOException {
+        return store(stagedUpload, storedFilename, 1);
+    }
+    
+    /**
+     * Same as {@link #store(StagedUpload, String)} but takes the given number of references on the blob
+     */
+    public FileBlob store(StagedUpload stagedUpload, String storedFilename, int references) throws IOException {
+        String fileHash = stagedUpload.getFileHash();
+        Optional<FileBlob> existing = acquire(fileHash, references);
+        if (existing.isPresent()) {
+            log.info("Content {} already stored, reusing blob {}", fileHash, existing.get().getId());
+            return existing.get();
+        }
+        Optional<FileBlob> adopted = adoptExisting(fileHash, references);
+        if (adopted.isPresent()) {
+            log.info("Content {} already stored by older files, adopted as blob {}", fileHash, adopted.get().getId());
+            return adopted.get();
+        }
+        
+        StorageJournal.Entry intent = storageJournal.begin(fileHash);
+        Map<StorageTarget, StorageWrite> writes = startWrites(stagedUpload, storedFilename, intent);
+        try {
+            awaitQuorum(writes);
+        } catch (IOException e) {
+            discardAll(writes, intent);
+            throw e;
+        }
+        
+        FileBlob blob = new FileBlob();
+        blob.setFileHash(fileHash);
+        blob.setFileSize(stagedUpload.getSize());
+        blob.setContentType(stagedUpload.getContentType());
+        blob.setRefCount(references);
+        writes.forEach((target, write) -> {
+            String location = firstLocation(write);
+            if (location != null) {
+                target.apply(blob, location);
+            }
+        });
+        if (blob.getDriveFileId() == null && blob.getFilePath() == null) {
+            discardAll(writes, intent);
+            throw new IOException("Failed to store file in both primary and fallback storage");
+        }
+        
+        FileBlob saved;
+        try {
+            saved = fileBlobRepository.saveAndFlush(blob);
+        } catch (DataIntegrityViolationException e) {
+            // Another upload of the same content won the insert; drop our copies and share theirs
+            discardAll(writes, intent);
+            return acquire(fileHash, references)
+                    .orElseThrow(() -> new RuntimeException("File is being processed, please try again"));
+        } catch (RuntimeException e) {
+            discardAll(writes, intent);
+            throw e;
+        }
+        
+        // The blob is committed: publish the copies it names, and record targets that complete (or succeed on retry) later
+        List<CompletableFuture<Void>> settled = new ArrayList<>();
+        writes.forEach((target, write) -> {
+            String location = firstLocation(write);
+            if (location != null) {
+                settled.add(CompletableFuture.completedFuture(location).thenAccept(published -> target.publish(this, intent)));
+            } else {
+                settled.add(write.eventual().handle((lateLocation, error) -> {
+                    if (error == null) {
+                        recordLateLocation(saved, target, lateLocation, intent);
+                    } else {
+                        log.error("Giving up storing content {} in {}: {}", fileHash, target, error.getMessage());
+                    }
+                    return null;
+                }));
+            }
+        });
+        closeWhenSettled(settled, intent);
+        return saved;
+    }
+    
+    /**
+     * Create a blob for content stored by files that predate blobs, owning one reference per such file plus the
+     * requested ones. A second copy stored beside theirs would be counted without them, and releasing one of the
+     * older files would then drop a reference of the new copy. Empty if no live file has this content.
+     */
+    private Optional<FileBlob> adoptExisting(String fileHash, int references) {
+        List<File> owners = fileRepository.findByFileHashAndIsDeletedFalse(fileHash);
+        if (owners.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        File owner = owners.get(0);
+        FileBlob blob = new FileBlob();
+        blob.setFileHash(fileHash);
+        blob.setFileSize(owner.getFileSize());
+        blob.setContentType(owner.getContentType());
+        blob.setDriveFileId(owner.getDriveFileId());
+        blob.setFilePath(owner.getFilePath());
+        blob.setRefCount(owners.size() + references);
+        try {
+            return Optional.of(fileBlobRepository.saveAndFlush(blob));
+        } catch (DataIntegrityViolationException e) {
+            // Adopted concurrently
+            return acquire(fileHash, references);
+        }
+    }
+    
+    /**
+     * Copy storage locations their blobs gained after these files were built from them, onto the saved rows.
+     * A write that finishes late only fills the rows that exist at that moment, so a row saved just afterwards would
+     * keep a missing location for good. The blob is updated before rows are filled, so reading it once the rows are
+     * saved cannot miss a late location.
+     */
+    public void copyLateLocations(Collection<File> files) {
+        Map<String, List<File>> incomplete = files.stream()
+                .filter(file -> file.getDriveFileId() == null || file.getFilePath() == null)
+                .collect(Collectors.groupingBy(File::getFileHash));
+        if (incomplete.isEmpty()) {
+            return;
+        }
+        try {
+            for (FileBlob blob : fileBlobRepository.findByFileHashIn(incomplete.keySet())) {
+                List<File> rows = incomplete.get(blob.getFileHash());
+                if (blob.getDriveFileId() != null && rows.stream().anyMatch(file -> file.getDriveFileId() == null)) {
+                    fileRepository.fillDriveFileIdByHash(blob.getFileHash(), blob.getDriveFileId());
+                    rows.stream().filter(file -> file.getDriveFileId() == null).forEach(file -> file.setDriveFileId(blob.getDriveFileId()));
+                }
+                if (blob.getFilePath() != null && rows.stream().anyMatch(file -> file.getFilePath() == null)) {
+                    fileRepository.fillFilePathByHash(blob.getFileHash(), blob.getFilePath());
+                    rows.stream().filter(file -> file.getFilePath() == null).forEach(file -> file.setFilePath(blob.getFilePath()));
+                }
+            }
+        } catch (RuntimeException e) {
+            // The files are stored and readable from the location they were saved with
+            log.warn("Failed to copy late storage locations onto {} files: {}", files.size(), e.getMessage());
+        }
+    }
+    
+    public void release(String fileHash) {
+        release(fileHash, 1);
+    }
+    
+    public void release(String fileHash, int references) {
+        if (fileBlobRepository.release(fileHash, references) == 0) {
+            log.warn("No referenced blob found to release for hash {}", fileHash);
+        }
+    }
+    
+    /**
+     * Remove stored content of blobs that have had no references for the grace period.
+     * Deleting from storage is slow, so the sweep runs on the maintenance thread rather than on the scheduler.
+     */
+    @Scheduled(fixedDelayString = "${file.blob.reclaim-interval-ms:3600000}")
+    public void reclaimUnreferencedBlobs() {
+        if (reclaiming.compareAndSet(false, true)) {
+            maintenanceExecutor.execute(this::reclaimBatch);
+        }
+    }
+    
+    private void reclaimBatch() {
+        boolean more = false;
+        try {
+            LocalDateTime cutoff = LocalDateTime.now().minusMinutes(reclaimGraceMinutes);
+            List<FileBlob> batch = fileBlobRepository.findUnreferencedBefore(cutoff, PageRequest.of(0, reclaimBatchSize));
+            for (FileBlob blob : batch) {
+                if (fileBlobRepository.markReclaiming(blob.getId()) == 0) {
+                    continue; // Referenced again since the scan
+                }
+                deleteContent(blob);
+                renditionService.delete(blob.getFileHash());
+                fileBlobRepository.deleteById(blob.getId());
+                log.info("Reclaimed unreferenced blob {} ({})", blob.getId(), blob.getFileHash());
+            }
+            more = batch.size() == reclaimBatchSize;
+        } catch (RuntimeException e) {
+            log.warn("Reclaiming unreferenced blobs failed: {}", e.getMessage());
+        } finally {
+            if (more) {
+                // Queue the rest behind other maintenance work instead of holding the thread
+                maintenanceExecutor.execute(this::reclaimBatch);
+            } else {
+                reclaiming.set(false);
+            }
+        }
+    }
+    
+    /**
+     * Delete stored content that is not tracked by a blob (files stored before blobs were introduced)
+     */
+    public void deleteContent(String driveFileId, String filePath) {
+        // Delete from primary storage (Google Drive)
+        if (driveFileId != null) {
+            try {
+                boolean driveDeleted = googleDriveService.deleteFile(driveFileId);
+                if (driveDeleted) {
+                    log.info("File deleted from Google Drive (primary): {}", driveFileId);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to delete from Google Drive (primary): {}", e.getMessage());
+            }
+        }
+        
+        // Delete from fallback storage (local) if exists
+        if (filePath != null) {
+            try {
+                Path path = Paths.get(filePath);
+                if (Files.exists(path)) {
+                    Files.delete(path);
+                    log.info("File deleted from local storage (fallback): {}", path);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to delete from local storage: {}", e.getMessage());
+            }
+        }
+    }
+    
+    private void deleteContent(FileBlob blob) {
+        deleteContent(blob.getDriveFileId(), blob.getFilePath());
+    }
+    
+    private Map<StorageTarget, StorageWrite> startWrites(StagedUpload stagedUpload, String storedFilename,
+                                                         StorageJournal.Entry intent) throws IOException {
+        List<StorageTarget> targets = new ArrayList<>();
+        if ("google-drive".equals(primaryStorage)) {
+            targets.add(StorageTarget.GOOGLE_DRIVE);
+        }
+        if (targets.isEmpty() || "local".equals(fallbackStorage)) {
+            targets.add(StorageTarget.LOCAL);
+        }
+        
+        // Writes and retries may outlive the request, which deletes the staged file when it finishes
+        Path source = retainSource(stagedUpload.getPath());
+        WriteRequest request = new WriteRequest(source, storedFilename, stagedUpload.getContentType(), stagedUpload.getFileHash(), intent);
+        
+        Map<StorageTarget, StorageWrite> writes = new EnumMap<>(StorageTarget.class);
+        for (StorageTarget target : targets) {
+            CompletableFuture<String> firstAttempt = CompletableFuture.supplyAsync(
+                    () -> writeTo(target, request), storageExecutor);
+            CompletableFuture<String> eventual = firstAttempt
+                    .handle((location, error) -> error == null
+                            ? CompletableFuture.completedFuture(location)
+                            : retryWrite(target, request, 1, error))
+                    .thenCompose(Function.identity());
+            writes.put(target, new StorageWrite(firstAttempt, eventual));
+        }
+        
+        CompletableFuture.allOf(writes.values().stream().map(StorageWrite::eventual).toArray(CompletableFuture[]::new))
+                .whenComplete((result, error) -> deleteQuietly(source));
+        return writes;
+    }
+    
+    /**
+     * Block until one write has succeeded ("first") or every first attempt has finished ("all")
+     */
+    private void awaitQuorum(Map<StorageTarget, StorageWrite> writes) throws IOException {
+        List<CompletableFuture<String>> attempts = writes.values().stream().map(StorageWrite::firstAttempt).toList();
+        CompletableFuture<Void> allSettled = CompletableFuture.allOf(attempts.stream()
+                .map(attempt -> attempt.exceptionally(error -> null))
+                .toArray(CompletableFuture[]::new));
+        
+        CompletableFuture<?> quorum = allSettled;
+        if ("first".equalsIgnoreCase(writeQuorum)) {
+            CompletableFuture<Void> firstSuccess = new CompletableFuture<>();
+            attempts.forEach(attempt -> attempt.thenRun(() -> firstSuccess.complete(null)));
+            quorum = CompletableFuture.anyOf(firstSuccess, allSettled);
+        }
+        
+        try {
+            quorum.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while storing file", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to store file: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+    
+    /**
+     * Location written by a target's first attempt; null if that attempt failed or has not finished yet
+     */
+    private static String firstLocation(StorageWrite write) {
+        return write.firstAttempt().handle((location, error) -> error == null ? location : null).getNow(null);
+    }
+    
+    private CompletableFuture<String> retryWrite(StorageTarget target, WriteRequest request, int attempt, Throwable lastError) {
+        if (attempt > retryAttempts) {
+            return CompletableFuture.failedFuture(lastError);
+        }
+        log.warn("Storing {} in {} failed, retry {}/{} scheduled: {}", request.storedFilename(), target, attempt, retryAttempts,
+                lastError.getMessage());
+        
+        Executor delayed = CompletableFuture.delayedExecutor(retryDelayMs * attempt, TimeUnit.MILLISECONDS, storageExecutor);
+        return CompletableFuture.supplyAsync(() -> writeTo(target, request), delayed)
+                .handle((location, error) -> error == null
+                        ? CompletableFuture.completedFuture(location)
+                        : retryWrite(target, request, attempt + 1, error))
+                .thenCompose(Function.identity());
+    }
+    
+    private String writeTo(StorageTarget target, WriteRequest request) {
+        try {
+            if (target == StorageTarget.GOOGLE_DRIVE) {
+                String driveFileId = googleDriveService.uploadFile(request.source(), request.storedFilename(), request.contentType());
+                if (driveFileId == null) {
+                    throw new IOException("Google Drive returned no file ID");
+                }
+                request.intent().recordDrive(driveFileId);
+                log.info("File uploaded to Google Drive (primary): {}", driveFileId);
+                return driveFileId;
+            }
+            
+            // Content-addressed placement: identical bytes always land on the same name, once the blob is committed
+            Path filePath = localStorageLayout.placeNew(request.fileHash(), extensionOf(request.storedFilename()));
+            Path stagedPath = filePath.resolveSibling(filePath.getFileName() + "." + UUID.randomUUID() + ".tmp");
+            request.intent().recordLocal(stagedPath, filePath);
+            try {
+                Files.copy(request.source(), stagedPath, StandardCopyOption.REPLACE_EXISTING);
+                StorageJournal.fsync(stagedPath);
+            } catch (IOException e) {
+                Files.deleteIfExists(stagedPath);
+                throw e;
+            }
+            log.info("File staged locally: {}", stagedPath);
+            return filePath.toString();
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+    
+    /**
+     * Save a location written after the blob was committed: on the blob first, then on file rows saved so far.
+     * Rows saved later pick it up from the blob, see {@link #copyLateLocations}.
+     */
+    private void recordLateLocation(FileBlob blob, StorageTarget target, String location, StorageJournal.Entry intent) {
+        if (fileBlobRepository.existsById(blob.getId())) {
+            if (target == StorageTarget.GOOGLE_DRIVE) {
+                fileBlobRepository.updateDriveFileId(blob.getId(), location);
+                fileRepository.fillDriveFileIdByHash(blob.getFileHash(), location);
+            } else {
+                fileBlobRepository.updateFilePath(blob.getId(), location);
+                fileRepository.fillFilePathByHash(blob.getFileHash(), location);
+            }
+            target.publish(this, intent);
+            log.info("Recorded late {} copy of blob {}: {}", target, blob.getId(), location);
+        } else {
+            // Blob was reclaimed before this copy finished
+            target.discard(this, location, intent);
+        }
+    }
+    
+    /**
+     * Drop every copy of a store that will not be committed, including writes still being retried
+     */
+    private void discardAll(Map<StorageTarget, StorageWrite> writes, StorageJournal.Entry intent) {
+        List<CompletableFuture<Void>> settled = new ArrayList<>();
+        writes.forEach((target, write) -> settled.add(write.eventual().handle((location, error) -> {
+            if (error == null) {
+                target.discard(this, location, intent);
+            }
+            return null;
+        })));
+        closeWhenSettled(settled, intent);
+    }
+    
+    /**
+     * Close the journal entry once every copy is accounted for; if that fails the entry stays for the recovery sweep
+     */
+    private void closeWhenSettled(List<CompletableFuture<Void>> settled, StorageJournal.Entry intent) {
+        CompletableFuture.allOf(settled.toArray(CompletableFuture[]::new)).whenComplete((result, error) -> {
+            if (error == null) {
+                intent.complete();
+            } else {
+                log.error("Storage of content {} not finalized, left for recovery: {}", intent.getFileHash(), error.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Move a committed local copy from its staging name into place
+     */
+    private void publishLocal(StorageJournal.Entry intent) {
+        Path stagedPath = intent.getLocalStaged();
+        Path filePath = intent.getLocalTarget();
+        try {
+            Files.move(stagedPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            StorageJournal.fsyncDirectory(filePath.getParent());
+            log.info("File stored locally: {}", filePath);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+    
+    private Path retainSource(Path stagedPath) throws IOException {
+        Path source = stagedPath.resolveSibling(stagedPath.getFileName() + ".store");
+        try {
+            return Files.createLink(source, stagedPath);
+        } catch (UnsupportedOperationException | IOException e) {
+            return Files.copy(stagedPath, source);
+        }
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to remove storage source {}: {}", path, e.getMessage());
+        }
+    }
+    
+    private enum StorageTarget {
+        GOOGLE_DRIVE {
+            @Override
+            void apply(FileBlob blob, String location) {
+                blob.setDriveFileId(location);
+            }
+            
+            @Override
+            void publish(BlobStoreService store, StorageJournal.Entry intent) {
+                // Uploaded objects are complete as soon as the upload returns
+            }
+            
+            @Override
+            void discard(BlobStoreService store, String location, StorageJournal.Entry intent) {
+                store.deleteContent(location, null);
+            }
+        },
+        LOCAL {
+            @Override
+            void apply(FileBlob blob, String location) {
+                blob.setFilePath(location);
+            }
+            
+            @Override
+            void publish(BlobStoreService store, StorageJournal.Entry intent) {
+                store.publishLocal(intent);
+            }
+            
+            @Override
+            void discard(BlobStoreService store, String location, StorageJournal.Entry intent) {
+                // Never published, so only the staged copy exists; the target name may belong to another blob
+                store.deleteQuietly(intent.getLocalStaged());
+            }
+        };
+        
+        abstract void apply(FileBlob blob, String location);
+        
+        abstract void publish(BlobStoreService store, StorageJournal.Entry intent);
+        
+        abstract void discard(BlobStoreService store, String location, StorageJournal.Entry intent);
+    }
+    
+    private static String extensionOf(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot >= 0 ? filename.substring(dot) : "";
+    }
+    
+    private record WriteRequest(Path source, String storedFilename, String contentType, String fileHash,
+                                StorageJournal.Entry intent) {
+    }
+    
+    private record StorageWrite(CompletableFuture<String> firstAttempt, CompletableFuture<String> eventual) {
+    }
+}
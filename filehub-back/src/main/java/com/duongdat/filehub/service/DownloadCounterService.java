@@ -0,0 +1,89 @@
+package com.duongdat.filehub.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Download counts accumulated in memory and written to the database in periodic batches, so serving
+ * a popular file does not take its row lock on every request.
+ * Counts are lost only if the process dies without shutting down: at most the downloads of one flush
+ * interval (plus any that could not be written on the last attempt). Until a flush, the stored count lags behind.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DownloadCounterService {
+
+    private static final String ADD_DOWNLOADS_SQL =
+            "UPDATE files SET download_count = COALESCE(download_count, 0) + ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final ConcurrentHashMap<Long, LongAdder> counters = new ConcurrentHashMap<>();
+    // Counters dropped from the map on the previous flush, drained once more in case a late increment reached them
+    private List<Map.Entry<Long, LongAdder>> retired = List.of();
+
+    public void record(Long fileId) {
+        counters.computeIfAbsent(fileId, id -> new LongAdder()).increment();
+    }
+
+    @Scheduled(fixedDelayString = "${file.download.counter.flush-interval-ms:5000}")
+    public void scheduledFlush() {
+        flush();
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Write every pending count as one batch of {@code download_count = download_count + ?} updates.
+     * Counters that stayed idle for a whole interval are removed so the map only holds recently downloaded files.
+     * If the batch fails the counts are put back and retried on the next flush.
+     */
+    public synchronized void flush() {
+        List<Object[]> updates = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : retired) {
+            long late = entry.getValue().sumThenReset();
+            if (late > 0) {
+                updates.add(new Object[]{late, entry.getKey()});
+            }
+        }
+
+        List<Map.Entry<Long, LongAdder>> idle = new ArrayList<>();
+        for (Map.Entry<Long, LongAdder> entry : counters.entrySet()) {
+            long pending = entry.getValue().sumThenReset();
+            if (pending > 0) {
+                updates.add(new Object[]{pending, entry.getKey()});
+            } else {
+                idle.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        idle.forEach(entry -> counters.remove(entry.getKey(), entry.getValue()));
+        retired = idle;
+
+        if (updates.isEmpty()) {
+            return;
+        }
+        try {
+            jdbcTemplate.batchUpdate(ADD_DOWNLOADS_SQL, updates);
+            log.debug("Flushed download counts of {} files", updates.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush download counts of {} files, will retry: {}", updates.size(), e.getMessage());
+            for (Object[] update : updates) {
+                counters.computeIfAbsent((Long) update[1], id -> new LongAdder()).add((Long) update[0]);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.duongdat.filehub.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * HMAC-SHA256 signatures for short-lived download links, bound to a file id, its content hash, an expiry
+ * and the content disposition. Verifying one needs no database access.
+ * The downloads that links were issued for are remembered (bounded, least recently used first) so serving
+ * a link usually only needs a liveness check by primary key rather than loading the file row.
+ */
+@Service
+@Slf4j
+public class DownloadUrlSigner {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    @Value("${file.download.signing-key:}") // Shared by all instances; a random per-process key is used when empty
+    private String signingKey;
+
+    @Value("${file.download.signed-url-ttl-seconds:300}")
+    private long ttlSeconds;
+
+    @Value("${file.download.signed-url-cache-size:10000}")
+    private int cacheSize;
+
+    private SecretKeySpec key;
+
+    private final Map<Long, FileDownload> issued = new LinkedHashMap<>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, FileDownload> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    @PostConstruct
+    public void init() {
+        byte[] keyBytes;
+        if (signingKey == null || signingKey.isBlank()) {
+            keyBytes = new byte[32];
+            new SecureRandom().nextBytes(keyBytes);
+            log.warn("No file.download.signing-key configured; signed download links will not survive a restart or work across instances");
+        } else {
+            keyBytes = signingKey.getBytes(StandardCharsets.UTF_8);
+        }
+        key = new SecretKeySpec(keyBytes, ALGORITHM);
+    }
+
+    /**
+     * Sign a link for an authorized download and remember the download for when the link is used
+     */
+    public SignedLink sign(FileDownload download, boolean inline) {
+        long expires = Instant.now().getEpochSecond() + ttlSeconds;
+        String disposition = inline ? "inline" : "attachment";
+        String signature = signature(download.getFileId(), download.getFileHash(), expires, disposition);
+        synchronized (issued) {
+            issued.put(download.getFileId(), download);
+        }
+        return new SignedLink(download.getFileId(), download.getFileHash(), expires, disposition, signature);
+    }
+
+    /**
+     * Check a link's signature (in constant time) and that it has not expired
+     */
+    public boolean verify(Long fileId, String fileHash, long expires, String disposition, String signature) {
+        if (fileId == null || fileHash == null || disposition == null || signature == null
+                || expires < Instant.now().getEpochSecond()) {
+            return false;
+        }
+        String expected = signature(fileId, fileHash, expires, disposition);
+        return MessageDigest.isEqual(expected.getBytes(StandardCharsets.US_ASCII), signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public Optional<FileDownload> lookup(Long fileId) {
+        synchronized (issued) {
+            return Optional.ofNullable(issued.get(fileId));
+        }
+    }
+
+    /**
+     * Stop serving a file's outstanding links from memory, e.g. once it is deleted
+     */
+    public void forget(Long fileId) {
+        synchronized (issued) {
+            issued.remove(fileId);
+        }
+    }
+
+    private String signature(Long fileId, String fileHash, long expires, String disposition) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            byte[] digest = mac.doFinal((fileId + ":" + fileHash + ":" + expires + ":" + disposition).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+
+    public record SignedLink(Long fileId, String fileHash, long expires, String disposition, String signature) {
+
+        /**
+         * Path of the link relative to the API root (e.g. {@code /api})
+         */
+        public String getPath() {
+            return "/files/signed/" + fileId + "?hash=" + fileHash + "&expires=" + expires
+                    + "&disposition=" + disposition + "&signature=" + signature;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.duongdat.filehub.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Local disk copies of Google Drive content for files that have no local storage copy, so repeated
+ * downloads do not each cost a Drive round-trip. Entries are named by content hash and evicted least
+ * recently used first once the configured capacity is exceeded.
+ * An entry is fetched once however many requests ask for it at the same time, written to a temporary
+ * name and only renamed into place after its hash has been checked.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class DriveContentCache {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final GoogleDriveService googleDriveService;
+
+    @Value("${file.cache.disk.enabled:true}")
+    private boolean enabled;
+
+    @Value("${file.cache.disk.directory:uploads/.cache}")
+    private String cacheDirectory;
+
+    @Value("${file.cache.disk.max-bytes:10737418240}") // 10GB across all entries
+    private long maxBytes;
+
+    @Value("${file.cache.disk.max-entry-bytes:1073741824}") // Larger files are streamed from Drive directly (1GB)
+    private long maxEntryBytes;
+
+    private Path cachePath;
+
+    private final Object lock = new Object();
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private long usedBytes;
+    private final ConcurrentHashMap<String, CompletableFuture<Path>> inFlight = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        cachePath = Paths.get(cacheDirectory).toAbsolutePath().normalize();
+        Files.createDirectories(cachePath);
+
+        // Rebuild the index, oldest first; temporaries belong to fetches that never finished
+        try (Stream<Path> paths = Files.walk(cachePath)) {
+            for (Path path : paths.filter(Files::isRegularFile)
+                    .sorted(Comparator.comparing(DriveContentCache::lastModified))
+                    .toList()) {
+                if (path.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                    Files.deleteIfExists(path);
+                } else {
+                    long size = Files.size(path);
+                    entries.put(path.getFileName().toString(), new Entry(size, false));
+                    usedBytes += size;
+                }
+            }
+        }
+        evictOverCapacity();
+        log.info("Drive content cache at {}: {} entries, {} bytes", cachePath, entries.size(), usedBytes);
+    }
+
+    /**
+     * Whether content of this size is served through the cache
+     */
+    public boolean accepts(long size) {
+        return enabled && size <= maxEntryBytes;
+    }
+
+    /**
+     * The cached copy of a download's content, fetched from Google Drive first if necessary.
+     * Concurrent callers for the same content share a single fetch.
+     */
+    public Path fetch(FileDownload download) throws IOException {
+        String fileHash = download.getFileHash().toLowerCase();
+        Optional<Path> cached = peek(fileHash);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        CompletableFuture<Path> fetch = new CompletableFuture<>();
+        CompletableFuture<Path> existing = inFlight.putIfAbsent(fileHash, fetch);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                throw new IOException("Shared fetch of " + fileHash + " failed: " + e.getCause().getMessage(), e.getCause());
+            }
+        }
+
+        try {
+            // Another fetch may have finished between the lookup and registering this one
+            Optional<Path> finished = peek(fileHash);
+            Path path = finished.isPresent() ? finished.get() : load(download, fileHash);
+            fetch.complete(path);
+            return path;
+        } catch (IOException | RuntimeException e) {
+            fetch.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(fileHash, fetch);
+        }
+    }
+
+    /**
+     * The cached copy if it is already present and verified, without fetching anything
+     */
+    public Optional<Path> peek(String fileHash) {
+        if (!enabled || fileHash == null) {
+            return Optional.empty();
+        }
+        synchronized (lock) {
+            Entry entry = entries.get(fileHash.toLowerCase());
+            return entry != null && entry.verified ? Optional.of(pathFor(fileHash.toLowerCase())) : Optional.empty();
+        }
+    }
+
+    /**
+     * Entries indexed at startup are checked against their hash on first use, so a copy damaged while
+     * the process was down is replaced rather than served
+     */
+    private Path load(FileDownload download, String fileHash) throws IOException {
+        Entry entry;
+        synchronized (lock) {
+            entry = entries.get(fileHash);
+        }
+        if (entry != null) {
+            Path path = pathFor(fileHash);
+            if (Files.exists(path) && hashOf(path).equals(fileHash)) {
+                entry.verified = true;
+                return path;
+            }
+            log.warn("Dropping cached copy {} that no longer matches its hash", path);
+            remove(fileHash);
+        }
+        return populate(download, fileHash);
+    }
+
+    private Path populate(FileDownload download, String fileHash) throws IOException {
+        Path path = pathFor(fileHash);
+        Files.createDirectories(path.getParent());
+        Path tempPath = path.resolveSibling(fileHash + "." + UUID.randomUUID() + TEMP_SUFFIX);
+        try {
+            MessageDigest digest = UploadStagingService.newDigest();
+            try (OutputStream outputStream = new DigestOutputStream(Files.newOutputStream(tempPath), digest)) {
+                googleDriveService.downloadFile(download.getDriveFileId(), outputStream);
+            } catch (IOException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IOException("Google Drive download failed: " + e.getMessage(), e);
+            }
+            String actualHash = HexFormat.of().formatHex(digest.digest());
+            if (!actualHash.equals(fileHash) || Files.size(tempPath) != download.getFileSize()) {
+                throw new IOException("Google Drive copy " + download.getDriveFileId() + " does not match content " + fileHash);
+            }
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempPath);
+        }
+
+        synchronized (lock) {
+            Entry previous = entries.put(fileHash, new Entry(download.getFileSize(), true));
+            usedBytes += download.getFileSize() - (previous != null ? previous.size : 0);
+        }
+        evictOverCapacity();
+        log.info("Cached Google Drive content {} ({} bytes)", fileHash, download.getFileSize());
+        return path;
+    }
+
+    /**
+     * Remove least recently used entries until the cache fits. Readers that already opened an evicted
+     * file keep reading it; the space is released when they close it.
+     */
+    private void evictOverCapacity() {
+        synchronized (lock) {
+            Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+            while (usedBytes > maxBytes && eldest.hasNext()) {
+                Map.Entry<String, Entry> entry = eldest.next();
+                eldest.remove();
+                usedBytes -= entry.getValue().size;
+                deleteQuietly(pathFor(entry.getKey()));
+            }
+        }
+    }
+
+    private void remove(String fileHash) {
+        synchronized (lock) {
+            Entry entry = entries.remove(fileHash);
+            if (entry != null) {
+                usedBytes -= entry.size;
+            }
+        }
+        deleteQuietly(pathFor(fileHash));
+    }
+
+    private Path pathFor(String fileHash) {
+        return cachePath.resolve(fileHash.substring(0, 2)).resolve(fileHash);
+    }
+
+    private static String hashOf(Path path) throws IOException {
+        MessageDigest digest = UploadStagingService.newDigest();
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(path), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete cached copy {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static final class Entry {
+
+        private final long size;
+        private volatile boolean verified;
+
+        private Entry(long size, boolean verified) {
+            this.size = size;
+            this.verified = verified;
+        }
+    }
+}
@@ -13,6 +13,7 @@ import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.xwpf.usermodel.XWPFDocument;
 import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
+import org.springframework.core.io.InputStreamSource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
@@ -33,9 +34,14 @@ public class FileContentExtractorService {
     }
     
     public String extractTextContent(MultipartFile file) {
+        return extractTextContent(file.getOriginalFilename(), file);
+    }
+    
+    /**
+     * Extract text from content that is not a multipart upload, e.g. a stored copy being indexed
+     */
+    public String extractTextContent(String fileName, InputStreamSource content) {
         try {
-            String fileName = file.getOriginalFilename();
-            
             if (fileName == null) {
                 return "";
             }
@@ -63,17 +69,17 @@ public class FileContentExtractorService {
                 case "cpp":
                 case "c":
                 case "h":
-                    return extractPlainText(file.getInputStream());
+                    return extractPlainText(content.getInputStream());
                 case "docx":
-                    return extractDocxContent(file.getInputStream());
+                    return extractDocxContent(content.getInputStream());
                 case "doc":
-                    return extractDocContent(file.getInputStream());
+                    return extractDocContent(content.getInputStream());
                 // case "pdf":
-                //     return extractPdfContent(file.getInputStream());
+                //     return extractPdfContent(content.getInputStream());
                 case "xlsx":
-                    return extractXlsxContent(file.getInputStream());
+                    return extractXlsxContent(content.getInputStream());
                 case "pptx":
-                    return extractPptxContent(file.getInputStream());
+                    return extractPptxContent(content.getInputStream());
                 default:
                     log.debug("Unsupported file type for content extraction: {}", extension);
                     return "";
@@ -0,0 +1,38 @@
+package com.duongdat.filehub.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * A download that has passed authorization, with everything needed to stream it.
+ * Only metadata and storage locations are held; content is read by {@link FileService#writeContent}.
+ */
+@Getter
+@RequiredArgsConstructor
+public class FileDownload {
+
+    private final Long fileId;
+    private final String originalFilename;
+    private final String contentType;
+    private final long fileSize;
+    private final String fileHash;
+    private final String driveFileId;
+    private final String filePath;
+    private final LocalDateTime uploadedAt;
+    private final String visibility;
+
+    /**
+     * Strong validator: a file's content never changes, and its hash identifies it exactly
+     */
+    public String getETag() {
+        return "\"" + fileHash + "\"";
+    }
+
+    public Instant getLastModified() {
+        return uploadedAt != null ? uploadedAt.atZone(ZoneId.systemDefault()).toInstant() : null;
+    }
+}
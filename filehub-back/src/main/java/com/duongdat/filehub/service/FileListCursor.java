@@ -0,0 +1,79 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.entity.File;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Set;
+
+/**
+ * Position in a keyset-paginated file listing: the sort column and direction, and the sort value and id
+ * of the last file returned. Clients only ever see it as an opaque token.
+ */
+public record FileListCursor(String sortBy, Sort.Direction direction, Comparable<?> sortValue, Long id) {
+
+    // Columns the listing can seek on; all are NOT NULL or defaulted in the files table, and do not change once a file
+    // is stored. Mutable columns such as downloadCount (flushed every few seconds) would skip or repeat rows mid-scroll.
+    public static final Set<String> SORT_COLUMNS = Set.of("uploadedAt", "originalFilename", "fileSize", "id");
+
+    /**
+     * ORDER BY for a listing, with the id as tie breaker so the order is total
+     */
+    public static Sort sort(String sortBy, Sort.Direction direction) {
+        requireSupported(sortBy);
+        return "id".equals(sortBy) ? Sort.by(direction, "id") : Sort.by(direction, sortBy).and(Sort.by(direction, "id"));
+    }
+
+    /**
+     * The position just after the given file
+     */
+    public static FileListCursor after(File file, String sortBy, Sort.Direction direction) {
+        Comparable<?> sortValue = switch (sortBy) {
+            case "uploadedAt" -> file.getUploadedAt();
+            case "originalFilename" -> file.getOriginalFilename();
+            case "fileSize" -> file.getFileSize();
+            default -> file.getId();
+        };
+        if (sortValue == null) {
+            throw new RuntimeException("Cannot continue the listing after file " + file.getId() + " without " + sortBy);
+        }
+        return new FileListCursor(sortBy, direction, sortValue, file.getId());
+    }
+
+    public String encode() {
+        String raw = sortBy + "\n" + direction.name() + "\n" + id + "\n" + sortValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a token, which must have been issued for the same sort column and direction
+     */
+    public static FileListCursor decode(String token, String sortBy, Sort.Direction direction) {
+        requireSupported(sortBy);
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\n", 4);
+            if (parts.length != 4 || !parts[0].equals(sortBy) || !parts[1].equals(direction.name())) {
+                throw new RuntimeException("Cursor does not match the requested sort order");
+            }
+            Long id = Long.parseLong(parts[2]);
+            Comparable<?> sortValue = switch (sortBy) {
+                case "uploadedAt" -> LocalDateTime.parse(parts[3]);
+                case "originalFilename" -> parts[3];
+                case "fileSize" -> Long.parseLong(parts[3]);
+                default -> id;
+            };
+            return new FileListCursor(sortBy, direction, sortValue, id);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new RuntimeException("Invalid cursor");
+        }
+    }
+
+    private static void requireSupported(String sortBy) {
+        if (!SORT_COLUMNS.contains(sortBy)) {
+            throw new RuntimeException("Unsupported sort column: " + sortBy);
+        }
+    }
+}
@@ -0,0 +1,454 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.entity.File;
+import com.duongdat.filehub.repository.FileRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.MultiFieldQueryParser;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.similarities.BM25Similarity;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * In-process Lucene index over file metadata (filename, title, description, tags) and text extracted from
+ * the content, ranked with BM25. Authorization is applied as index filters on visibility and on the
+ * department or project a file belongs to, mirroring the shared file listing.
+ * Files are (re)indexed in the background after they are saved, from the row as it is when the update runs.
+ * Updates of one file never run concurrently, so a slow update cannot overwrite a later one (e.g. put a
+ * deleted file back). Tags come from the upload and from the tag store, which includes tags suggested by
+ * AI analysis. Each commit records a watermark, and on
+ * startup every file updated since the last watermark is indexed again, so changes lost in a crash are
+ * caught up. An empty index (e.g. after deleting its directory) is rebuilt from the files table.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FileSearchIndex {
+
+    private static final String ID = "id";
+    private static final String VISIBILITY = "visibility";
+    private static final String SCOPE = "scope"; // "project:<id>" for project files, "department:<id>" otherwise
+    private static final String DEPARTMENT = "departmentId";
+    private static final String PROJECT = "projectId";
+    private static final String FILE_TYPE = "fileTypeId";
+    private static final String FILENAME = "filename";
+    private static final String TITLE = "title";
+    private static final String DESCRIPTION = "description";
+    private static final String TAGS = "tags";
+    private static final String CONTENT = "content";
+    private static final String WATERMARK = "indexedThrough";
+
+    private static final String[] TEXT_FIELDS = {FILENAME, TITLE, TAGS, DESCRIPTION, CONTENT};
+    private static final Map<String, Float> BOOSTS = Map.of(
+            FILENAME, 3.0f, TITLE, 3.0f, TAGS, 2.0f, DESCRIPTION, 1.5f, CONTENT, 1.0f);
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    private final FileRepository fileRepository;
+    private final TagService tagService;
+    private final FileContentExtractorService fileContentExtractorService;
+    private final GoogleDriveService googleDriveService;
+    private final UploadStagingService uploadStagingService;
+    private final ThreadPoolTaskExecutor searchIndexExecutor; // Resolved by name, see ExecutorConfig
+
+    @Value("${file.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${file.search.directory:uploads/.search-index}")
+    private String indexDirectory;
+
+    @Value("${file.search.index-content:true}") // Index text extracted from documents, not just metadata
+    private boolean indexContent;
+
+    @Value("${file.search.max-content-source-bytes:20971520}") // Larger files are indexed by metadata only (20MB)
+    private long maxContentSourceBytes;
+
+    @Value("${file.search.max-results:1000}") // Deepest hit a search can page to
+    private int maxResults;
+
+    @Value("${file.search.reconcile-margin-minutes:10}") // Overlap re-indexed on startup, covers saves still queued at commit
+    private long reconcileMarginMinutes;
+
+    private final Analyzer analyzer = new StandardAnalyzer();
+    private Directory directory;
+    private IndexWriter writer;
+    private SearcherManager searcherManager;
+    private LocalDateTime reconcileFrom = EPOCH;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Map<Long, Boolean> scheduled = new ConcurrentHashMap<>(); // Files with an update queued or running -> run again
+
+    @PostConstruct
+    public void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+        Path path = Paths.get(indexDirectory).toAbsolutePath().normalize();
+        Files.createDirectories(path);
+        directory = FSDirectory.open(path);
+        if (DirectoryReader.indexExists(directory)) {
+            String watermark = SegmentInfos.readLatestCommit(directory).getUserData().get(WATERMARK);
+            reconcileFrom = watermark != null ? LocalDateTime.parse(watermark) : EPOCH;
+        }
+
+        IndexWriterConfig config = new IndexWriterConfig(analyzer);
+        config.setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND);
+        config.setSimilarity(new BM25Similarity());
+        writer = new IndexWriter(directory, config);
+        searcherManager = new SearcherManager(writer, null);
+        log.info("Search index at {}: {} documents, reconciling changes since {}", path, writer.getDocStats().numDocs, reconcileFrom);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconcileOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime since = reconcileFrom;
+        submit(() -> reconcile(since));
+    }
+
+    /**
+     * Queue (re)indexing of a saved file, e.g. after it is stored or tagged; deleted files are removed from the index
+     */
+    public void index(File file) {
+        refresh(file.getId());
+    }
+
+    public void remove(Long fileId) {
+        refresh(fileId);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Ids of matching files, best match first. {@code accessibleDepartmentIds}/{@code accessibleProjectIds}
+     * restrict results to files the user may see; pass null for both to search everything (admins).
+     */
+    public SearchHits search(String text, List<Long> accessibleDepartmentIds, List<Long> accessibleProjectIds,
+                             Long departmentId, Long projectId, Long fileTypeId, int offset, int limit) throws IOException {
+        if (!enabled) {
+            throw new RuntimeException("Full-text search is disabled");
+        }
+        if (text == null || text.isBlank()) {
+            throw new RuntimeException("Search query is required");
+        }
+        int end = Math.min(offset + limit, maxResults);
+        if (offset >= end) {
+            return new SearchHits(0, List.of());
+        }
+
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        query.add(parse(text), BooleanClause.Occur.MUST);
+        if (accessibleDepartmentIds != null || accessibleProjectIds != null) {
+            query.add(accessFilter(accessibleDepartmentIds, accessibleProjectIds), BooleanClause.Occur.FILTER);
+        }
+        if (departmentId != null) {
+            query.add(new TermQuery(new Term(DEPARTMENT, departmentId.toString())), BooleanClause.Occur.FILTER);
+        }
+        if (projectId != null) {
+            query.add(new TermQuery(new Term(PROJECT, projectId.toString())), BooleanClause.Occur.FILTER);
+        }
+        if (fileTypeId != null) {
+            query.add(new TermQuery(new Term(FILE_TYPE, fileTypeId.toString())), BooleanClause.Occur.FILTER);
+        }
+
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            TopDocs topDocs = searcher.search(query.build(), end);
+            StoredFields storedFields = searcher.storedFields();
+            List<Long> fileIds = new ArrayList<>();
+            for (int i = offset; i < topDocs.scoreDocs.length; i++) {
+                fileIds.add(Long.parseLong(storedFields.document(topDocs.scoreDocs[i].doc).get(ID)));
+            }
+            return new SearchHits(Math.min(topDocs.totalHits.value, maxResults), fileIds);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * Make recent changes visible to searches (near real time, without a commit)
+     */
+    @Scheduled(fixedDelayString = "${file.search.refresh-interval-ms:1000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            searcherManager.maybeRefresh();
+        } catch (IOException e) {
+            log.warn("Failed to refresh search index: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${file.search.commit-interval-ms:30000}")
+    public void scheduledCommit() {
+        if (enabled && writer.hasUncommittedChanges()) {
+            commit(0);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        commit(0);
+        try {
+            searcherManager.close();
+            writer.close();
+            directory.close();
+        } catch (IOException e) {
+            log.warn("Failed to close search index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Durably commit what has been indexed. The watermark only advances while no other updates are queued
+     * (the caller's own task aside), so everything saved before it is known to be in this commit.
+     */
+    private synchronized void commit(int ownTasks) {
+        try {
+            if (pending.get() <= ownTasks) {
+                String watermark = LocalDateTime.now().minusMinutes(reconcileMarginMinutes).toString();
+                writer.setLiveCommitData(Map.of(WATERMARK, watermark).entrySet());
+            }
+            writer.commit();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to commit search index: {}", e.getMessage());
+        }
+    }
+
+    private void submit(IndexTask task) {
+        pending.incrementAndGet();
+        searchIndexExecutor.execute(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                log.warn("Search index update failed: {}", e.getMessage());
+            } finally {
+                pending.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Queue an update of the file's document, unless one is queued or running already; a running one is then
+     * asked to run again, since the row it read may predate this change
+     */
+    private void refresh(Long fileId) {
+        if (!enabled) {
+            return;
+        }
+        boolean[] idle = {false};
+        scheduled.compute(fileId, (id, rerun) -> {
+            idle[0] = rerun == null;
+            return idle[0] ? Boolean.FALSE : Boolean.TRUE;
+        });
+        if (idle[0]) {
+            submit(() -> reindex(fileId));
+        }
+    }
+
+    /**
+     * Index a file from its current row, or remove it once it is deleted. The caller holds the file's entry in
+     * {@link #scheduled}; it is released here, or the update runs again if the file changed meanwhile.
+     */
+    private void reindex(Long fileId) throws IOException {
+        scheduled.replace(fileId, Boolean.FALSE); // Changes from here on may not be in the row read below
+        try {
+            File file = fileRepository.findById(fileId).orElse(null);
+            if (file == null || Boolean.TRUE.equals(file.getIsDeleted())) {
+                writer.deleteDocuments(new Term(ID, fileId.toString()));
+            } else {
+                write(file);
+            }
+        } finally {
+            if (scheduled.compute(fileId, (id, rerun) -> Boolean.TRUE.equals(rerun) ? Boolean.FALSE : null) != null) {
+                submit(() -> reindex(fileId));
+            }
+        }
+    }
+
+    private void reconcile(LocalDateTime since) {
+        long lastId = 0;
+        int indexed = 0;
+        List<Long> batch;
+        do {
+            batch = fileRepository.findIdsUpdatedSince(since, lastId, PageRequest.of(0, 500));
+            for (Long fileId : batch) {
+                lastId = fileId;
+                if (scheduled.putIfAbsent(fileId, Boolean.FALSE) != null) {
+                    continue; // Already being updated from a fresh row
+                }
+                try {
+                    reindex(fileId);
+                    indexed++;
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Failed to reindex file {}: {}", fileId, e.getMessage());
+                }
+            }
+        } while (!batch.isEmpty());
+        log.info("Search index reconciled {} files updated since {}", indexed, since);
+        commit(1);
+    }
+
+    private void write(File file) throws IOException {
+        Term id = new Term(ID, file.getId().toString());
+        Document document = new Document();
+        document.add(new StringField(ID, file.getId().toString(), Field.Store.YES));
+        document.add(new StringField(VISIBILITY, file.getVisibility() != null ? file.getVisibility() : "PRIVATE", Field.Store.NO));
+        document.add(new StringField(SCOPE, file.getProjectId() != null
+                ? "project:" + file.getProjectId() : "department:" + file.getDepartmentId(), Field.Store.NO));
+        document.add(new StringField(DEPARTMENT, String.valueOf(file.getDepartmentId()), Field.Store.NO));
+        if (file.getProjectId() != null) {
+            document.add(new StringField(PROJECT, file.getProjectId().toString(), Field.Store.NO));
+        }
+        if (file.getFileTypeId() != null) {
+            document.add(new StringField(FILE_TYPE, file.getFileTypeId().toString(), Field.Store.NO));
+        }
+        addText(document, FILENAME, searchable(file.getOriginalFilename()));
+        addText(document, TITLE, searchable(file.getTitle()));
+        addText(document, DESCRIPTION, file.getDescription());
+        addText(document, TAGS, tags(file));
+        addText(document, CONTENT, extractContent(file));
+        writer.updateDocument(id, document);
+    }
+
+    /**
+     * Tags as entered on upload plus the normalized tags in the tag store, which also has the AI suggested ones
+     */
+    private String tags(File file) {
+        Set<String> stored = tagService.getTagNames(List.of(file.getId())).getOrDefault(file.getId(), Set.of());
+        return Stream.concat(Stream.ofNullable(file.getTags()), stored.stream()).collect(Collectors.joining(" "));
+    }
+
+    private void addText(Document document, String field, String value) {
+        if (value != null && !value.isBlank()) {
+            document.add(new TextField(field, value, Field.Store.NO));
+        }
+    }
+
+    private String extractContent(File file) {
+        if (!indexContent || file.getFileSize() == null || file.getFileSize() > maxContentSourceBytes
+                || !fileContentExtractorService.isContentExtractable(file.getOriginalFilename())) {
+            return null;
+        }
+        Path source = file.getFilePath() != null ? Paths.get(file.getFilePath()) : null;
+        Path downloaded = null;
+        try {
+            if (source == null || !Files.exists(source)) {
+                if (file.getDriveFileId() == null) {
+                    return null;
+                }
+                downloaded = Files.createTempFile(uploadStagingService.getStagingPath(), "search-", ".tmp");
+                try (OutputStream outputStream = Files.newOutputStream(downloaded)) {
+                    googleDriveService.downloadFile(file.getDriveFileId(), outputStream);
+                }
+                source = downloaded;
+            }
+            return fileContentExtractorService.extractTextContent(file.getOriginalFilename(), new FileSystemResource(source));
+        } catch (Exception e) {
+            log.warn("Indexing file {} without its content: {}", file.getId(), e.getMessage());
+            return null;
+        } finally {
+            if (downloaded != null) {
+                try {
+                    Files.deleteIfExists(downloaded);
+                } catch (IOException e) {
+                    log.warn("Failed to delete search staging file {}: {}", downloaded, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private Query parse(String text) {
+        MultiFieldQueryParser parser = new MultiFieldQueryParser(TEXT_FIELDS, analyzer, BOOSTS);
+        parser.setDefaultOperator(QueryParser.Operator.AND);
+        try {
+            return parser.parse(QueryParser.escape(searchable(text)));
+        } catch (ParseException e) {
+            throw new RuntimeException("Invalid search query");
+        }
+    }
+
+    // Same visibility rule as the shared file listing: public files, plus files of the user's projects and departments
+    private Query accessFilter(List<Long> accessibleDepartmentIds, List<Long> accessibleProjectIds) {
+        List<BytesRef> scopes = new ArrayList<>();
+        if (accessibleDepartmentIds != null) {
+            accessibleDepartmentIds.forEach(id -> scopes.add(new BytesRef("department:" + id)));
+        }
+        if (accessibleProjectIds != null) {
+            accessibleProjectIds.forEach(id -> scopes.add(new BytesRef("project:" + id)));
+        }
+        return new BooleanQuery.Builder()
+                .add(new TermQuery(new Term(VISIBILITY, "PUBLIC")), BooleanClause.Occur.SHOULD)
+                .add(new TermInSetQuery(SCOPE, scopes), BooleanClause.Occur.SHOULD)
+                .build();
+    }
+
+    /**
+     * Split names on dots, dashes and underscores, which the standard tokenizer keeps inside words
+     * ("q3-report.pdf" becomes q3, report, pdf)
+     */
+    private static String searchable(String text) {
+        return text == null ? null : text.replaceAll("[._\\-]+", " ");
+    }
+
+    @FunctionalInterface
+    private interface IndexTask {
+        void run() throws Exception;
+    }
+
+    public record SearchHits(long totalHits, List<Long> fileIds) {
+    }
+}
@@ -1,12 +1,27 @@
 package com.duongdat.filehub.service;
 
 import com.duongdat.filehub.dto.request.FileUploadRequest;
+import com.duongdat.filehub.dto.request.UploadByReferenceRequest;
+import com.duongdat.filehub.dto.response.BatchUploadItemResult;
+import com.duongdat.filehub.dto.response.BatchUploadResponse;
+import com.duongdat.filehub.dto.response.CursorPageResponse;
 import com.duongdat.filehub.dto.response.FileResponse;
 import com.duongdat.filehub.dto.response.PageResponse;
+import com.duongdat.filehub.dto.response.SignedDownloadResponse;
+import com.duongdat.filehub.entity.Department;
+import com.duongdat.filehub.entity.DepartmentCategory;
 import com.duongdat.filehub.entity.File;
+import com.duongdat.filehub.entity.FileBlob;
+import com.duongdat.filehub.entity.FileType;
+import com.duongdat.filehub.entity.Project;
+import com.duongdat.filehub.entity.User;
+import com.duongdat.filehub.repository.FileBlobRepository;
 import com.duongdat.filehub.repository.FileRepository;
+import com.duongdat.filehub.repository.FileSpecifications;
 import com.duongdat.filehub.repository.UserRepository;
 import com.duongdat.filehub.repository.DepartmentCategoryRepository;
+import com.duongdat.filehub.repository.DepartmentRepository;
+import com.duongdat.filehub.repository.ProjectRepository;
 import com.duongdat.filehub.repository.FileTypeRepository;
 import com.duongdat.filehub.util.SecurityUtil;
 import lombok.RequiredArgsConstructor;
@@ -16,20 +31,43 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -40,130 +78,284 @@ public class FileService {
     private final UserRepository userRepository;
     private final DepartmentCategoryRepository departmentCategoryRepository;
     private final FileTypeRepository fileTypeRepository;
+    private final DepartmentRepository departmentRepository;
+    private final ProjectRepository projectRepository;
     private final SecurityUtil securityUtil;
     private final GoogleDriveService googleDriveService;
     private final UserAuthorizationService userAuthorizationService;
-    
-    @Value("${file.upload.directory:uploads}")
-    private String uploadDirectory;
+    private final UploadStagingService uploadStagingService;
+    private final BlobStoreService blobStoreService;
+    private final FileBlobRepository fileBlobRepository;
+    private final HotContentCache hotContentCache;
+    private final DriveContentCache driveContentCache;
+    private final DownloadCounterService downloadCounterService;
+    private final DownloadUrlSigner downloadUrlSigner;
+    private final RenditionService renditionService;
+    private final FileSearchIndex fileSearchIndex;
+    private final FilenameSearchIndex filenameSearchIndex;
+    private final TagService tagService;
+    private final ThreadPoolTaskExecutor batchExecutor; // Resolved by name, see ExecutorConfig
     
     @Value("${file.storage.primary:google-drive}")
     private String primaryStorage;
     
-    @Value("${file.storage.fallback:local}")
-    private String fallbackStorage;
-    
     @Value("${file.max.size:104857600}") // 100MB default
     private long maxFileSize;
     
+    @Value("${file.upload.batch.max-files:500}")
+    private int maxBatchFiles;
+    
+    @Value("${file.download.archive.max-files:1000}")
+    private int maxArchiveFiles;
+    
+    @Value("${file.listing.max-scroll-size:100}") // Largest page a cursor listing returns
+    private int maxScrollSize;
+    
+    @Value("${file.download.sendfile:true}")
+    private boolean sendfileEnabled;
+    
+    @Value("${file.download.sendfile-min-bytes:49152}") // Smaller bodies are cheaper to copy than to hand to sendfile
+    private long sendfileMinBytes;
+    
+    private static final int DOWNLOAD_BUFFER_SIZE = 64 * 1024;
+    
     public FileResponse uploadFile(MultipartFile multipartFile, FileUploadRequest request) throws IOException {
         // Validate file
         validateFile(multipartFile);
         
+        // Read the request body exactly once into the staging area
+        try (StagedUpload stagedUpload = uploadStagingService.stage(multipartFile)) {
+            return uploadFile(stagedUpload, request);
+        }
+    }
+    
+    /**
+     * Store an upload that has already been staged (and hashed) by {@link UploadStagingService}.
+     * The caller owns the staged file and is responsible for closing it.
+     */
+    public FileResponse uploadFile(StagedUpload stagedUpload, FileUploadRequest request) throws IOException {
+        if (stagedUpload.getSize() == 0) {
+            throw new RuntimeException("File is empty");
+        }
+        
         // Get current user
         Long userId = securityUtil.getCurrentUserId()
                 .orElseThrow(() -> new RuntimeException("User not authenticated"));
         
-        // Validate required fields before processing
-        validateUploadRequest(request);
+        // Validate required fields and upload permissions
+        validateUploadPreconditions(request, stagedUpload.getSize());
         
-        // Validate upload permissions - NEW AUTHORIZATION LOGIC
-        userAuthorizationService.validateFileUploadPermissions(request.getDepartmentId(), request.getProjectId());
+        // Generate unique filename
+        String storedFilename = generateUniqueFilename(stagedUpload.getOriginalFilename());
+        File file = newFileEntity(userId, stagedUpload, request, storedFilename);
         
-        // Check for duplicate file by hash
-        String fileHash = calculateFileHash(multipartFile.getBytes());
-        Optional<File> existingFile = fileRepository.findByFileHash(fileHash);
-        if (existingFile.isPresent()) {
-            throw new RuntimeException("File already exists");
-        }
+        // Content is stored once per hash; a duplicate upload only takes another reference on the blob
+        FileBlob blob = blobStoreService.store(stagedUpload, storedFilename);
+        file.setDriveFileId(blob.getDriveFileId());
+        file.setFilePath(blob.getFilePath());
         
-        // Generate unique filename
-        String originalFilename = multipartFile.getOriginalFilename();
-        String storedFilename = generateUniqueFilename(originalFilename);
+        // Save to database
+        try {
+            file = fileRepository.save(file);
+        } catch (RuntimeException e) {
+            blobStoreService.release(blob.getFileHash());
+            throw e;
+        }
+        blobStoreService.copyLateLocations(List.of(file));
+        renditionService.schedule(file);
+        fileSearchIndex.index(file);
+        filenameSearchIndex.add(file);
+        tagService.tagFile(file);
         
-        // Create file entity
-        File file = new File();
-        file.setUploaderId(userId);
-        file.setOriginalFilename(originalFilename);
-        file.setStoredFilename(storedFilename);
-        file.setFileSize(multipartFile.getSize());
-        file.setContentType(multipartFile.getContentType());
-        file.setFileHash(fileHash);
-        file.setTitle(request.getTitle() != null ? request.getTitle() : originalFilename);
-        file.setDescription(request.getDescription());
-        file.setDepartmentCategoryId(request.getDepartmentCategoryId());
-        file.setDepartmentId(request.getDepartmentId());
-        file.setProjectId(request.getProjectId());
-        file.setFileTypeId(request.getFileTypeId());
-        // Handle tags properly for JSON column - convert empty/null to null or valid JSON
-        String tags = request.getTags();
-        if (tags == null || tags.trim().isEmpty()) {
-            file.setTags(null); // NULL is valid for JSON column
-        } else {
-            file.setTags(tags);
+        return convertToFileResponse(file);
+    }
+    
+    /**
+     * Upload many files sharing the same metadata in one request.
+     * Authorization is resolved once, parts are staged and stored on a bounded executor,
+     * the duplicate lookup covers the whole batch in one query and rows are inserted together.
+     * Each part gets its own result; a failing part does not fail the others.
+     */
+    public BatchUploadResponse uploadFiles(List<MultipartFile> multipartFiles, FileUploadRequest request) {
+        if (multipartFiles.size() > maxBatchFiles) {
+            throw new RuntimeException("Too many files in one batch, the maximum is " + maxBatchFiles);
         }
-        file.setVisibility(request.getVisibility());
         
-        // Primary storage: Upload to Google Drive first
-        String driveFileId = null;
-        boolean driveUploadSuccess = false;
+        Long userId = securityUtil.getCurrentUserId()
+                .orElseThrow(() -> new RuntimeException("User not authenticated"));
         
-        if ("google-drive".equals(primaryStorage)) {
-            try {
-                driveFileId = googleDriveService.uploadFile(multipartFile, storedFilename);
-                if (driveFileId != null) {
-                    file.setDriveFileId(driveFileId);
-                    driveUploadSuccess = true;
-                    log.info("File uploaded to Google Drive (primary): {}", driveFileId);
+        // Validate required fields and upload permissions once for the whole batch
+        validateUploadPreconditions(request, 0);
+        
+        // Stage (read + hash) every part in parallel
+        List<CompletableFuture<StagedUpload>> staging = multipartFiles.stream()
+                .map(multipartFile -> CompletableFuture.supplyAsync(() -> {
+                    try {
+                        validateFile(multipartFile);
+                        return uploadStagingService.stage(multipartFile);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, batchExecutor))
+                .toList();
+        
+        List<BatchUploadItemResult> results = new ArrayList<>();
+        List<StagedUpload> stagedUploads = new ArrayList<>();
+        List<Integer> stagedIndexes = new ArrayList<>();
+        try {
+            for (int i = 0; i < staging.size(); i++) {
+                try {
+                    stagedUploads.add(staging.get(i).join());
+                    stagedIndexes.add(i);
+                    results.add(null); // Filled in after storing
+                } catch (CompletionException e) {
+                    results.add(BatchUploadItemResult.failure(i, multipartFiles.get(i).getOriginalFilename(),
+                            e.getCause().getMessage()));
                 }
-            } catch (Exception e) {
-                log.warn("Failed to upload to Google Drive (primary), falling back to local storage: {}", e.getMessage());
             }
+            
+            List<BatchUploadItemResult> stored = storeStagedBatch(stagedUploads, request, userId);
+            for (int i = 0; i < stored.size(); i++) {
+                int index = stagedIndexes.get(i);
+                BatchUploadItemResult result = stored.get(i);
+                result.setIndex(index);
+                results.set(index, result);
+            }
+        } finally {
+            stagedUploads.forEach(StagedUpload::close);
+        }
+        
+        log.info("Batch upload of {} files by user {}: {} stored", multipartFiles.size(), userId,
+                results.stream().filter(BatchUploadItemResult::isSuccess).count());
+        return BatchUploadResponse.of(results);
+    }
+    
+    /**
+     * Store already-staged uploads as new files for a caller whose request was validated up front.
+     * Results are returned in input order; the caller keeps ownership of the staged files.
+     */
+    List<BatchUploadItemResult> storeStagedBatch(List<StagedUpload> stagedUploads, FileUploadRequest request, Long userId) {
+        int count = stagedUploads.size();
+        BatchUploadItemResult[] results = new BatchUploadItemResult[count];
+        
+        // Group identical content so each distinct hash is stored once
+        Map<String, List<Integer>> indexesByHash = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            StagedUpload stagedUpload = stagedUploads.get(i);
+            if (stagedUpload.getSize() == 0) {
+                results[i] = BatchUploadItemResult.failure(i, stagedUpload.getOriginalFilename(), "File is empty");
+            } else {
+                indexesByHash.computeIfAbsent(stagedUpload.getFileHash(), hash -> new ArrayList<>()).add(i);
+            }
+        }
+        if (indexesByHash.isEmpty()) {
+            return Arrays.asList(results);
         }
         
-        // Fallback storage: Store locally if Google Drive fails or as backup
-        if (!driveUploadSuccess || "local".equals(fallbackStorage)) {
+        // One query tells which content is already stored; only the rest is written
+        Set<String> storedHashes = fileBlobRepository.findByFileHashIn(indexesByHash.keySet()).stream()
+                .map(FileBlob::getFileHash)
+                .collect(Collectors.toSet());
+        
+        Map<String, CompletableFuture<FileBlob>> blobsByHash = new LinkedHashMap<>();
+        indexesByHash.forEach((hash, indexes) -> {
+            Optional<FileBlob> existing = storedHashes.contains(hash)
+                    ? blobStoreService.acquire(hash, indexes.size())
+                    : Optional.empty();
+            if (existing.isPresent()) {
+                blobsByHash.put(hash, CompletableFuture.completedFuture(existing.get()));
+            } else {
+                StagedUpload first = stagedUploads.get(indexes.get(0));
+                blobsByHash.put(hash, CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return blobStoreService.store(first, generateUniqueFilename(first.getOriginalFilename()), indexes.size());
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                }, batchExecutor));
+            }
+        });
+        
+        // Build all rows, then save them in one call. With IDENTITY keys Hibernate still sends one INSERT per row
+        // (generated ids cannot be JDBC-batched); the saving is in storing and assembling the batch together.
+        List<File> files = new ArrayList<>();
+        List<Integer> fileIndexes = new ArrayList<>();
+        blobsByHash.forEach((hash, pending) -> {
+            List<Integer> indexes = indexesByHash.get(hash);
             try {
-                Path uploadPath = Paths.get(uploadDirectory);
-                if (!Files.exists(uploadPath)) {
-                    Files.createDirectories(uploadPath);
+                FileBlob blob = pending.join();
+                for (int index : indexes) {
+                    StagedUpload stagedUpload = stagedUploads.get(index);
+                    File file = newFileEntity(userId, stagedUpload, request, generateUniqueFilename(stagedUpload.getOriginalFilename()));
+                    file.setDriveFileId(blob.getDriveFileId());
+                    file.setFilePath(blob.getFilePath());
+                    files.add(file);
+                    fileIndexes.add(index);
                 }
-                
-                Path filePath = uploadPath.resolve(storedFilename);
-                Files.copy(multipartFile.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-                file.setFilePath(filePath.toString());
-                log.info("File stored locally: {}", filePath);
-                
-                // If primary storage failed, mark as local-only
-                if (!driveUploadSuccess) {
-                    log.info("File stored in fallback storage (local): {}", filePath);
+            } catch (CompletionException e) {
+                for (int index : indexes) {
+                    results[index] = BatchUploadItemResult.failure(index, stagedUploads.get(index).getOriginalFilename(),
+                            e.getCause().getMessage());
                 }
-            } catch (Exception e) {
-                if (!driveUploadSuccess) {
-                    // Both storages failed
-                    throw new IOException("Failed to store file in both primary and fallback storage: " + e.getMessage());
-                }
-                log.warn("Failed to store in fallback storage, but primary storage succeeded: {}", e.getMessage());
             }
+        });
+        
+        try {
+            List<File> saved = fileRepository.saveAll(files);
+            blobStoreService.copyLateLocations(saved);
+            List<FileResponse> responses = convertToFileResponses(saved);
+            for (int i = 0; i < saved.size(); i++) {
+                int index = fileIndexes.get(i);
+                results[index] = BatchUploadItemResult.success(index, responses.get(i));
+                renditionService.schedule(saved.get(i));
+                fileSearchIndex.index(saved.get(i));
+                filenameSearchIndex.add(saved.get(i));
+                tagService.tagFile(saved.get(i));
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to save batch of {} files: {}", files.size(), e.getMessage());
+            files.stream()
+                    .collect(Collectors.groupingBy(File::getFileHash, Collectors.summingInt(file -> 1)))
+                    .forEach(blobStoreService::release);
+            for (int index : fileIndexes) {
+                results[index] = BatchUploadItemResult.failure(index, stagedUploads.get(index).getOriginalFilename(), e.getMessage());
+            }
+        }
+        return Arrays.asList(results);
+    }
+    
+    /**
+     * Run the request-level upload checks (required fields, size, permissions) before any content is stored.
+     * Used up front by upload sessions and again when content is committed.
+     */
+    public void validateUploadPreconditions(FileUploadRequest request, long fileSize) {
+        if (fileSize > maxFileSize) {
+            throw new RuntimeException("File size exceeds maximum allowed size");
         }
         
-        // Save to database
-        file = fileRepository.save(file);
+        // Validate required fields before processing
+        validateUploadRequest(request);
         
-        return convertToFileResponse(file);
+        // Validate upload permissions - NEW AUTHORIZATION LOGIC
+        userAuthorizationService.validateFileUploadPermissions(request.getDepartmentId(), request.getProjectId());
     }
     
     public PageResponse<FileResponse> getUserFiles(Long userId, String filename, Long departmentCategoryId, 
-                                                 Long departmentId, Long projectId, Long fileTypeId, String contentType, 
+                                                 Long departmentId, Long projectId, Long fileTypeId, String contentType, List<String> tags, String tagMatch, 
                                                  int page, int size, String sortBy, String sortDirection) {
         Sort sort = Sort.by(Sort.Direction.fromString(sortDirection), sortBy);
         Pageable pageable = PageRequest.of(page, size, sort);
+        Specification<File> tagFilter = tagService.fileFilter(tags, tagMatch);
         
         // Apply authorization filters
         Page<File> filesPage;
         if (userAuthorizationService.isUserAdmin(userId)) {
             // Admin can see all files
-            filesPage = fileRepository.findFilesWithFilters(userId, filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType, pageable);
+            filesPage = findFiles(filename, tagFilter,
+                FileSpecifications.matchesFilters(filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType)
+                    .and(FileSpecifications.uploadedBy(userId)),
+                pageable,
+                () -> fileRepository.findFilesWithFilters(userId, filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType, pageable));
         } else {
             // Regular users can only see files from their departments/projects
             List<Long> accessibleDepartmentIds = userAuthorizationService.getAccessibleDepartmentIds();
@@ -178,13 +370,19 @@ public class FileService {
             }
             
             // Filter by accessible departments and projects
-            filesPage = fileRepository.findFilesWithAuthorizationFilters(
-                userId, filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType,
-                accessibleDepartmentIds, accessibleProjectIds, pageable);
+            List<Long> departmentIds = accessibleDepartmentIds;
+            List<Long> projectIds = accessibleProjectIds;
+            filesPage = findFiles(filename, tagFilter,
+                FileSpecifications.matchesFilters(filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType)
+                    .and(FileSpecifications.accessibleTo(departmentIds, projectIds)),
+                pageable,
+                () -> fileRepository.findFilesWithAuthorizationFilters(
+                    userId, filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType,
+                    departmentIds, projectIds, pageable));
         }
         
         return new PageResponse<FileResponse>(
-                filesPage.getContent().stream().map(this::convertToFileResponse).toList(),
+                convertToFileResponses(filesPage.getContent()),
                 filesPage.getNumber(),
                 filesPage.getSize(),
                 filesPage.getTotalElements(),
@@ -199,15 +397,20 @@ public class FileService {
     // Admin method to get all files with filters
     public PageResponse<FileResponse> getAllFilesWithFilters(String filename, Long departmentCategoryId, 
                                                            Long departmentId, Long projectId, Long uploaderId, Long fileTypeId,
-                                                           String contentType, int page, int size, 
+                                                           String contentType, List<String> tags, String tagMatch, int page, int size, 
                                                            String sortBy, String sortDirection) {
         Sort sort = Sort.by(Sort.Direction.fromString(sortDirection), sortBy);
         Pageable pageable = PageRequest.of(page, size, sort);
+        Specification<File> tagFilter = tagService.fileFilter(tags, tagMatch);
         
-        Page<File> filesPage = fileRepository.findAllFilesWithFilters(filename, departmentCategoryId, departmentId, projectId, uploaderId, fileTypeId, contentType, pageable);
+        Page<File> filesPage = findFiles(filename, tagFilter,
+            FileSpecifications.matchesFilters(filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType)
+                .and(FileSpecifications.uploadedBy(uploaderId)),
+            pageable,
+            () -> fileRepository.findAllFilesWithFilters(filename, departmentCategoryId, departmentId, projectId, uploaderId, fileTypeId, contentType, pageable));
         
         return new PageResponse<FileResponse>(
-                filesPage.getContent().stream().map(this::convertToFileResponse).toList(),
+                convertToFileResponses(filesPage.getContent()),
                 filesPage.getNumber(),
                 filesPage.getSize(),
                 filesPage.getTotalElements(),
@@ -227,7 +430,7 @@ public class FileService {
         
         // Only get department files that don't belong to projects
         List<File> files = fileRepository.findByDepartmentIdAndProjectIdIsNullAndIsDeletedFalse(departmentId);
-        return files.stream().map(this::convertToFileResponse).toList();
+        return convertToFileResponses(files);
     }
     
     public List<FileResponse> getFilesByProject(Long projectId) {
@@ -237,20 +440,24 @@ public class FileService {
         }
         
         List<File> files = fileRepository.findByProjectIdAndIsDeletedFalse(projectId);
-        return files.stream().map(this::convertToFileResponse).toList();
+        return convertToFileResponses(files);
     }
 
     public PageResponse<FileResponse> getSharedFiles(Long userId, String filename, Long departmentCategoryId, 
-                                                   Long departmentId, Long projectId, Long fileTypeId, String contentType, 
+                                                   Long departmentId, Long projectId, Long fileTypeId, String contentType, List<String> tags, String tagMatch, 
                                                    int page, int size, String sortBy, String sortDirection) {
         Sort sort = Sort.by(Sort.Direction.fromString(sortDirection), sortBy);
         Pageable pageable = PageRequest.of(page, size, sort);
+        Specification<File> tagFilter = tagService.fileFilter(tags, tagMatch);
         
         // If user is admin, they can see all files
         Page<File> filesPage;
         if (userAuthorizationService.isUserAdmin(userId)) {
             // Admin can see all files
-            filesPage = fileRepository.findAllFilesWithFilters(filename, departmentCategoryId, departmentId, projectId, null, fileTypeId, contentType, pageable);
+            filesPage = findFiles(filename, tagFilter,
+                FileSpecifications.matchesFilters(filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType),
+                pageable,
+                () -> fileRepository.findAllFilesWithFilters(filename, departmentCategoryId, departmentId, projectId, null, fileTypeId, contentType, pageable));
         } else {
             // Get accessible departments and projects for the user
             List<Long> accessibleDepartmentIds = userAuthorizationService.getAccessibleDepartmentIds();
@@ -265,13 +472,19 @@ public class FileService {
             }
             
             // Get all files (including from other users) in accessible departments and projects
-            filesPage = fileRepository.findSharedFilesWithAuthorizationFilters(
-                filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType,
-                accessibleDepartmentIds, accessibleProjectIds, pageable);
+            List<Long> departmentIds = accessibleDepartmentIds;
+            List<Long> projectIds = accessibleProjectIds;
+            filesPage = findFiles(filename, tagFilter,
+                FileSpecifications.matchesFilters(filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType)
+                    .and(FileSpecifications.accessibleTo(departmentIds, projectIds)),
+                pageable,
+                () -> fileRepository.findSharedFilesWithAuthorizationFilters(
+                    filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType,
+                    departmentIds, projectIds, pageable));
         }
         
         return new PageResponse<FileResponse>(
-                filesPage.getContent().stream().map(this::convertToFileResponse).toList(),
+                convertToFileResponses(filesPage.getContent()),
                 filesPage.getNumber(),
                 filesPage.getSize(),
                 filesPage.getTotalElements(),
@@ -284,7 +497,7 @@ public class FileService {
     }
 
     public PageResponse<FileResponse> getSharedFilesByDepartment(Long userId, Long departmentId, String filename, 
-                                                               Long departmentCategoryId, Long fileTypeId, String contentType, 
+                                                               Long departmentCategoryId, Long fileTypeId, String contentType, List<String> tags, String tagMatch, 
                                                                int page, int size, String sortBy, String sortDirection) {
         // Check if current user can view files in this department
         if (!userAuthorizationService.canViewDepartmentFiles(departmentId)) {
@@ -293,12 +506,17 @@ public class FileService {
         
         Sort sort = Sort.by(Sort.Direction.fromString(sortDirection), sortBy);
         Pageable pageable = PageRequest.of(page, size, sort);
+        Specification<File> tagFilter = tagService.fileFilter(tags, tagMatch);
         
-        Page<File> filesPage = fileRepository.findSharedFilesByDepartment(
-            departmentId, filename, departmentCategoryId, fileTypeId, contentType, pageable);
+        Page<File> filesPage = findFiles(filename, tagFilter,
+            FileSpecifications.matchesFilters(filename, departmentCategoryId, null, null, fileTypeId, contentType)
+                .and(FileSpecifications.sharedInDepartment(departmentId)),
+            pageable,
+            () -> fileRepository.findSharedFilesByDepartment(
+                departmentId, filename, departmentCategoryId, fileTypeId, contentType, pageable));
         
         return new PageResponse<FileResponse>(
-                filesPage.getContent().stream().map(this::convertToFileResponse).toList(),
+                convertToFileResponses(filesPage.getContent()),
                 filesPage.getNumber(),
                 filesPage.getSize(),
                 filesPage.getTotalElements(),
@@ -311,7 +529,7 @@ public class FileService {
     }
 
     public PageResponse<FileResponse> getSharedFilesByProject(Long userId, Long projectId, String filename, 
-                                                            Long fileTypeId, String contentType, 
+                                                            Long fileTypeId, String contentType, List<String> tags, String tagMatch, 
                                                             int page, int size, String sortBy, String sortDirection) {
         // Check if current user can view files in this project
         if (!userAuthorizationService.canViewProjectFiles(projectId)) {
@@ -320,12 +538,17 @@ public class FileService {
         
         Sort sort = Sort.by(Sort.Direction.fromString(sortDirection), sortBy);
         Pageable pageable = PageRequest.of(page, size, sort);
+        Specification<File> tagFilter = tagService.fileFilter(tags, tagMatch);
         
-        Page<File> filesPage = fileRepository.findSharedFilesByProject(
-            projectId, filename, fileTypeId, contentType, pageable);
+        Page<File> filesPage = findFiles(filename, tagFilter,
+            FileSpecifications.matchesFilters(filename, null, null, null, fileTypeId, contentType)
+                .and(FileSpecifications.sharedInProject(projectId)),
+            pageable,
+            () -> fileRepository.findSharedFilesByProject(
+                projectId, filename, fileTypeId, contentType, pageable));
         
         return new PageResponse<FileResponse>(
-                filesPage.getContent().stream().map(this::convertToFileResponse).toList(),
+                convertToFileResponses(filesPage.getContent()),
                 filesPage.getNumber(),
                 filesPage.getSize(),
                 filesPage.getTotalElements(),
@@ -337,6 +560,165 @@ public class FileService {
         );
     }
     
+    /**
+     * Runs the listing through the filename trigram index when it can narrow the fragment down: the filters
+     * (which keep the LIKE, to verify the candidates) then only look at the candidate ids. Tag filters also go
+     * through the specification. Otherwise runs the LIKE query.
+     */
+    private Page<File> findFiles(String filename, Specification<File> tagFilter, Specification<File> filters,
+                                 Pageable pageable, Supplier<Page<File>> likeQuery) {
+        Optional<List<Long>> candidates = filenameSearchIndex.candidates(filename);
+        if (candidates.isEmpty() && tagFilter == null) {
+            return likeQuery.get();
+        }
+        Specification<File> specification = filters.and(tagFilter);
+        if (candidates.isPresent()) {
+            if (candidates.get().isEmpty()) {
+                return Page.empty(pageable);
+            }
+            specification = specification.and(FileSpecifications.idIn(candidates.get()));
+        }
+        return fileRepository.findAll(specification, pageable);
+    }
+    
+    // Keyset (cursor) variants of the listings above: they seek past the last returned (sort value, id)
+    // instead of skipping OFFSET rows and run no COUNT query, so deep pages cost the same as the first
+    
+    public CursorPageResponse<FileResponse> scrollUserFiles(Long userId, String filename, Long departmentCategoryId,
+                                                          Long departmentId, Long projectId, Long fileTypeId, String contentType, List<String> tags, String tagMatch,
+                                                          String cursor, int size, String sortBy, String sortDirection) {
+        Specification<File> filters = FileSpecifications.matchesFilters(
+                filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType);
+        if (userAuthorizationService.isUserAdmin(userId)) {
+            filters = filters.and(FileSpecifications.uploadedBy(userId));
+        } else {
+            filters = filters.and(accessibleFiles());
+        }
+        return scrollFiles(filename, filters.and(tagService.fileFilter(tags, tagMatch)), cursor, size, sortBy, sortDirection);
+    }
+    
+    public CursorPageResponse<FileResponse> scrollSharedFiles(Long userId, String filename, Long departmentCategoryId,
+                                                            Long departmentId, Long projectId, Long fileTypeId, String contentType, List<String> tags, String tagMatch,
+                                                            String cursor, int size, String sortBy, String sortDirection) {
+        Specification<File> filters = FileSpecifications.matchesFilters(
+                filename, departmentCategoryId, departmentId, projectId, fileTypeId, contentType);
+        if (!userAuthorizationService.isUserAdmin(userId)) {
+            filters = filters.and(accessibleFiles());
+        }
+        return scrollFiles(filename, filters.and(tagService.fileFilter(tags, tagMatch)), cursor, size, sortBy, sortDirection);
+    }
+    
+    public CursorPageResponse<FileResponse> scrollSharedFilesByDepartment(Long userId, Long departmentId, String filename,
+                                                                        Long departmentCategoryId, Long fileTypeId, String contentType, List<String> tags, String tagMatch,
+                                                                        String cursor, int size, String sortBy, String sortDirection) {
+        if (!userAuthorizationService.canViewDepartmentFiles(departmentId)) {
+            throw new RuntimeException("You don't have permission to view files in this department");
+        }
+        
+        Specification<File> filters = FileSpecifications.matchesFilters(
+                filename, departmentCategoryId, null, null, fileTypeId, contentType)
+                .and(FileSpecifications.sharedInDepartment(departmentId));
+        return scrollFiles(filename, filters.and(tagService.fileFilter(tags, tagMatch)), cursor, size, sortBy, sortDirection);
+    }
+    
+    public CursorPageResponse<FileResponse> scrollSharedFilesByProject(Long userId, Long projectId, String filename,
+                                                                     Long fileTypeId, String contentType, List<String> tags, String tagMatch,
+                                                                     String cursor, int size, String sortBy, String sortDirection) {
+        if (!userAuthorizationService.canViewProjectFiles(projectId)) {
+            throw new RuntimeException("You don't have permission to view files in this project");
+        }
+        
+        Specification<File> filters = FileSpecifications.matchesFilters(
+                filename, null, null, null, fileTypeId, contentType)
+                .and(FileSpecifications.sharedInProject(projectId));
+        return scrollFiles(filename, filters.and(tagService.fileFilter(tags, tagMatch)), cursor, size, sortBy, sortDirection);
+    }
+    
+    private CursorPageResponse<FileResponse> scrollFiles(String filename, Specification<File> filters, String cursor, int size,
+                                                         String sortBy, String sortDirection) {
+        Sort.Direction direction = Sort.Direction.fromString(sortDirection);
+        Sort sort = FileListCursor.sort(sortBy, direction);
+        int limit = Math.max(1, Math.min(size, maxScrollSize));
+        
+        Specification<File> specification = filters;
+        Optional<List<Long>> candidates = filenameSearchIndex.candidates(filename);
+        if (candidates.isPresent()) {
+            if (candidates.get().isEmpty()) {
+                return new CursorPageResponse<FileResponse>(List.of(), 0, null, false);
+            }
+            specification = specification.and(FileSpecifications.idIn(candidates.get()));
+        }
+        if (cursor != null && !cursor.isBlank()) {
+            FileListCursor position = FileListCursor.decode(cursor, sortBy, direction);
+            specification = specification.and(FileSpecifications.after(sortBy, direction, position.sortValue(), position.id()));
+        }
+        
+        // One row beyond the page tells whether there is a next page without counting
+        List<File> files = fileRepository.findBy(specification, query -> query.sortBy(sort).limit(limit + 1).all());
+        boolean hasNext = files.size() > limit;
+        List<File> content = hasNext ? files.subList(0, limit) : files;
+        String nextCursor = hasNext ? FileListCursor.after(content.get(content.size() - 1), sortBy, direction).encode() : null;
+        
+        return new CursorPageResponse<FileResponse>(
+                convertToFileResponses(content),
+                content.size(),
+                nextCursor,
+                hasNext
+        );
+    }
+    
+    /**
+     * Full-text search over filename, title, description, tags and extracted content, best match first.
+     * Results are limited to files the user can see, as in the shared file listing.
+     */
+    public PageResponse<FileResponse> searchFiles(Long userId, String query, Long departmentId, Long projectId,
+                                                  Long fileTypeId, int page, int size) throws IOException {
+        int pageNumber = Math.max(0, page);
+        int pageSize = Math.max(1, size);
+        FileSearchIndex.SearchHits hits;
+        if (userAuthorizationService.isUserAdmin(userId)) {
+            hits = fileSearchIndex.search(query, null, null, departmentId, projectId, fileTypeId, pageNumber * pageSize, pageSize);
+        } else {
+            hits = fileSearchIndex.search(query, userAuthorizationService.getAccessibleDepartmentIds(),
+                    userAuthorizationService.getAccessibleProjectIds(), departmentId, projectId, fileTypeId,
+                    pageNumber * pageSize, pageSize);
+        }
+        
+        // Keep the ranking; files deleted or moved out of the user's reach after they were indexed are dropped
+        Map<Long, File> filesById = fileRepository.findAllById(hits.fileIds()).stream()
+                .filter(file -> !Boolean.TRUE.equals(file.getIsDeleted()))
+                .filter(accessChecker(userId))
+                .collect(Collectors.toMap(File::getId, file -> file));
+        List<File> files = hits.fileIds().stream().map(filesById::get).filter(Objects::nonNull).toList();
+        int totalPages = (int) ((hits.totalHits() + pageSize - 1) / pageSize);
+        
+        return new PageResponse<FileResponse>(
+                convertToFileResponses(files),
+                pageNumber,
+                pageSize,
+                hits.totalHits(),
+                totalPages,
+                pageNumber == 0,
+                pageNumber + 1 >= totalPages,
+                pageNumber + 1 < totalPages,
+                pageNumber > 0
+        );
+    }
+    
+    private Specification<File> accessibleFiles() {
+        List<Long> accessibleDepartmentIds = userAuthorizationService.getAccessibleDepartmentIds();
+        List<Long> accessibleProjectIds = userAuthorizationService.getAccessibleProjectIds();
+        
+        // If user has no accessible departments/projects, they can only see public files
+        if (accessibleDepartmentIds.isEmpty()) {
+            accessibleDepartmentIds = List.of(-1L); // Use -1 as placeholder for no access
+        }
+        if (accessibleProjectIds.isEmpty()) {
+            accessibleProjectIds = List.of(-1L);
+        }
+        return FileSpecifications.accessibleTo(accessibleDepartmentIds, accessibleProjectIds);
+    }
+    
     public Optional<FileResponse> getFileById(Long fileId) {
         Long userId = securityUtil.getCurrentUserId()
                 .orElseThrow(() -> new RuntimeException("User not authenticated"));
@@ -350,30 +732,7 @@ public class FileService {
         File file = fileOpt.get();
         
         // Check if user can access this file
-        boolean canAccess = false;
-        
-        // Admin can access all files
-        if (userAuthorizationService.isUserAdmin(userId)) {
-            canAccess = true;
-        }
-        // User uploaded this file
-        else if (file.getUploaderId().equals(userId)) {
-            canAccess = true;
-        }
-        // File is public
-        else if ("PUBLIC".equals(file.getVisibility())) {
-            canAccess = true;
-        }
-        // Project files: only accessible to project members
-        else if (file.getProjectId() != null && userAuthorizationService.canViewProjectFiles(file.getProjectId())) {
-            canAccess = true;
-        }
-        // Department files (without project): accessible to department members
-        else if (file.getProjectId() == null && file.getDepartmentId() != null && userAuthorizationService.canViewDepartmentFiles(file.getDepartmentId())) {
-            canAccess = true;
-        }
-        
-        if (!canAccess) {
+        if (!canAccessFile(file, userId)) {
             throw new RuntimeException("You don't have permission to access this file");
         }
         
@@ -408,36 +767,26 @@ public class FileService {
         file.setIsDeleted(true);
         file.setDeletedAt(LocalDateTime.now());
         fileRepository.save(file);
+        downloadUrlSigner.forget(fileId);
+        fileSearchIndex.remove(fileId);
+        filenameSearchIndex.remove(file);
+        tagService.untagFile(fileId);
         
-        // Delete from primary storage (Google Drive)
-        if ("google-drive".equals(primaryStorage) && file.getDriveFileId() != null) {
-            try {
-                boolean driveDeleted = googleDriveService.deleteFile(file.getDriveFileId());
-                if (driveDeleted) {
-                    log.info("File deleted from Google Drive (primary): {}", file.getDriveFileId());
-                }
-            } catch (Exception e) {
-                log.warn("Failed to delete from Google Drive (primary): {}", e.getMessage());
-            }
-        }
-        
-        // Delete from fallback storage (local) if exists
-        if (file.getFilePath() != null) {
-            try {
-                Path filePath = Paths.get(file.getFilePath());
-                if (Files.exists(filePath)) {
-                    Files.delete(filePath);
-                    log.info("File deleted from local storage (fallback): {}", filePath);
-                }
-            } catch (Exception e) {
-                log.warn("Failed to delete from local storage: {}", e.getMessage());
-            }
+        // Drop this file's reference on the shared content; unreferenced blobs are reclaimed in the background
+        if (fileBlobRepository.findByFileHash(file.getFileHash()).isPresent()) {
+            blobStoreService.release(file.getFileHash());
+        } else {
+            // Stored before content-addressed blobs; the content belongs to this file alone
+            blobStoreService.deleteContent("google-drive".equals(primaryStorage) ? file.getDriveFileId() : null, file.getFilePath());
         }
         
         return true;
     }
     
-    public byte[] downloadFile(Long fileId) throws IOException {
+    /**
+     * Authorize a download and resolve where its content lives, without reading any of it
+     */
+    public FileDownload prepareDownload(Long fileId) {
         Long userId = securityUtil.getCurrentUserId()
                 .orElseThrow(() -> new RuntimeException("User not authenticated"));
         
@@ -450,68 +799,451 @@ public class FileService {
         File file = fileOpt.get();
         
         // Check if user can access this file
-        boolean canAccess = false;
+        if (!canAccessFile(file, userId)) {
+            throw new RuntimeException("You don't have permission to access this file");
+        }
         
-        // Admin can access all files
-        if (userAuthorizationService.isUserAdmin(userId)) {
-            canAccess = true;
+        return toDownload(file);
+    }
+    
+    /**
+     * Authorize a multi-file download: either the listed files, each checked like {@link #prepareDownload},
+     * or every file of a project or department that the caller can access.
+     */
+    public List<FileDownload> prepareArchive(List<Long> fileIds, Long departmentId, Long projectId) {
+        Long userId = securityUtil.getCurrentUserId()
+                .orElseThrow(() -> new RuntimeException("User not authenticated"));
+        
+        Predicate<File> accessible = accessChecker(userId);
+        List<File> files;
+        if (fileIds != null && !fileIds.isEmpty()) {
+            if (fileIds.size() > maxArchiveFiles) {
+                throw new RuntimeException("Too many files selected, the maximum is " + maxArchiveFiles);
+            }
+            Set<Long> requestedIds = new LinkedHashSet<>(fileIds);
+            Map<Long, File> filesById = fileRepository.findAllById(requestedIds).stream()
+                    .filter(f -> !f.getIsDeleted())
+                    .collect(Collectors.toMap(File::getId, Function.identity()));
+            files = new ArrayList<>(requestedIds.size());
+            for (Long fileId : requestedIds) {
+                File file = filesById.get(fileId);
+                if (file == null) {
+                    throw new RuntimeException("File not found: " + fileId);
+                }
+                if (!accessible.test(file)) {
+                    throw new RuntimeException("You don't have permission to access file " + fileId);
+                }
+                files.add(file);
+            }
+        } else if (projectId != null) {
+            files = fileRepository.findByProjectIdAndIsDeletedFalse(projectId).stream()
+                    .filter(accessible)
+                    .toList();
+        } else if (departmentId != null) {
+            files = fileRepository.findByDepartmentIdAndIsDeletedFalse(departmentId).stream()
+                    .filter(accessible)
+                    .toList();
+        } else {
+            throw new RuntimeException("Select files, a department or a project to download");
         }
-        // User uploaded this file
-        else if (file.getUploaderId().equals(userId)) {
-            canAccess = true;
+        
+        if (files.isEmpty()) {
+            throw new RuntimeException("No accessible files to download");
         }
-        // File is public
-        else if ("PUBLIC".equals(file.getVisibility())) {
-            canAccess = true;
+        if (files.size() > maxArchiveFiles) {
+            throw new RuntimeException("Too many files to download at once, the maximum is " + maxArchiveFiles);
         }
-        // Project files: only accessible to project members
-        else if (file.getProjectId() != null && userAuthorizationService.canViewProjectFiles(file.getProjectId())) {
-            canAccess = true;
+        return files.stream().map(this::toDownload).toList();
+    }
+    
+    /**
+     * Issue a short-lived signed link to a file the caller can download, so that repeated and ranged
+     * requests (e.g. media playback) can be served without authenticating each one
+     */
+    public SignedDownloadResponse createSignedDownload(Long fileId, boolean inline) {
+        FileDownload download = prepareDownload(fileId);
+        DownloadUrlSigner.SignedLink link = downloadUrlSigner.sign(download, inline);
+        return new SignedDownloadResponse(link.getPath(),
+                LocalDateTime.ofInstant(Instant.ofEpochSecond(link.expires()), ZoneId.systemDefault()));
+    }
+    
+    /**
+     * Resolve a signed link. The signature is checked in memory, and the download remembered when the link was
+     * issued is used; only links issued by another instance, or evicted since, load the row by primary key.
+     * A remembered download is only served while the file is still live: it may have been deleted on another
+     * instance, which cannot clear this instance's memory. One whose only copy has moved (e.g. by the local
+     * storage migration) is looked up again.
+     */
+    public FileDownload resolveSignedDownload(Long fileId, String fileHash, long expires, String disposition, String signature) {
+        if (!downloadUrlSigner.verify(fileId, fileHash, expires, disposition, signature)) {
+            throw new RuntimeException("Invalid or expired download link");
         }
-        // Department files (without project): accessible to department members
-        else if (file.getProjectId() == null && file.getDepartmentId() != null && userAuthorizationService.canViewDepartmentFiles(file.getDepartmentId())) {
-            canAccess = true;
+        FileDownload download = downloadUrlSigner.lookup(fileId)
+                .filter(remembered -> fileRepository.existsByIdAndIsDeletedFalse(fileId))
+                .filter(remembered -> remembered.getDriveFileId() != null || hasLocalCopy(remembered))
+                .orElseGet(() -> fileRepository.findById(fileId)
+                        .filter(file -> !file.getIsDeleted())
+                        .map(this::toDownload)
+                        .orElseThrow(() -> new RuntimeException("File not found")));
+        // The link is bound to the content it was issued for
+        if (!fileHash.equals(download.getFileHash())) {
+            throw new RuntimeException("Invalid or expired download link");
         }
+        return download;
+    }
+    
+    /**
+     * The preview image of a file the caller can access, or empty while it has not been generated yet
+     * (generation is then requested, e.g. for files uploaded before renditions existed)
+     */
+    public Optional<Path> findRendition(Long fileId) {
+        Long userId = securityUtil.getCurrentUserId()
+                .orElseThrow(() -> new RuntimeException("User not authenticated"));
         
-        if (!canAccess) {
+        File file = fileRepository.findById(fileId)
+                .filter(f -> !f.getIsDeleted())
+                .orElseThrow(() -> new RuntimeException("File not found"));
+        if (!canAccessFile(file, userId)) {
             throw new RuntimeException("You don't have permission to access this file");
         }
+        if (!renditionService.supports(file.getContentType(), file.getFileSize())) {
+            throw new RuntimeException("No preview image is available for this file type");
+        }
+        
+        Optional<Path> rendition = renditionService.find(file.getFileHash(), file.getContentType());
+        if (rendition.isEmpty()) {
+            renditionService.schedule(file);
+        }
+        return rendition;
+    }
+    
+    private FileDownload toDownload(File file) {
+        return new FileDownload(file.getId(), file.getOriginalFilename(), file.getContentType(), file.getFileSize(),
+                file.getFileHash(), file.getDriveFileId(), file.getFilePath(), file.getUploadedAt(), file.getVisibility());
+    }
+    
+    /**
+     * Stream a prepared download to the output through a fixed-size buffer
+     */
+    public void writeContent(FileDownload download, OutputStream outputStream) throws IOException {
+        writeContent(download, outputStream, 0, download.getFileSize());
+    }
+    
+    /**
+     * Stream {@code length} bytes starting at {@code start}, from the hot content cache when it holds this
+     * content and from storage otherwise. Only requests from the first byte count as a download.
+     */
+    public void writeContent(FileDownload download, OutputStream outputStream, long start, long length) throws IOException {
+        boolean whole = start == 0 && length == download.getFileSize();
+        
+        if (download.getFileHash() != null) {
+            if (hotContentCache.write(download.getFileHash(), outputStream, start, length)) {
+                if (start == 0) {
+                    downloadCounterService.record(download.getFileId());
+                }
+                return;
+            }
+            // Keep a copy of small whole reads so popular files stop going back to storage
+            if (whole && hotContentCache.accepts(length)) {
+                CapturingOutputStream capturingStream = new CapturingOutputStream(outputStream, (int) length);
+                writeFromStorage(download, capturingStream, start, length);
+                if (capturingStream.isComplete()) {
+                    hotContentCache.put(download.getFileHash(), capturingStream.getContent());
+                }
+                return;
+            }
+        }
+        writeFromStorage(download, outputStream, start, length);
+    }
+    
+    /**
+     * Local copies are read positionally and Drive copies with a ranged media request, so only the requested
+     * bytes are read from storage. Google Drive is tried first and local storage is the fallback; falling back
+     * is only possible while nothing has been written to the output yet.
+     */
+    private void writeFromStorage(FileDownload download, OutputStream outputStream, long start, long length) throws IOException {
+        boolean whole = start == 0 && length == download.getFileSize();
         
         // Primary storage: Try to download from Google Drive first
-        if ("google-drive".equals(primaryStorage) && file.getDriveFileId() != null) {
+        if ("google-drive".equals(primaryStorage) && download.getDriveFileId() != null) {
+            // Without a local copy, read through the disk cache rather than going back to Drive every time
+            if (!hasLocalCopy(download) && download.getFileHash() != null && driveContentCache.accepts(download.getFileSize())) {
+                CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+                try {
+                    Path cachedPath = driveContentCache.fetch(download);
+                    writeLocalCopy(cachedPath, countingStream, start, length);
+                    if (start == 0) {
+                        downloadCounterService.record(download.getFileId());
+                    }
+                    log.info("File downloaded from Google Drive (cached): {}", download.getDriveFileId());
+                    return;
+                } catch (IOException e) {
+                    if (countingStream.getCount() > 0) {
+                        throw e;
+                    }
+                    log.warn("Drive content cache unavailable, reading Google Drive directly: {}", e.getMessage());
+                }
+            }
+            
+            CountingOutputStream countingStream = new CountingOutputStream(outputStream);
             try {
-                byte[] driveContent = googleDriveService.downloadFile(file.getDriveFileId());
-                if (driveContent != null) {
-                    // Increment download count
-                    file.setDownloadCount(file.getDownloadCount() + 1);
-                    fileRepository.save(file);
-                    log.info("File downloaded from Google Drive (primary): {}", file.getDriveFileId());
-                    return driveContent;
+                if (whole) {
+                    googleDriveService.downloadFile(download.getDriveFileId(), countingStream);
+                } else {
+                    googleDriveService.downloadFile(download.getDriveFileId(), start, start + length - 1, countingStream);
+                }
+                if (start == 0) {
+                    downloadCounterService.record(download.getFileId());
                 }
+                log.info("File downloaded from Google Drive (primary): {}", download.getDriveFileId());
+                return;
             } catch (Exception e) {
+                if (countingStream.getCount() > 0) {
+                    throw new IOException("Google Drive download failed after " + countingStream.getCount() + " bytes: " + e.getMessage(), e);
+                }
                 log.warn("Failed to download from Google Drive (primary), trying fallback storage: {}", e.getMessage());
             }
         }
         
         // Fallback storage: Try local file
-        if (file.getFilePath() != null) {
-            try {
-                Path filePath = Paths.get(file.getFilePath());
-                if (Files.exists(filePath)) {
-                    // Increment download count
-                    file.setDownloadCount(file.getDownloadCount() + 1);
-                    fileRepository.save(file);
-                    log.info("File downloaded from local storage (fallback): {}", filePath);
-                    return Files.readAllBytes(filePath);
-                }
-            } catch (Exception e) {
-                log.error("Failed to download from local storage: {}", e.getMessage());
+        Path filePath = localCopyOf(download);
+        if (filePath != null) {
+            writeLocalCopy(filePath, outputStream, start, length);
+            if (start == 0) {
+                downloadCounterService.record(download.getFileId());
             }
+            log.info("File downloaded from local storage (fallback): {}", filePath);
+            return;
         }
         
         throw new RuntimeException("File not found in any storage location");
     }
     
+    /**
+     * The file's local copy, or null if it has none. A recorded path that no longer exists is resolved through the
+     * content's blob, whose copy may have been moved (e.g. by the local storage migration) after the row was written.
+     */
+    private Path localCopyOf(FileDownload download) {
+        if (hasLocalCopy(download)) {
+            return Paths.get(download.getFilePath());
+        }
+        if (download.getFileHash() == null) {
+            return null;
+        }
+        return fileBlobRepository.findByFileHash(download.getFileHash())
+                .map(FileBlob::getFilePath)
+                .map(Paths::get)
+                .filter(Files::exists)
+                .orElse(null);
+    }
+    
+    private void writeLocalCopy(Path filePath, OutputStream outputStream, long start, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(DOWNLOAD_BUFFER_SIZE);
+            long position = start;
+            long end = start + length;
+            while (position < end) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read == -1) {
+                    throw new EOFException("Local copy " + filePath + " is shorter than the requested range");
+                }
+                outputStream.write(buffer.array(), 0, read);
+                position += read;
+            }
+        }
+    }
+    
+    private boolean hasLocalCopy(FileDownload download) {
+        return download.getFilePath() != null && Files.exists(Paths.get(download.getFilePath()));
+    }
+    
+    /**
+     * The local copy to hand to the container's sendfile support, if this download would be served from local
+     * storage or the Drive disk cache anyway and the body is large enough to be worth it.
+     * The kernel then copies the file to the socket without it passing through the heap.
+     */
+    public Optional<Path> sendfileSource(FileDownload download, long length) {
+        if (!sendfileEnabled || length < sendfileMinBytes) {
+            return Optional.empty();
+        }
+        if ("google-drive".equals(primaryStorage) && download.getDriveFileId() != null) {
+            // Drive is read first, unless the content has no local copy and is already in the disk cache
+            return hasLocalCopy(download) ? Optional.empty() : driveContentCache.peek(download.getFileHash());
+        }
+        if (download.getFilePath() == null) {
+            return Optional.empty();
+        }
+        Path filePath = Paths.get(download.getFilePath());
+        return Files.isRegularFile(filePath) ? Optional.of(filePath.toAbsolutePath()) : Optional.empty();
+    }
+    
+    /**
+     * Count a download whose content is sent without {@link #writeContent}
+     */
+    public void recordDownload(FileDownload download) {
+        downloadCounterService.record(download.getFileId());
+        log.info("File downloaded via sendfile: {}", download.getFileId());
+    }
+    
+    /**
+     * Read a whole file into memory, for callers that need it as one array (e.g. AI analysis).
+     * Serving files to clients should stream with {@link #prepareDownload} and {@link #writeContent} instead.
+     */
+    public byte[] downloadFile(Long fileId) throws IOException {
+        FileDownload download = prepareDownload(fileId);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) Math.min(download.getFileSize(), Integer.MAX_VALUE - 8));
+        writeContent(download, outputStream);
+        return outputStream.toByteArray();
+    }
+    
+    /**
+     * Check whether the caller can read content with this hash, so the body never has to be re-sent.
+     * Only content reachable through a file the caller can already access is reported, to avoid
+     * leaking the existence of other users' files.
+     */
+    public boolean contentExists(String fileHash, long fileSize) {
+        Long userId = securityUtil.getCurrentUserId()
+                .orElseThrow(() -> new RuntimeException("User not authenticated"));
+        
+        return findAccessibleFileByContent(fileHash.toLowerCase(), fileSize, userId).isPresent();
+    }
+    
+    /**
+     * Create a new file record pointing at content the server already stores, without any upload body
+     */
+    public FileResponse uploadByReference(UploadByReferenceRequest request) {
+        Long userId = securityUtil.getCurrentUserId()
+                .orElseThrow(() -> new RuntimeException("User not authenticated"));
+        
+        FileUploadRequest uploadRequest = toFileUploadRequest(request);
+        validateUploadPreconditions(uploadRequest, request.getFileSize());
+        
+        File source = findAccessibleFileByContent(request.getFileHash().toLowerCase(), request.getFileSize(), userId)
+                .orElseThrow(() -> new RuntimeException("Content not found, please upload the file"));
+        
+        String originalFilename = request.getOriginalFilename() != null ? request.getOriginalFilename() : source.getOriginalFilename();
+        
+        File file = new File();
+        file.setUploaderId(userId);
+        file.setOriginalFilename(originalFilename);
+        file.setStoredFilename(generateUniqueFilename(originalFilename));
+        file.setFileSize(source.getFileSize());
+        file.setContentType(source.getContentType());
+        file.setFileHash(source.getFileHash());
+        file.setTitle(uploadRequest.getTitle() != null ? uploadRequest.getTitle() : originalFilename);
+        file.setDescription(uploadRequest.getDescription());
+        file.setDepartmentCategoryId(uploadRequest.getDepartmentCategoryId());
+        file.setDepartmentId(uploadRequest.getDepartmentId());
+        file.setProjectId(uploadRequest.getProjectId());
+        file.setFileTypeId(uploadRequest.getFileTypeId());
+        file.setTags(uploadRequest.getTags());
+        file.setVisibility(uploadRequest.getVisibility());
+        
+        FileBlob blob = blobStoreService.acquireFor(source);
+        file.setDriveFileId(blob.getDriveFileId());
+        file.setFilePath(blob.getFilePath());
+        
+        try {
+            file = fileRepository.save(file);
+        } catch (RuntimeException e) {
+            blobStoreService.release(blob.getFileHash());
+            throw e;
+        }
+        blobStoreService.copyLateLocations(List.of(file));
+        
+        fileSearchIndex.index(file);
+        filenameSearchIndex.add(file);
+        tagService.tagFile(file);
+        log.info("File {} created by reference to content {}", file.getId(), file.getFileHash());
+        return convertToFileResponse(file);
+    }
+    
+    private Optional<File> findAccessibleFileByContent(String fileHash, long fileSize, Long userId) {
+        return fileRepository.findByFileHashAndIsDeletedFalse(fileHash).stream()
+                .filter(file -> file.getFileSize() == fileSize)
+                .filter(file -> canAccessFile(file, userId))
+                .findFirst();
+    }
+    
+    private boolean canAccessFile(File file, Long userId) {
+        // Admin can access all files
+        if (userAuthorizationService.isUserAdmin(userId)) {
+            return true;
+        }
+        // User uploaded this file
+        if (file.getUploaderId().equals(userId)) {
+            return true;
+        }
+        // File is public
+        if ("PUBLIC".equals(file.getVisibility())) {
+            return true;
+        }
+        // Project files: only accessible to project members
+        if (file.getProjectId() != null) {
+            return userAuthorizationService.canViewProjectFiles(file.getProjectId());
+        }
+        // Department files (without project): accessible to department members
+        return file.getDepartmentId() != null && userAuthorizationService.canViewDepartmentFiles(file.getDepartmentId());
+    }
+    
+    /**
+     * Same rules as {@link #canAccessFile}, with the user's role and memberships loaded once for checking many files
+     */
+    private Predicate<File> accessChecker(Long userId) {
+        if (userAuthorizationService.isUserAdmin(userId)) {
+            return file -> true;
+        }
+        Set<Long> departmentIds = new HashSet<>(userAuthorizationService.getAccessibleDepartmentIds());
+        Set<Long> projectIds = new HashSet<>(userAuthorizationService.getAccessibleProjectIds());
+        return file -> file.getUploaderId().equals(userId)
+                || "PUBLIC".equals(file.getVisibility())
+                || (file.getProjectId() != null
+                        ? projectIds.contains(file.getProjectId())
+                        : file.getDepartmentId() != null && departmentIds.contains(file.getDepartmentId()));
+    }
+    
+    private FileUploadRequest toFileUploadRequest(UploadByReferenceRequest request) {
+        FileUploadRequest uploadRequest = new FileUploadRequest();
+        uploadRequest.setTitle(request.getTitle());
+        uploadRequest.setDescription(request.getDescription());
+        uploadRequest.setDepartmentCategoryId(request.getDepartmentCategoryId());
+        uploadRequest.setDepartmentId(request.getDepartmentId());
+        uploadRequest.setProjectId(request.getProjectId());
+        uploadRequest.setFileTypeId(request.getFileTypeId());
+        uploadRequest.setTags(request.getTags() != null && !request.getTags().trim().isEmpty() ? request.getTags().trim() : null);
+        uploadRequest.setVisibility(request.getVisibility() != null ? request.getVisibility().toUpperCase() : "PRIVATE");
+        return uploadRequest;
+    }
+    
+    private File newFileEntity(Long userId, StagedUpload stagedUpload, FileUploadRequest request, String storedFilename) {
+        String originalFilename = stagedUpload.getOriginalFilename();
+        
+        // Create file entity
+        File file = new File();
+        file.setUploaderId(userId);
+        file.setOriginalFilename(originalFilename);
+        file.setStoredFilename(storedFilename);
+        file.setFileSize(stagedUpload.getSize());
+        file.setContentType(stagedUpload.getContentType());
+        file.setFileHash(stagedUpload.getFileHash());
+        file.setTitle(request.getTitle() != null ? request.getTitle() : originalFilename);
+        file.setDescription(request.getDescription());
+        file.setDepartmentCategoryId(request.getDepartmentCategoryId());
+        file.setDepartmentId(request.getDepartmentId());
+        file.setProjectId(request.getProjectId());
+        file.setFileTypeId(request.getFileTypeId());
+        // Handle tags properly for JSON column - convert empty/null to null or valid JSON
+        String tags = request.getTags();
+        if (tags == null || tags.trim().isEmpty()) {
+            file.setTags(null); // NULL is valid for JSON column
+        } else {
+            file.setTags(tags);
+        }
+        file.setVisibility(request.getVisibility());
+        return file;
+    }
+    
     private void validateFile(MultipartFile file) {
         if (file.isEmpty()) {
             throw new RuntimeException("File is empty");
@@ -524,24 +1256,6 @@ public class FileService {
         // Add more validation as needed (file type, etc.)
     }
     
-    private String calculateFileHash(byte[] fileContent) {
-        try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] hash = digest.digest(fileContent);
-            StringBuilder hexString = new StringBuilder();
-            for (byte b : hash) {
-                String hex = Integer.toHexString(0xff & b);
-                if (hex.length() == 1) {
-                    hexString.append('0');
-                }
-                hexString.append(hex);
-            }
-            return hexString.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("Error calculating file hash", e);
-        }
-    }
-    
     private String generateUniqueFilename(String originalFilename) {
         String extension = "";
         if (originalFilename != null && originalFilename.contains(".")) {
@@ -551,62 +1265,72 @@ public class FileService {
     }
     
     private FileResponse convertToFileResponse(File file) {
-        FileResponse response = new FileResponse();
-        response.setId(file.getId());
-        response.setOriginalFilename(file.getOriginalFilename());
-        response.setTitle(file.getTitle());
-        response.setDescription(file.getDescription());
-        response.setFileSize(file.getFileSize());
-        response.setContentType(file.getContentType());
-        response.setFileHash(file.getFileHash());
-        response.setUploaderId(file.getUploaderId());
-        response.setDepartmentId(file.getDepartmentId());
-        response.setDepartmentCategoryId(file.getDepartmentCategoryId());
-        response.setFileTypeId(file.getFileTypeId());
-        response.setProjectId(file.getProjectId());
-        response.setTags(file.getTags());
-        response.setVisibility(file.getVisibility());
-        response.setDownloadCount(file.getDownloadCount());
-        response.setIsDeleted(file.getIsDeleted());
-        response.setUploadedAt(file.getUploadedAt());
-        response.setUpdatedAt(file.getUpdatedAt());
-        response.setDeletedAt(file.getDeletedAt());
-        response.setDriveFileId(file.getDriveFileId());
-        response.setDriveFolderId(file.getDriveFolderId());
-        
-        // Set uploader name if uploader exists
-        if (file.getUploaderId() != null) {
-            userRepository.findById(file.getUploaderId())
-                    .ifPresent(user -> response.setUploaderName(user.getFullName()));
-        }
-        
-        // Set department category name if category exists
-        if (file.getDepartmentCategoryId() != null) {
-            departmentCategoryRepository.findById(file.getDepartmentCategoryId())
-                    .ifPresent(category -> response.setDepartmentCategoryName(category.getName()));
-        }
+        return convertToFileResponses(List.of(file)).get(0);
+    }
+    
+    /**
+     * Build responses for a list of files. Names of uploaders, categories, file types, departments and projects
+     * are resolved with one IN query per entity type for the whole list, not one lookup per file.
+     */
+    private List<FileResponse> convertToFileResponses(List<File> files) {
+        Map<Long, String> uploaderNames = namesById(files, File::getUploaderId, userRepository::findAllById, User::getId, User::getFullName);
+        Map<Long, String> categoryNames = namesById(files, File::getDepartmentCategoryId, departmentCategoryRepository::findAllById, DepartmentCategory::getId, DepartmentCategory::getName);
+        Map<Long, String> fileTypeNames = namesById(files, File::getFileTypeId, fileTypeRepository::findAllById, FileType::getId, FileType::getName);
+        Map<Long, String> departmentNames = namesById(files, File::getDepartmentId, departmentRepository::findAllById, Department::getId, Department::getName);
+        Map<Long, String> projectNames = namesById(files, File::getProjectId, projectRepository::findAllById, Project::getId, Project::getName);
         
-        // Set file type name if file type exists
-        if (file.getFileTypeId() != null) {
-            fileTypeRepository.findById(file.getFileTypeId())
-                    .ifPresent(fileType -> response.setFileTypeName(fileType.getName()));
+        List<FileResponse> responses = new ArrayList<>(files.size());
+        for (File file : files) {
+            FileResponse response = new FileResponse();
+            response.setId(file.getId());
+            response.setOriginalFilename(file.getOriginalFilename());
+            response.setTitle(file.getTitle());
+            response.setDescription(file.getDescription());
+            response.setFileSize(file.getFileSize());
+            response.setContentType(file.getContentType());
+            response.setFileHash(file.getFileHash());
+            response.setUploaderId(file.getUploaderId());
+            response.setDepartmentId(file.getDepartmentId());
+            response.setDepartmentCategoryId(file.getDepartmentCategoryId());
+            response.setFileTypeId(file.getFileTypeId());
+            response.setProjectId(file.getProjectId());
+            response.setTags(file.getTags());
+            response.setVisibility(file.getVisibility());
+            response.setDownloadCount(file.getDownloadCount());
+            response.setIsDeleted(file.getIsDeleted());
+            response.setUploadedAt(file.getUploadedAt());
+            response.setUpdatedAt(file.getUpdatedAt());
+            response.setDeletedAt(file.getDeletedAt());
+            response.setDriveFileId(file.getDriveFileId());
+            response.setDriveFolderId(file.getDriveFolderId());
+            
+            // Names of the referenced entities (left unset when the reference is missing)
+            response.setUploaderName(uploaderNames.get(file.getUploaderId()));
+            response.setDepartmentCategoryName(categoryNames.get(file.getDepartmentCategoryId()));
+            response.setFileTypeName(fileTypeNames.get(file.getFileTypeId()));
+            response.setDepartmentName(departmentNames.get(file.getDepartmentId()));
+            response.setProjectName(projectNames.get(file.getProjectId()));
+            
+            // Generate download URL
+            response.setDownloadUrl("/api/files/" + file.getId() + "/download");
+            response.setPreviewUrl("/api/files/" + file.getId() + "/preview");
+            responses.add(response);
         }
-        
-        // Set department name if department exists  
-        if (file.getDepartmentId() != null && file.getDepartment() != null) {
-            response.setDepartmentName(file.getDepartment().getName());
+        return responses;
+    }
+    
+    private <E> Map<Long, String> namesById(List<File> files, Function<File, Long> referenceOf,
+                                            Function<Set<Long>, List<E>> loadAll,
+                                            Function<E, Long> idOf, Function<E, String> nameOf) {
+        Set<Long> ids = files.stream().map(referenceOf).filter(Objects::nonNull).collect(Collectors.toSet());
+        if (ids.isEmpty()) {
+            return Map.of();
         }
-        
-        // Set project name if project exists
-        if (file.getProjectId() != null && file.getProject() != null) {
-            response.setProjectName(file.getProject().getName());
+        Map<Long, String> names = new HashMap<>();
+        for (E entity : loadAll.apply(ids)) {
+            names.put(idOf.apply(entity), nameOf.apply(entity));
         }
-        
-        // Generate download URL
-        response.setDownloadUrl("/api/files/" + file.getId() + "/download");
-        response.setPreviewUrl("/api/files/" + file.getId() + "/preview");
-        
-        return response;
+        return names;
     }
     
     /**
@@ -629,4 +1353,71 @@ public class FileService {
             }
         }
     }
+    
+    /**
+     * Tracks how much has been written, so a failed source can only be replaced before the client saw any bytes
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+        
+        private long count;
+        
+        CountingOutputStream(OutputStream outputStream) {
+            super(outputStream);
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+        
+        long getCount() {
+            return count;
+        }
+    }
+    
+    /**
+     * Passes bytes through while keeping a copy of the first {@code size} of them
+     */
+    private static class CapturingOutputStream extends FilterOutputStream {
+        
+        private final byte[] content;
+        private int count;
+        private boolean overflowed;
+        
+        CapturingOutputStream(OutputStream outputStream, int size) {
+            super(outputStream);
+            this.content = new byte[size];
+        }
+        
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (count + len > content.length) {
+                overflowed = true;
+                return;
+            }
+            System.arraycopy(b, off, content, count, len);
+            count += len;
+        }
+        
+        boolean isComplete() {
+            return !overflowed && count == content.length;
+        }
+        
+        byte[] getContent() {
+            return content;
+        }
+    }
 }
@@ -0,0 +1,168 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.entity.File;
+import com.duongdat.filehub.repository.FileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over file names and titles, used to turn the listings' infix filename filter
+ * ({@code LIKE '%fragment%'}) into a short list of candidate ids before the database applies the other filters.
+ * Loaded from the files table at startup, updated on upload and delete, and topped up periodically with
+ * rows inserted by other instances. Until it is loaded, and for fragments it cannot narrow down, the listings
+ * fall back to the plain LIKE scan. Candidates are a superset of the matches: removed or stale entries only
+ * cost a wasted primary key lookup, since the listing query still checks the LIKE on the candidate rows.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class FilenameSearchIndex {
+
+    private static final int LOAD_BATCH_SIZE = 5000;
+
+    private final FileRepository fileRepository;
+    private final ThreadPoolTaskExecutor searchIndexExecutor; // Resolved by name, see ExecutorConfig
+
+    @Value("${file.search.trigram.enabled:true}")
+    private boolean enabled;
+
+    @Value("${file.search.trigram.max-candidates:5000}") // Broader fragments use LIKE, which finds dense matches quickly
+    private int maxCandidates;
+
+    @Value("${file.search.trigram.max-scan:200000}") // Longest posting list intersected per search
+    private int maxScan;
+
+    @Value("${file.search.trigram.sync-overlap:1000}") // Ids re-read below the highest one seen, for late commits
+    private long syncOverlap;
+
+    private final TrigramIndex index = new TrigramIndex();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean loaded;
+    private volatile boolean outOfRange; // A file id no longer fits the int posting lists
+    private volatile long highestId;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (!enabled) {
+            return;
+        }
+        searchIndexExecutor.execute(() -> {
+            try {
+                long started = System.nanoTime();
+                int files = loadAfter(0);
+                loaded = !outOfRange;
+                log.info("Filename trigram index loaded: {} files, {} trigrams in {} ms",
+                        files, trigramCount(), (System.nanoTime() - started) / 1_000_000);
+            } catch (RuntimeException e) {
+                log.warn("Failed to load filename trigram index, listings keep using LIKE: {}", e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * Pick up files inserted by other instances since the last load
+     */
+    @Scheduled(fixedDelayString = "${file.search.trigram.sync-interval-ms:10000}")
+    public void sync() {
+        if (!loaded) {
+            return;
+        }
+        try {
+            loadAfter(Math.max(0, highestId - syncOverlap));
+        } catch (RuntimeException e) {
+            log.warn("Failed to sync filename trigram index: {}", e.getMessage());
+        }
+    }
+
+    public void add(File file) {
+        if (!enabled || outOfRange || file.getId() == null) {
+            return;
+        }
+        add(file.getId(), file.getOriginalFilename(), file.getTitle());
+    }
+
+    public void remove(File file) {
+        if (!enabled || file.getId() == null || file.getId() > Integer.MAX_VALUE) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            index.remove(file.getId().intValue(), file.getOriginalFilename(), file.getTitle());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the files whose name or title may contain the fragment, or empty when the listing should fall
+     * back to LIKE (index not loaded, fragment shorter than three characters or matching too many files)
+     */
+    public Optional<List<Long>> candidates(String fragment) {
+        if (!loaded || fragment == null) {
+            return Optional.empty();
+        }
+        int[] ids;
+        lock.readLock().lock();
+        try {
+            ids = index.candidates(fragment, maxScan, maxCandidates);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ids == null ? Optional.empty() : Optional.of(Arrays.stream(ids).mapToObj(id -> (long) id).toList());
+    }
+
+    private int loadAfter(long afterId) {
+        int count = 0;
+        List<Object[]> rows;
+        do {
+            rows = fileRepository.findSearchNamesAfter(afterId, PageRequest.of(0, LOAD_BATCH_SIZE));
+            for (Object[] row : rows) {
+                afterId = (Long) row[0];
+                add(afterId, (String) row[1], (String) row[2]);
+                count++;
+            }
+        } while (rows.size() == LOAD_BATCH_SIZE);
+        return count;
+    }
+
+    private void add(long fileId, String filename, String title) {
+        if (fileId > Integer.MAX_VALUE) {
+            // Beyond this the index can no longer answer for every file
+            if (!outOfRange) {
+                log.warn("File id {} exceeds the trigram index range, listings fall back to LIKE", fileId);
+            }
+            outOfRange = true;
+            loaded = false;
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            index.add((int) fileId, filename, title);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        highestId = Math.max(highestId, fileId);
+    }
+
+    private int trigramCount() {
+        lock.readLock().lock();
+        try {
+            return index.trigramCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
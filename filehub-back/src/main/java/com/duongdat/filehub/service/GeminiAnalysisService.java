@@ -15,13 +15,15 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.http.*;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpServerErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.ByteArrayInputStream;
 import java.time.Duration;
 
 import java.util.*;
@@ -74,20 +76,21 @@ public class GeminiAnalysisService {
             
             // Check if file is DOCX or DOC and extract text content
             String extractedTextContent = null;
-            byte[] fileDataToUpload = null;
+            Resource fileDataToUpload = null;
+            Resource fileContent = resolveFileContent(request);
             boolean useFileUpload = false;
             boolean useTextContent = false;
             
-            if (request.getFileData() != null) {
+            if (fileContent != null) {
                 // Check if it's a DOCX or DOC file that we should convert to text
                 String fileName = request.getFileName().toLowerCase();
                 boolean isWordDocument = fileName.endsWith(".docx") || fileName.endsWith(".doc");
                 
                 if (isWordDocument) {
                     try {
-                        // Extract text content directly from byte array
+                        // Extract text content directly from the staged content
                         extractedTextContent = extractTextFromWordDocument(
-                            request.getFileData(), 
+                            fileContent, 
                             request.getFileName(),
                             request.getContentType()
                         );
@@ -109,7 +112,7 @@ public class GeminiAnalysisService {
                 // If text extraction failed or not a Word document, use original approach
                 if (!useTextContent) {
                     if (isMimeTypeSupported(request.getContentType())) {
-                        fileDataToUpload = request.getFileData();
+                        fileDataToUpload = fileContent;
                         useFileUpload = true;
                         log.info("Using Gemini Files API for file analysis: {} (MIME: {})", 
                             request.getFileName(), request.getContentType());
@@ -162,12 +165,12 @@ public class GeminiAnalysisService {
         String projectContext = getProjectContext(request.getProjectId());
         
         // Determine analysis method based on file data availability and MIME type support
-        boolean useFileUpload = request.getFileData() != null && isMimeTypeSupported(request.getContentType());
+        boolean useFileUpload = hasFileContent(request) && isMimeTypeSupported(request.getContentType());
         
         if (useFileUpload) {
             prompt.append("IMPORTANT: I have uploaded a file for you to analyze. You MUST read and analyze the ACTUAL CONTENT of the uploaded file, not just the filename or metadata.\n\n");
             prompt.append("Analyze the following file using the uploaded file content. Please read the file content and provide analysis based on what you actually see/read inside the file:\n\n");
-        } else if (request.getFileData() != null) {
+        } else if (hasFileContent(request)) {
             prompt.append("IMPORTANT: This file type (MIME: ").append(request.getContentType()).append(") is not supported for content analysis by Gemini API.\n");
             prompt.append("Analyzing based on available metadata only (filename, file type, size, description):\n\n");
         } else {
@@ -204,7 +207,7 @@ public class GeminiAnalysisService {
         if (useFileUpload) {
             prompt.append("\nIMPORTANT: A file has been uploaded to Gemini Files API for analysis. Please analyze the actual content of the uploaded file, not just the metadata.\n");
             prompt.append("Read and analyze the file content thoroughly to provide accurate insights based on what you actually see in the file.\n");
-        } else if (request.getFileData() != null) {
+        } else if (hasFileContent(request)) {
             prompt.append("\nNOTE: File content analysis is not available for this file type. Analysis is based on metadata only.\n");
             prompt.append("The MIME type '").append(request.getContentType()).append("' is not supported by Gemini API for content analysis.\n");
             prompt.append("Supported formats include: images (jpg, png, gif, webp), videos (mp4, mov, avi, etc.), audio (wav, mp3, etc.), text files, and PDFs.\n");
@@ -284,7 +287,7 @@ public class GeminiAnalysisService {
             prompt.append("- Provide specific insights based on what you actually read/see/hear in the file\n");
             prompt.append("- Use high confidence scores when you can clearly read/see the file content\n");
             prompt.append("- If you cannot access the file content, explicitly state this in your response\n");
-        } else if (request.getFileData() != null) {
+        } else if (hasFileContent(request)) {
             prompt.append("- IMPORTANT: File content analysis is NOT available for this file type (").append(request.getContentType()).append(")\n");
             prompt.append("- Analysis is based ONLY on metadata: filename, file type, size, and provided description\n");
             prompt.append("- Make reasonable inferences based on filename patterns and file type\n");
@@ -320,7 +323,7 @@ public class GeminiAnalysisService {
                 .orElse(null);
     }
     
-    private String callGeminiAPI(String prompt, byte[] fileData, String contentType) {
+    private String callGeminiAPI(String prompt, Resource fileData, String contentType) {
         int maxRetries = 3;
         int attempt = 0;
         
@@ -502,7 +505,7 @@ public class GeminiAnalysisService {
     /**
      * Extract text content from Word documents (DOC/DOCX)
      */
-    private String extractTextFromWordDocument(byte[] fileData, String fileName, String contentType) {
+    private String extractTextFromWordDocument(Resource fileData, String fileName, String contentType) {
         try {
             // Create a simple MultipartFile implementation for FileContentExtractorService
             SimpleMultipartFile tempFile = new SimpleMultipartFile(fileName, fileData, contentType);
@@ -514,14 +517,14 @@ public class GeminiAnalysisService {
     }
     
     /**
-     * Simple MultipartFile implementation for internal use
+     * Simple MultipartFile implementation for internal use, backed by in-memory or staged content
      */
     private static class SimpleMultipartFile implements MultipartFile {
         private final String name;
-        private final byte[] content;
+        private final Resource content;
         private final String contentType;
         
-        public SimpleMultipartFile(String name, byte[] content, String contentType) {
+        public SimpleMultipartFile(String name, Resource content, String contentType) {
             this.name = name;
             this.content = content;
             this.contentType = contentType;
@@ -537,17 +540,23 @@ public class GeminiAnalysisService {
         public String getContentType() { return contentType; }
         
         @Override
-        public boolean isEmpty() { return content.length == 0; }
+        public boolean isEmpty() { return getSize() == 0; }
         
         @Override
-        public long getSize() { return content.length; }
+        public long getSize() {
+            try {
+                return content.contentLength();
+            } catch (java.io.IOException e) {
+                return 0;
+            }
+        }
         
         @Override
-        public byte[] getBytes() { return content; }
+        public byte[] getBytes() throws java.io.IOException { return content.getContentAsByteArray(); }
         
         @Override
-        public java.io.InputStream getInputStream() {
-            return new ByteArrayInputStream(content);
+        public java.io.InputStream getInputStream() throws java.io.IOException {
+            return content.getInputStream();
         }
         
         @Override
@@ -556,10 +565,30 @@ public class GeminiAnalysisService {
         }
     }
     
+    /**
+     * Whether the request carries file content, either in memory or as a staged file
+     */
+    private boolean hasFileContent(FileAnalysisRequest request) {
+        return request.getFileData() != null || request.getFilePath() != null;
+    }
+    
+    /**
+     * Resolve request content without copying it; staged files are streamed from disk
+     */
+    private Resource resolveFileContent(FileAnalysisRequest request) {
+        if (request.getFilePath() != null) {
+            return new FileSystemResource(request.getFilePath());
+        }
+        if (request.getFileData() != null) {
+            return new ByteArrayResource(request.getFileData());
+        }
+        return null;
+    }
+    
     /**
      * Upload file to Gemini Files API using the correct media upload approach
      */
-    private String uploadFileToGeminiAPI(byte[] fileData, String contentType) {
+    private String uploadFileToGeminiAPI(Resource fileData, String contentType) {
         try {
             // Check if the content type is supported by Gemini
             if (!isMimeTypeSupported(contentType)) {
@@ -577,9 +606,9 @@ public class GeminiAnalysisService {
             headers.set("Content-Type", mimeType);
             headers.set("X-Goog-Upload-Protocol", "raw");
             
-            HttpEntity<byte[]> entity = new HttpEntity<>(fileData, headers);
+            HttpEntity<Resource> entity = new HttpEntity<>(fileData, headers);
             
-            log.debug("Uploading {} bytes to Gemini Files API using media upload with MIME type: {}", fileData.length, mimeType);
+            log.debug("Uploading {} bytes to Gemini Files API using media upload with MIME type: {}", fileData.contentLength(), mimeType);
             log.info("Attempting file upload with supported MIME type: {}", mimeType);
             
             ResponseEntity<String> response = restTemplate.exchange(
@@ -935,7 +964,7 @@ public class GeminiAnalysisService {
         contentAnalysis.setRelatedKeywords(tags.stream().limit(5).collect(Collectors.toList()));
         
         // Set analysis method based on whether we had file data
-        boolean hadFileData = request.getFileData() != null;
+        boolean hadFileData = hasFileContent(request);
         boolean supportedMimeType = hadFileData && isMimeTypeSupported(request.getContentType());
         contentAnalysis.setAnalysisMethod(supportedMimeType ? "files_api_analysis" : "metadata_only");
         
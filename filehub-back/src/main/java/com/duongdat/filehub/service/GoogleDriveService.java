@@ -2,12 +2,30 @@ package com.duongdat.filehub.service;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.OutputStream;
+import java.nio.file.Path;
+
 public interface GoogleDriveService {
     
     String uploadFile(MultipartFile file, String filename) throws Exception;
     
+    /**
+     * Upload content that is already on local disk (e.g. a staged upload) without re-reading the request
+     */
+    String uploadFile(Path source, String filename, String contentType) throws Exception;
+    
     byte[] downloadFile(String fileId) throws Exception;
     
+    /**
+     * Stream a file's content into the given output without holding it in memory
+     */
+    void downloadFile(String fileId, OutputStream outputStream) throws Exception;
+    
+    /**
+     * Stream the inclusive byte range [start, end] of a file's content into the given output
+     */
+    void downloadFile(String fileId, long start, long end, OutputStream outputStream) throws Exception;
+    
     boolean deleteFile(String fileId) throws Exception;
     
     String createFolder(String folderName, String parentFolderId) throws Exception;
@@ -0,0 +1,258 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.dto.response.HotContentCacheResponse;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Byte-bounded in-memory cache of whole file contents, keyed by content hash.
+ * New content enters a small LRU window; content leaving the window only displaces older content in the
+ * main area if it has been requested more often (W-TinyLFU admission, frequencies from a count-min sketch),
+ * so a burst of one-off downloads cannot flush the files everyone keeps fetching.
+ */
+@Service
+@Slf4j
+public class HotContentCache {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    @Value("${file.cache.hot.enabled:true}")
+    private boolean enabled;
+
+    @Value("${file.cache.hot.max-bytes:268435456}") // 256MB across all entries
+    private long maxBytes;
+
+    @Value("${file.cache.hot.max-entry-bytes:8388608}") // Larger files are never cached (8MB)
+    private long maxEntryBytes;
+
+    @Value("${file.cache.hot.off-heap:false}") // Keep content in direct buffers outside the Java heap
+    private boolean offHeap;
+
+    private final Object lock = new Object();
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, ByteBuffer> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, ByteBuffer> main = new LinkedHashMap<>(256, 0.75f, true);
+    private long windowBytes;
+    private long mainBytes;
+    private long windowCapacity;
+    private long mainCapacity;
+    private FrequencySketch sketch;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        // The window takes 1% of the budget, but always fits at least one entry
+        windowCapacity = Math.min(maxBytes, Math.max(maxBytes / 100, maxEntryBytes));
+        mainCapacity = maxBytes - windowCapacity;
+        // Sized for entries averaging 64KB
+        sketch = new FrequencySketch((int) Math.min(1 << 20, Math.max(64, maxBytes / (64 * 1024))));
+        if (enabled) {
+            log.info("Hot content cache: {} bytes ({} per entry), {}", maxBytes, maxEntryBytes, offHeap ? "off-heap" : "on-heap");
+        }
+    }
+
+    /**
+     * Whether content of this size would be kept if it were offered
+     */
+    public boolean accepts(long size) {
+        return enabled && size > 0 && size <= maxEntryBytes;
+    }
+
+    /**
+     * Write {@code length} bytes starting at {@code start} of cached content. Every lookup counts towards the
+     * content's popularity. Returns false, having written nothing, when the content is not cached.
+     */
+    public boolean write(String fileHash, OutputStream outputStream, long start, long length) throws IOException {
+        if (!enabled) {
+            return false;
+        }
+        ByteBuffer content;
+        synchronized (lock) {
+            sketch.increment(fileHash);
+            content = window.get(fileHash);
+            if (content == null) {
+                content = main.get(fileHash);
+            }
+        }
+        if (content == null || start + length > content.capacity()) {
+            misses.increment();
+            return false;
+        }
+        hits.increment();
+
+        if (content.hasArray()) {
+            outputStream.write(content.array(), content.arrayOffset() + (int) start, (int) length);
+            return true;
+        }
+        ByteBuffer view = content.duplicate();
+        view.position((int) start).limit((int) (start + length));
+        byte[] chunk = new byte[(int) Math.min(COPY_BUFFER_SIZE, length)];
+        while (view.hasRemaining()) {
+            int count = Math.min(chunk.length, view.remaining());
+            view.get(chunk, 0, count);
+            outputStream.write(chunk, 0, count);
+        }
+        return true;
+    }
+
+    /**
+     * Offer content just read from storage. It is only kept if it really has this hash, so a truncated or
+     * corrupted read can never be served from the cache.
+     */
+    public void put(String fileHash, byte[] content) {
+        if (!accepts(content.length)) {
+            return;
+        }
+        MessageDigest digest = UploadStagingService.newDigest();
+        if (!HexFormat.of().formatHex(digest.digest(content)).equalsIgnoreCase(fileHash)) {
+            log.warn("Not caching content that does not match its hash {}", fileHash);
+            return;
+        }
+
+        // Never written after this point; readers work on duplicates
+        ByteBuffer stored = offHeap
+                ? ByteBuffer.allocateDirect(content.length).put(content).flip()
+                : ByteBuffer.wrap(content);
+
+        synchronized (lock) {
+            if (window.containsKey(fileHash) || main.containsKey(fileHash)) {
+                return;
+            }
+            window.put(fileHash, stored);
+            windowBytes += content.length;
+
+            Iterator<Map.Entry<String, ByteBuffer>> eldest = window.entrySet().iterator();
+            while (windowBytes > windowCapacity && eldest.hasNext()) {
+                Map.Entry<String, ByteBuffer> candidate = eldest.next();
+                eldest.remove();
+                windowBytes -= candidate.getValue().capacity();
+                admitToMain(candidate.getKey(), candidate.getValue());
+            }
+        }
+    }
+
+    /**
+     * Move content out of the window. If main is full, the least recently used entries it would displace
+     * must all be less popular than the candidate; otherwise the candidate is dropped instead. Called with the lock held.
+     */
+    private void admitToMain(String fileHash, ByteBuffer content) {
+        long size = content.capacity();
+        if (size > mainCapacity) {
+            rejections.increment();
+            return;
+        }
+
+        List<String> victims = new ArrayList<>();
+        long freed = 0;
+        if (mainBytes + size > mainCapacity) {
+            int candidateFrequency = sketch.frequency(fileHash);
+            for (Map.Entry<String, ByteBuffer> entry : main.entrySet()) {
+                if (sketch.frequency(entry.getKey()) >= candidateFrequency) {
+                    rejections.increment();
+                    return;
+                }
+                victims.add(entry.getKey());
+                freed += entry.getValue().capacity();
+                if (mainBytes - freed + size <= mainCapacity) {
+                    break;
+                }
+            }
+        }
+
+        for (String victim : victims) {
+            mainBytes -= main.remove(victim).capacity();
+            evictions.increment();
+        }
+        main.put(fileHash, content);
+        mainBytes += size;
+    }
+
+    public HotContentCacheResponse getStats() {
+        synchronized (lock) {
+            long hitCount = hits.sum();
+            long lookups = hitCount + misses.sum();
+            return new HotContentCacheResponse(enabled, offHeap, maxBytes, maxEntryBytes, windowBytes + mainBytes,
+                    window.size() + main.size(), hitCount, misses.sum(), evictions.sum(), rejections.sum(),
+                    lookups > 0 ? (double) hitCount / lookups : 0);
+        }
+    }
+
+    /**
+     * Count-min sketch of recent request frequency: four rows of counters saturating at 15.
+     * All counters are halved after a sample of increments, so popularity from long ago fades.
+     */
+    private static final class FrequencySketch {
+
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[][] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int expectedEntries) {
+            int width = Integer.highestOneBit(Math.max(expectedEntries, 1) * 2 - 1) << 1;
+            counters = new byte[DEPTH][width];
+            mask = width - 1;
+            sampleSize = width * 10;
+        }
+
+        void increment(String key) {
+            int hash = key.hashCode();
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = indexOf(hash, row);
+                if (counters[row][index] < MAX_COUNT) {
+                    counters[row][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(String key) {
+            int hash = key.hashCode();
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                frequency = Math.min(frequency, counters[row][indexOf(hash, row)]);
+            }
+            return frequency;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : counters) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = (byte) (row[i] >>> 1);
+                }
+            }
+            additions /= 2;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.duongdat.filehub.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Placement of local copies across one or more volume roots.
+ * Content is laid out by hash prefix ({@code <volume>/ab/cd/<hash><ext>}) so no directory grows past
+ * a few thousand entries, and new content goes to a volume chosen at random weighted by its free space.
+ */
+@Service
+@Slf4j
+public class LocalStorageLayout {
+    
+    @Value("${file.upload.directory:uploads}")
+    private String uploadDirectory;
+    
+    @Value("${file.storage.local.volumes:}") // Comma-separated roots; defaults to the upload directory
+    private String volumeList;
+    
+    @Value("${file.storage.local.min-free-bytes:1073741824}") // Volumes with less free space are not used (1GB)
+    private long minFreeBytes;
+    
+    private List<Path> volumes;
+    
+    @PostConstruct
+    public void init() {
+        List<Path> configured = new ArrayList<>();
+        if (volumeList != null && !volumeList.isBlank()) {
+            Arrays.stream(volumeList.split(","))
+                    .map(String::trim)
+                    .filter(volume -> !volume.isEmpty())
+                    .map(volume -> Paths.get(volume).toAbsolutePath().normalize())
+                    .forEach(configured::add);
+        }
+        if (configured.isEmpty()) {
+            configured.add(Paths.get(uploadDirectory).toAbsolutePath().normalize());
+        }
+        volumes = List.copyOf(configured);
+        log.info("Local storage volumes: {}", volumes);
+    }
+    
+    public List<Path> getVolumes() {
+        return volumes;
+    }
+    
+    /**
+     * Pick the location for new content. The shard directories are created if needed.
+     */
+    public Path placeNew(String fileHash, String extension) throws IOException {
+        Path volume = chooseVolume();
+        Path target = shardedPath(volume, fileHash, extension);
+        Files.createDirectories(target.getParent());
+        return target;
+    }
+    
+    /**
+     * Pick a location in the shard of the given content that keeps an existing unique file name,
+     * for copies that are not tracked by a blob and so must not take the content-addressed name
+     */
+    public Path placeNamed(String fileHash, String filename) throws IOException {
+        Path target = shardedPath(chooseVolume(), fileHash, null).resolveSibling(filename);
+        Files.createDirectories(target.getParent());
+        return target;
+    }
+    
+    /**
+     * Whether a stored path uses the old flat layout (directly inside a volume or the upload directory)
+     */
+    public boolean isFlat(Path path) {
+        Path parent = path.toAbsolutePath().normalize().getParent();
+        return parent != null && (volumes.contains(parent)
+                || parent.equals(Paths.get(uploadDirectory).toAbsolutePath().normalize()));
+    }
+    
+    static Path shardedPath(Path volume, String fileHash, String extension) {
+        String hash = fileHash.toLowerCase();
+        return volume.resolve(hash.substring(0, 2))
+                .resolve(hash.substring(2, 4))
+                .resolve(hash + (extension != null ? extension : ""));
+    }
+    
+    private Path chooseVolume() throws IOException {
+        if (volumes.size() == 1) {
+            Files.createDirectories(volumes.get(0));
+            return volumes.get(0);
+        }
+        
+        long[] weights = new long[volumes.size()];
+        long total = 0;
+        for (int i = 0; i < volumes.size(); i++) {
+            try {
+                Files.createDirectories(volumes.get(i));
+                long usable = Files.getFileStore(volumes.get(i)).getUsableSpace();
+                weights[i] = usable > minFreeBytes ? usable - minFreeBytes : 0;
+            } catch (IOException e) {
+                log.warn("Local storage volume {} unavailable: {}", volumes.get(i), e.getMessage());
+            }
+            total += weights[i];
+        }
+        if (total == 0) {
+            throw new IOException("No local storage volume has enough free space");
+        }
+        
+        long pick = ThreadLocalRandom.current().nextLong(total);
+        for (int i = 0; i < weights.length; i++) {
+            pick -= weights[i];
+            if (pick < 0) {
+                return volumes.get(i);
+            }
+        }
+        return volumes.get(volumes.size() - 1);
+    }
+}
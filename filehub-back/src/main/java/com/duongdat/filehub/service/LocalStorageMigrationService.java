@@ -0,0 +1,190 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.dto.response.LocalStorageMigrationResponse;
+import com.duongdat.filehub.entity.File;
+import com.duongdat.filehub.repository.FileBlobRepository;
+import com.duongdat.filehub.repository.FileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves local copies stored in the old flat directory into the hash-sharded layout while the system is running.
+ * Copies tracked by a blob take the content-addressed name; copies of older files keep their unique names.
+ * Each copy is linked (or copied) to its new location first, rows are repointed, and the old name is only
+ * removed one batch later so requests that already resolved the old path can still finish reading it.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LocalStorageMigrationService {
+    
+    private final FileRepository fileRepository;
+    private final FileBlobRepository fileBlobRepository;
+    private final LocalStorageLayout localStorageLayout;
+    private final DownloadUrlSigner downloadUrlSigner;
+    private final ThreadPoolTaskExecutor maintenanceExecutor; // Resolved by name, see ExecutorConfig
+    
+    @Value("${file.storage.local.migration.batch-size:200}")
+    private int batchSize;
+    
+    @Value("${file.storage.local.migration.pause-ms:500}") // Pause between batches to limit I/O impact
+    private long pauseMs;
+    
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile LocalStorageMigrationResponse status = new LocalStorageMigrationResponse();
+    
+    public LocalStorageMigrationResponse start() {
+        if (!running.compareAndSet(false, true)) {
+            throw new RuntimeException("Local storage migration is already running");
+        }
+        status = new LocalStorageMigrationResponse(true, 0, 0, 0, LocalDateTime.now(), null, null);
+        maintenanceExecutor.execute(this::run);
+        return status;
+    }
+    
+    public LocalStorageMigrationResponse getStatus() {
+        return status;
+    }
+    
+    private void run() {
+        Map<String, Path> pendingDeletes = new LinkedHashMap<>(); // Old location, as rows name it -> new path
+        try {
+            long lastId = 0;
+            List<File> batch;
+            do {
+                batch = fileRepository.findByIdGreaterThanAndFilePathIsNotNullOrderByIdAsc(lastId, PageRequest.of(0, batchSize));
+                
+                // Old names from the previous batch have had a full batch interval to drain
+                pendingDeletes.forEach(this::retire);
+                pendingDeletes.clear();
+                
+                for (File file : batch) {
+                    lastId = file.getId();
+                    status.setScanned(status.getScanned() + 1);
+                    try {
+                        String oldLocation = file.getFilePath();
+                        Path newPath = migrate(file);
+                        if (newPath != null && pendingDeletes.putIfAbsent(oldLocation, newPath) == null) {
+                            status.setMigrated(status.getMigrated() + 1);
+                        }
+                    } catch (Exception e) {
+                        status.setFailed(status.getFailed() + 1);
+                        status.setLastError("File " + file.getId() + ": " + e.getMessage());
+                        log.warn("Failed to migrate local copy of file {}: {}", file.getId(), e.getMessage());
+                    }
+                }
+                
+                if (!batch.isEmpty() && pauseMs > 0) {
+                    Thread.sleep(pauseMs);
+                }
+            } while (!batch.isEmpty());
+            
+            pendingDeletes.forEach(this::retire);
+            log.info("Local storage migration finished: {} scanned, {} migrated, {} failed",
+                    status.getScanned(), status.getMigrated(), status.getFailed());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status.setLastError("Interrupted");
+        } catch (Exception e) {
+            status.setLastError(e.getMessage());
+            log.error("Local storage migration stopped: {}", e.getMessage(), e);
+        } finally {
+            status.setRunning(false);
+            status.setFinishedAt(LocalDateTime.now());
+            running.set(false);
+        }
+    }
+    
+    /**
+     * Move one flat copy into the sharded layout; returns the new path, or null if nothing moved.
+     * The old path is removed later, by {@link #retire}.
+     */
+    private Path migrate(File file) throws IOException {
+        Path oldPath = Paths.get(file.getFilePath());
+        if (!localStorageLayout.isFlat(oldPath) || !Files.exists(oldPath)) {
+            return null;
+        }
+        
+        String filename = oldPath.getFileName().toString();
+        int dot = filename.lastIndexOf('.');
+        // The content-addressed name belongs to the blob of this hash. A copy no blob tracks keeps its unique name:
+        // a later store of the same content would replace it, and reclaiming that blob would delete it.
+        boolean tracked = fileBlobRepository.findByFileHash(file.getFileHash())
+                .map(blob -> file.getFilePath().equals(blob.getFilePath()))
+                .orElse(false);
+        Path newPath = tracked
+                ? localStorageLayout.placeNew(file.getFileHash(), dot >= 0 ? filename.substring(dot) : "")
+                : localStorageLayout.placeNamed(file.getFileHash(), filename);
+        
+        if (!Files.exists(newPath)) {
+            try {
+                // Same volume: a hard link is instant and keeps the old name readable until it is deleted
+                Files.createLink(newPath, oldPath);
+            } catch (IOException | UnsupportedOperationException e) {
+                Path tempPath = Files.createTempFile(newPath.getParent(), newPath.getFileName().toString(), ".tmp");
+                try {
+                    Files.copy(oldPath, tempPath, StandardCopyOption.REPLACE_EXISTING);
+                    Files.move(tempPath, newPath, StandardCopyOption.ATOMIC_MOVE);
+                } finally {
+                    Files.deleteIfExists(tempPath);
+                }
+            }
+        }
+        
+        // Every row naming the old path (a shared blob and all its files) moves together
+        String oldLocation = oldPath.toString();
+        String newLocation = newPath.toString();
+        List<Long> relocatedIds = fileRepository.findIdsByFilePath(file.getFilePath());
+        fileBlobRepository.relocateFilePath(file.getFilePath(), newLocation);
+        fileRepository.relocateFilePath(file.getFilePath(), newLocation);
+        // Links issued before the move remember the old path, which is removed with the next batch
+        relocatedIds.forEach(downloadUrlSigner::forget);
+        log.debug("Migrated local copy {} -> {}", oldLocation, newLocation);
+        return newPath;
+    }
+    
+    /**
+     * Remove an old name once it has drained. Rows are repointed again first: an upload that took its location from
+     * the blob before the move may have inserted its file row naming the old path after the first repoint.
+     */
+    private void retire(String oldLocation, Path newPath) {
+        String newLocation = newPath.toString();
+        try {
+            List<Long> lateIds = fileRepository.findIdsByFilePath(oldLocation);
+            fileBlobRepository.relocateFilePath(oldLocation, newLocation);
+            if (!lateIds.isEmpty()) {
+                fileRepository.relocateFilePath(oldLocation, newLocation);
+                lateIds.forEach(downloadUrlSigner::forget);
+                log.info("Repointed {} files stored during the move of {} -> {}", lateIds.size(), oldLocation, newLocation);
+            }
+        } catch (RuntimeException e) {
+            // Keep the old name while rows may still point at it
+            log.warn("Failed to repoint rows of migrated copy {}, left in place: {}", oldLocation, e.getMessage());
+            return;
+        }
+        deleteQuietly(Paths.get(oldLocation));
+    }
+    
+    private void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to remove migrated flat copy {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.entity.File;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Small preview images for file grids: downscaled thumbnails of images and a render of the first page of PDFs.
+ * Renditions are generated in the background after upload and stored on disk by content hash, so content
+ * shared by several files is rendered once and a rendition never changes once written.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RenditionService {
+
+    private static final Set<String> IMAGE_TYPES = Set.of("image/jpeg", "image/png", "image/gif", "image/bmp");
+    private static final String PDF_TYPE = "application/pdf";
+
+    private final GoogleDriveService googleDriveService;
+    private final UploadStagingService uploadStagingService;
+    private final ThreadPoolTaskExecutor renditionExecutor; // Resolved by name, see ExecutorConfig
+
+    @Value("${file.rendition.enabled:true}")
+    private boolean enabled;
+
+    @Value("${file.rendition.directory:uploads/.renditions}")
+    private String renditionDirectory;
+
+    @Value("${file.rendition.size:256}") // Longest edge in pixels
+    private int size;
+
+    @Value("${file.rendition.max-source-bytes:52428800}") // Larger originals are not rendered (50MB)
+    private long maxSourceBytes;
+
+    @Value("${file.rendition.max-source-pixels:50000000}") // Guard against decompression bombs
+    private long maxSourcePixels;
+
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Whether a rendition can be produced for this file at all
+     */
+    public boolean supports(String contentType, long fileSize) {
+        return enabled && contentType != null && fileSize <= maxSourceBytes
+                && (IMAGE_TYPES.contains(contentType) || PDF_TYPE.equals(contentType));
+    }
+
+    /**
+     * The stored rendition of a file's content, if it has been generated
+     */
+    public Optional<Path> find(String fileHash, String contentType) {
+        if (fileHash == null || contentType == null) {
+            return Optional.empty();
+        }
+        Path path = renditionPath(fileHash, contentType);
+        return Files.isRegularFile(path) ? Optional.of(path) : Optional.empty();
+    }
+
+    /**
+     * Queue generation of a file's rendition unless it exists or is already being produced.
+     * A full queue drops the request; the rendition is requested again the next time it is asked for.
+     */
+    public void schedule(File file) {
+        if (file.getFileHash() == null || !supports(file.getContentType(), file.getFileSize())
+                || find(file.getFileHash(), file.getContentType()).isPresent() || !inFlight.add(file.getFileHash())) {
+            return;
+        }
+        String fileHash = file.getFileHash();
+        String contentType = file.getContentType();
+        String driveFileId = file.getDriveFileId();
+        String filePath = file.getFilePath();
+        try {
+            renditionExecutor.execute(() -> {
+                try {
+                    generate(fileHash, contentType, driveFileId, filePath);
+                } catch (Exception e) {
+                    log.warn("Failed to render preview of content {}: {}", fileHash, e.getMessage());
+                } finally {
+                    inFlight.remove(fileHash);
+                }
+            });
+        } catch (TaskRejectedException e) {
+            inFlight.remove(fileHash);
+            log.debug("Rendition queue full, skipping content {}", fileHash);
+        }
+    }
+
+    /**
+     * Remove the rendition of content that is no longer stored
+     */
+    public void delete(String fileHash) {
+        for (String extension : new String[]{".jpg", ".png"}) {
+            try {
+                Files.deleteIfExists(shardPath(fileHash).resolve(fileHash + "-" + size + extension));
+            } catch (IOException e) {
+                log.warn("Failed to delete rendition of content {}: {}", fileHash, e.getMessage());
+            }
+        }
+    }
+
+    private void generate(String fileHash, String contentType, String driveFileId, String filePath) throws Exception {
+        Path source = filePath != null ? Paths.get(filePath) : null;
+        Path downloaded = null;
+        try {
+            if (source == null || !Files.exists(source)) {
+                if (driveFileId == null) {
+                    throw new IOException("No stored copy to render");
+                }
+                downloaded = Files.createTempFile(uploadStagingService.getStagingPath(), "rendition-", ".tmp");
+                try (OutputStream outputStream = Files.newOutputStream(downloaded)) {
+                    googleDriveService.downloadFile(driveFileId, outputStream);
+                }
+                source = downloaded;
+            }
+
+            BufferedImage rendition = PDF_TYPE.equals(contentType) ? renderFirstPage(source) : downscaleImage(source);
+            Path target = renditionPath(fileHash, contentType);
+            Files.createDirectories(target.getParent());
+            Path tempTarget = target.resolveSibling(target.getFileName() + ".tmp");
+            try {
+                write(rendition, tempTarget, PDF_TYPE.equals(contentType) ? "png" : "jpg");
+                Files.move(tempTarget, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tempTarget);
+            }
+            log.debug("Rendered preview of content {} ({} bytes)", fileHash, Files.size(target));
+        } finally {
+            if (downloaded != null) {
+                Files.deleteIfExists(downloaded);
+            }
+        }
+    }
+
+    /**
+     * Render page one straight at thumbnail scale, so no full-resolution page image is ever created
+     */
+    private BufferedImage renderFirstPage(Path source) throws IOException {
+        try (PDDocument document = Loader.loadPDF(source.toFile())) {
+            if (document.getNumberOfPages() == 0) {
+                throw new IOException("PDF has no pages");
+            }
+            PDRectangle box = document.getPage(0).getCropBox();
+            float scale = size / Math.max(box.getWidth(), box.getHeight());
+            return new PDFRenderer(document).renderImage(0, scale, ImageType.RGB);
+        }
+    }
+
+    /**
+     * Decode with subsampling so large photos never need their full resolution in memory, then scale to fit
+     */
+    private BufferedImage downscaleImage(Path source) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IOException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxSourcePixels) {
+                    throw new IOException("Image is too large to render (" + width + "x" + height + ")");
+                }
+                ImageReadParam param = reader.getDefaultReadParam();
+                int subsampling = Math.max(1, Math.max(width, height) / (size * 2));
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                BufferedImage image = reader.read(0, param);
+
+                double scale = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+                int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+                int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+                // JPEG has no alpha channel, so transparent areas are flattened onto white
+                BufferedImage scaled = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_RGB);
+                Graphics2D graphics = scaled.createGraphics();
+                try {
+                    graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                    graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                    graphics.setColor(Color.WHITE);
+                    graphics.fillRect(0, 0, targetWidth, targetHeight);
+                    graphics.drawImage(image, 0, 0, targetWidth, targetHeight, null);
+                } finally {
+                    graphics.dispose();
+                }
+                return scaled;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private void write(BufferedImage image, Path target, String format) throws IOException {
+        if ("png".equals(format)) {
+            if (!ImageIO.write(image, "png", target.toFile())) {
+                throw new IOException("No PNG writer available");
+            }
+            return;
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(target.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(0.8f);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private Path renditionPath(String fileHash, String contentType) {
+        String extension = PDF_TYPE.equals(contentType) ? ".png" : ".jpg";
+        return shardPath(fileHash).resolve(fileHash + "-" + size + extension);
+    }
+
+    private Path shardPath(String fileHash) {
+        return Paths.get(renditionDirectory).toAbsolutePath().normalize().resolve(fileHash.substring(0, 2));
+    }
+}
@@ -0,0 +1,43 @@
+package com.duongdat.filehub.service;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * An upload body that has been streamed once into the staging area.
+ * Size and SHA-256 hash are computed while staging, so consumers never re-read the request.
+ * Closing the handle removes the staging file.
+ */
+@Getter
+@RequiredArgsConstructor
+@Slf4j
+public class StagedUpload implements AutoCloseable {
+
+    private final Path path;
+    private final String originalFilename;
+    private final String contentType;
+    private final long size;
+    private final String fileHash;
+
+    /**
+     * Open a fresh stream over the staged bytes
+     */
+    public InputStream openStream() throws IOException {
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public void close() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to remove staged upload {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.duongdat.filehub.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Write-ahead record of storage copies that are not yet committed to the database.
+ * A blob store opens an entry before it creates any copy and names each copy in it as it goes;
+ * the entry is removed once every copy has been recorded on the blob or discarded. Entries found
+ * at startup therefore list exactly the copies a crashed process may have left behind.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageJournal {
+
+    private static final String ENTRY_SUFFIX = ".intent";
+    private static final String FILE_HASH = "fileHash";
+    private static final String LOCAL_STAGED = "local.staged";
+    private static final String LOCAL_TARGET = "local.target";
+    private static final String DRIVE_FILE_ID = "drive.fileId";
+
+    private final UploadStagingService uploadStagingService;
+
+    /**
+     * Open a durable entry for a store of the given content
+     */
+    public Entry begin(String fileHash) throws IOException {
+        Entry entry = new Entry(getJournalPath().resolve(UUID.randomUUID() + ENTRY_SUFFIX), new Properties());
+        entry.record(FILE_HASH, fileHash);
+        return entry;
+    }
+
+    /**
+     * Entries left open by a previous process; unreadable entries are skipped
+     */
+    public List<Entry> pending() throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(getJournalPath())) {
+            for (Path path : paths.filter(p -> p.getFileName().toString().endsWith(ENTRY_SUFFIX)).toList()) {
+                Properties properties = new Properties();
+                try (InputStream inputStream = Files.newInputStream(path)) {
+                    properties.load(inputStream);
+                    entries.add(new Entry(path, properties));
+                } catch (IOException | IllegalArgumentException e) {
+                    log.warn("Skipping unreadable storage journal entry {}: {}", path, e.getMessage());
+                }
+            }
+        }
+        return entries;
+    }
+
+    private Path getJournalPath() throws IOException {
+        Path journalPath = uploadStagingService.getStagingPath().resolve("journal");
+        Files.createDirectories(journalPath);
+        return journalPath;
+    }
+
+    /**
+     * Flush a file's content to the storage device
+     */
+    static void fsync(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Flush a directory so renames inside it survive a crash. Not every platform can open a directory, so this is best effort.
+     */
+    static void fsyncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            log.trace("Directory sync not supported for {}: {}", directory, e.getMessage());
+        }
+    }
+
+    /**
+     * One store in progress. Storage targets run concurrently, so updates are serialized on the entry.
+     */
+    public static final class Entry {
+
+        private final Path path;
+        private final Properties properties;
+
+        private Entry(Path path, Properties properties) {
+            this.path = path;
+            this.properties = properties;
+        }
+
+        public String getFileHash() {
+            return properties.getProperty(FILE_HASH);
+        }
+
+        public synchronized Path getLocalStaged() {
+            String staged = properties.getProperty(LOCAL_STAGED);
+            return staged != null ? Paths.get(staged) : null;
+        }
+
+        public synchronized Path getLocalTarget() {
+            String target = properties.getProperty(LOCAL_TARGET);
+            return target != null ? Paths.get(target) : null;
+        }
+
+        public synchronized String getDriveFileId() {
+            return properties.getProperty(DRIVE_FILE_ID);
+        }
+
+        /**
+         * Name a local copy before it is written: bytes go to {@code staged} and are renamed to {@code target} after commit
+         */
+        public synchronized void recordLocal(Path staged, Path target) throws IOException {
+            properties.setProperty(LOCAL_STAGED, staged.toString());
+            properties.setProperty(LOCAL_TARGET, target.toString());
+            write();
+        }
+
+        public synchronized void recordDrive(String driveFileId) throws IOException {
+            properties.setProperty(DRIVE_FILE_ID, driveFileId);
+            write();
+        }
+
+        /**
+         * Close the entry once nothing named in it can be orphaned any more
+         */
+        public synchronized void complete() {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Failed to remove storage journal entry {}: {}", path, e.getMessage());
+            }
+        }
+
+        private synchronized void record(String key, String value) throws IOException {
+            properties.setProperty(key, value);
+            write();
+        }
+
+        private void write() throws IOException {
+            Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+            try (OutputStream outputStream = Files.newOutputStream(tempPath)) {
+                properties.store(outputStream, null);
+            }
+            fsync(tempPath);
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            fsyncDirectory(path.getParent());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.entity.FileBlob;
+import com.duongdat.filehub.repository.FileBlobRepository;
+import com.duongdat.filehub.repository.FileRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Startup reconciliation of storage left behind by a process that died mid-upload.
+ * Open journal entries are rolled forward when the blob they belong to was committed and rolled back otherwise,
+ * stale staging files are removed, and blob reference counts are reset to the number of live files.
+ * Assumes no other instance is storing into the same staging area and database while the sweep runs.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StorageRecoveryService {
+
+    private final StorageJournal storageJournal;
+    private final FileBlobRepository fileBlobRepository;
+    private final FileRepository fileRepository;
+    private final BlobStoreService blobStoreService;
+    private final UploadStagingService uploadStagingService;
+
+    // Anything older than this process cannot belong to a request it is serving
+    private final Instant startedAt = Instant.now();
+
+    @Value("${file.recovery.enabled:true}")
+    private boolean recoveryEnabled;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        if (!recoveryEnabled) {
+            return;
+        }
+        try {
+            replayJournal();
+            sweepStaging();
+        } catch (IOException e) {
+            log.error("Storage recovery sweep failed: {}", e.getMessage(), e);
+        }
+
+        int corrected = fileBlobRepository.reconcileRefCounts(LocalDateTime.ofInstant(startedAt, ZoneId.systemDefault()));
+        if (corrected > 0) {
+            log.info("Corrected reference counts of {} blobs", corrected);
+        }
+    }
+
+    private void replayJournal() throws IOException {
+        List<StorageJournal.Entry> entries = storageJournal.pending();
+        for (StorageJournal.Entry entry : entries) {
+            try {
+                Optional<FileBlob> blob = fileBlobRepository.findByFileHash(entry.getFileHash())
+                        .filter(b -> "ACTIVE".equals(b.getStatus()));
+                recoverLocalCopy(entry, blob);
+                recoverDriveCopy(entry, blob);
+                entry.complete();
+            } catch (Exception e) {
+                log.warn("Could not recover storage of content {}, will retry on next start: {}", entry.getFileHash(), e.getMessage());
+            }
+        }
+        if (!entries.isEmpty()) {
+            log.info("Replayed {} interrupted storage writes", entries.size());
+        }
+    }
+
+    private void recoverLocalCopy(StorageJournal.Entry entry, Optional<FileBlob> blob) throws IOException {
+        Path stagedPath = entry.getLocalStaged();
+        if (stagedPath == null || !Files.exists(stagedPath)) {
+            return;
+        }
+        Path filePath = entry.getLocalTarget();
+
+        if (blob.isPresent() && filePath.toString().equals(blob.get().getFilePath())) {
+            // Committed before the crash, so the staged copy is complete; finish the rename
+            publish(stagedPath, filePath);
+            log.info("Rolled forward local copy {}", filePath);
+        } else if (blob.isPresent() && blob.get().getFilePath() == null && matches(stagedPath, blob.get())) {
+            // Late copy that finished writing but was never recorded
+            publish(stagedPath, filePath);
+            fileBlobRepository.updateFilePath(blob.get().getId(), filePath.toString());
+            fileRepository.fillFilePathByHash(blob.get().getFileHash(), filePath.toString());
+            log.info("Adopted unrecorded local copy {} for blob {}", filePath, blob.get().getId());
+        } else {
+            Files.deleteIfExists(stagedPath);
+            log.info("Discarded uncommitted local copy {}", stagedPath);
+        }
+    }
+
+    private void recoverDriveCopy(StorageJournal.Entry entry, Optional<FileBlob> blob) {
+        String driveFileId = entry.getDriveFileId();
+        if (driveFileId == null || (blob.isPresent() && driveFileId.equals(blob.get().getDriveFileId()))) {
+            return;
+        }
+
+        if (blob.isPresent() && blob.get().getDriveFileId() == null) {
+            // Only journaled after the upload returned, so the object is complete
+            fileBlobRepository.updateDriveFileId(blob.get().getId(), driveFileId);
+            fileRepository.fillDriveFileIdByHash(blob.get().getFileHash(), driveFileId);
+            log.info("Adopted unrecorded Google Drive copy {} for blob {}", driveFileId, blob.get().getId());
+        } else {
+            blobStoreService.deleteContent(driveFileId, null);
+            log.info("Discarded uncommitted Google Drive copy {}", driveFileId);
+        }
+    }
+
+    /**
+     * Remove staged upload bodies (and their storage sources) left by requests of a previous process.
+     * Upload session chunks live in subdirectories and are expired by their own cleanup.
+     */
+    private void sweepStaging() throws IOException {
+        int removed = 0;
+        try (Stream<Path> entries = Files.list(uploadStagingService.getStagingPath())) {
+            for (Path path : entries.filter(Files::isRegularFile).toList()) {
+                if (Files.getLastModifiedTime(path).toInstant().isBefore(startedAt)) {
+                    Files.deleteIfExists(path);
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            log.info("Removed {} stale staging files", removed);
+        }
+    }
+
+    private boolean matches(Path path, FileBlob blob) throws IOException {
+        if (Files.size(path) != blob.getFileSize()) {
+            return false;
+        }
+        MessageDigest digest = UploadStagingService.newDigest();
+        try (InputStream inputStream = new DigestInputStream(Files.newInputStream(path), digest)) {
+            inputStream.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest()).equalsIgnoreCase(blob.getFileHash());
+    }
+
+    private void publish(Path stagedPath, Path filePath) throws IOException {
+        Files.move(stagedPath, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        StorageJournal.fsyncDirectory(filePath.getParent());
+    }
+}
@@ -0,0 +1,307 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.dto.response.TagCountResponse;
+import com.duongdat.filehub.entity.File;
+import com.duongdat.filehub.entity.FileTag;
+import com.duongdat.filehub.entity.Tag;
+import com.duongdat.filehub.repository.FileRepository;
+import com.duongdat.filehub.repository.FileSpecifications;
+import com.duongdat.filehub.repository.FileTagRepository;
+import com.duongdat.filehub.repository.TagRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Normalized tag store: a dictionary of tag names, the file_tags relation, and per-tag file counts that are
+ * adjusted as files are tagged and untagged (the admin tag cloud reads them directly). Upload tags stay in
+ * {@code File.tags} as entered; this store holds their normalized form plus the tags suggested by AI analysis.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TagService {
+
+    public static final String SOURCE_USER = "USER";
+    public static final String SOURCE_AI = "AI";
+
+    private static final int MAX_TAG_LENGTH = 100;
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final TagRepository tagRepository;
+    private final FileTagRepository fileTagRepository;
+    private final FileRepository fileRepository;
+    private final UserAuthorizationService userAuthorizationService;
+    private final ThreadPoolTaskExecutor maintenanceExecutor; // Resolved by name, see ExecutorConfig
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${file.tags.max-per-file:20}")
+    private int maxTagsPerFile;
+
+    @Value("${file.tags.reconcile-grace-minutes:10}") // Counts adjusted this recently may still be in flight
+    private long reconcileGraceMinutes;
+
+    /**
+     * Copy the tags of files uploaded before the tag store existed, once, while the dictionary is empty
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillOnStartup() {
+        if (tagRepository.count() > 0) {
+            return;
+        }
+        maintenanceExecutor.execute(() -> {
+            long afterId = 0;
+            int tagged = 0;
+            List<File> files;
+            do {
+                files = fileRepository.findByIsDeletedFalseAndTagsIsNotNullAndIdGreaterThanOrderByIdAsc(
+                        afterId, PageRequest.of(0, BACKFILL_BATCH_SIZE));
+                for (File file : files) {
+                    afterId = file.getId();
+                    tagFile(file);
+                    tagged++;
+                }
+            } while (files.size() == BACKFILL_BATCH_SIZE);
+            if (tagged > 0) {
+                log.info("Copied tags of {} existing files into the tag store", tagged);
+            }
+        });
+    }
+
+    /**
+     * Link a newly stored file to the tags it was uploaded with
+     */
+    public void tagFile(File file) {
+        addTags(file.getId(), parse(file.getTags()), SOURCE_USER);
+    }
+
+    /**
+     * Link a file to the given tags, creating dictionary entries as needed. Tags the file already has are skipped.
+     * Failures are logged rather than thrown: the file itself is already stored.
+     */
+    public void addTags(Long fileId, Collection<String> names, String source) {
+        Set<String> normalized = normalizeAll(names);
+        if (fileId == null || normalized.isEmpty()) {
+            return;
+        }
+        try {
+            Set<Long> existing = fileTagRepository.findByFileId(fileId).stream()
+                    .map(FileTag::getTagId)
+                    .collect(Collectors.toSet());
+            List<Long> linked = new ArrayList<>();
+            for (Tag tag : findOrCreate(normalized)) {
+                if (existing.size() >= maxTagsPerFile) {
+                    break;
+                }
+                if (!existing.add(tag.getId())) {
+                    continue;
+                }
+                try {
+                    fileTagRepository.saveAndFlush(new FileTag(fileId, tag.getId(), source));
+                    linked.add(tag.getId());
+                } catch (DataIntegrityViolationException e) {
+                    // Linked concurrently; counted by whoever linked it
+                }
+            }
+            if (!linked.isEmpty()) {
+                tagRepository.adjustFileCounts(linked, 1);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to tag file {}: {}", fileId, e.getMessage());
+        }
+    }
+
+    /**
+     * Drop a deleted file's tag links so that counts and filters only cover live files
+     */
+    public void untagFile(Long fileId) {
+        try {
+            List<Long> unlinked = new ArrayList<>();
+            for (FileTag link : fileTagRepository.findByFileId(fileId)) {
+                if (fileTagRepository.deleteLink(fileId, link.getTagId()) > 0) {
+                    unlinked.add(link.getTagId());
+                }
+            }
+            if (!unlinked.isEmpty()) {
+                tagRepository.adjustFileCounts(unlinked, -1);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to untag file {}: {}", fileId, e.getMessage());
+        }
+    }
+
+    /**
+     * Tag names of each of the given files, in one query
+     */
+    public Map<Long, Set<String>> getTagNames(Collection<Long> fileIds) {
+        Map<Long, Set<String>> tagsByFile = new HashMap<>();
+        if (fileIds.isEmpty()) {
+            return tagsByFile;
+        }
+        for (Object[] row : fileTagRepository.findTagNamesByFileIds(fileIds)) {
+            tagsByFile.computeIfAbsent((Long) row[0], id -> new LinkedHashSet<>()).add((String) row[1]);
+        }
+        return tagsByFile;
+    }
+
+    /**
+     * Most used tags with their file counts. Admins read the maintained counters; other users get counts over the
+     * files they can access, so tags that only exist on files outside their reach are not revealed.
+     */
+    public List<TagCountResponse> getTagCloud(Long userId, int limit) {
+        PageRequest page = PageRequest.of(0, Math.max(1, Math.min(limit, 500)));
+        if (userAuthorizationService.isUserAdmin(userId)) {
+            return tagRepository.findByFileCountGreaterThanOrderByFileCountDescNameAsc(0L, page).stream()
+                    .map(tag -> new TagCountResponse(tag.getName(), tag.getFileCount()))
+                    .collect(Collectors.toList());
+        }
+        
+        List<Long> accessibleDepartmentIds = userAuthorizationService.getAccessibleDepartmentIds();
+        List<Long> accessibleProjectIds = userAuthorizationService.getAccessibleProjectIds();
+        
+        // If user has no accessible departments/projects, they can only see public files and their own
+        if (accessibleDepartmentIds.isEmpty()) {
+            accessibleDepartmentIds = List.of(-1L); // Use -1 as placeholder for no access
+        }
+        if (accessibleProjectIds.isEmpty()) {
+            accessibleProjectIds = List.of(-1L);
+        }
+        return fileTagRepository.countTagsAccessibleTo(userId, accessibleDepartmentIds, accessibleProjectIds, page).stream()
+                .map(row -> new TagCountResponse((String) row[0], (Long) row[1]))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Listing filter for files tagged with any or all of the given tags; null when no tags are requested
+     */
+    public Specification<File> fileFilter(List<String> tags, String tagMatch) {
+        Set<String> names = normalizeAll(tags);
+        if (names.isEmpty()) {
+            return null;
+        }
+        boolean matchAll;
+        if (tagMatch == null || "any".equalsIgnoreCase(tagMatch)) {
+            matchAll = false;
+        } else if ("all".equalsIgnoreCase(tagMatch)) {
+            matchAll = true;
+        } else {
+            throw new RuntimeException("Invalid tag match mode: " + tagMatch + " (expected 'any' or 'all')");
+        }
+
+        List<Long> tagIds = tagRepository.findByNameIn(names).stream().map(Tag::getId).toList();
+        if (tagIds.isEmpty() || (matchAll && tagIds.size() < names.size())) {
+            // A tag nobody uses matches no file
+            return FileSpecifications.none();
+        }
+        return matchAll ? FileSpecifications.taggedWithAll(tagIds) : FileSpecifications.taggedWithAny(tagIds);
+    }
+
+    @Scheduled(fixedDelayString = "${file.tags.reconcile-interval-ms:3600000}")
+    public void reconcileFileCounts() {
+        int corrected = tagRepository.reconcileFileCounts(LocalDateTime.now().minusMinutes(reconcileGraceMinutes));
+        if (corrected > 0) {
+            log.info("Corrected file counts of {} tags", corrected);
+        }
+    }
+
+    /**
+     * Split free-form upload tags, either a JSON array or a comma separated list, into normalized names
+     */
+    public List<String> parse(String tags) {
+        if (tags == null || tags.isBlank()) {
+            return List.of();
+        }
+        String trimmed = tags.trim();
+        if (trimmed.startsWith("\"")) {
+            // A plain list stored as a JSON string
+            try {
+                trimmed = objectMapper.readValue(trimmed, String.class).trim();
+            } catch (JsonProcessingException e) {
+                // Not JSON after all; split it as it is
+            }
+        }
+        List<String> names;
+        if (trimmed.startsWith("[")) {
+            try {
+                names = objectMapper.readValue(trimmed, new TypeReference<List<String>>() {});
+            } catch (JsonProcessingException e) {
+                names = Arrays.asList(trimmed.substring(1).replace("]", "").replace("\"", "").split("[,;]"));
+            }
+        } else {
+            names = Arrays.asList(trimmed.split("[,;]"));
+        }
+        return new ArrayList<>(normalizeAll(names));
+    }
+
+    /**
+     * Trimmed, lower case, single spaces, without a leading '#'; null if nothing usable is left
+     */
+    static String normalize(String tag) {
+        if (tag == null) {
+            return null;
+        }
+        String normalized = tag.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        while (normalized.startsWith("#")) {
+            normalized = normalized.substring(1).trim();
+        }
+        return normalized.isEmpty() || normalized.length() > MAX_TAG_LENGTH ? null : normalized;
+    }
+
+    private Set<String> normalizeAll(Collection<String> tags) {
+        Set<String> normalized = new LinkedHashSet<>();
+        if (tags != null) {
+            for (String tag : tags) {
+                String name = normalize(tag);
+                if (name != null) {
+                    normalized.add(name);
+                }
+            }
+        }
+        return normalized;
+    }
+
+    private List<Tag> findOrCreate(Set<String> names) {
+        Map<String, Tag> byName = tagRepository.findByNameIn(names).stream()
+                .collect(Collectors.toMap(Tag::getName, tag -> tag));
+        List<Tag> tags = new ArrayList<>(names.size());
+        for (String name : names) {
+            Tag tag = byName.get(name);
+            if (tag == null) {
+                tag = new Tag();
+                tag.setName(name);
+                try {
+                    tag = tagRepository.saveAndFlush(tag);
+                } catch (DataIntegrityViolationException e) {
+                    // Created concurrently
+                    tag = tagRepository.findByNameIn(List.of(name)).stream().findFirst()
+                            .orElseThrow(() -> new RuntimeException("Tag is being created, please try again"));
+                }
+            }
+            tags.add(tag);
+        }
+        return tags;
+    }
+}
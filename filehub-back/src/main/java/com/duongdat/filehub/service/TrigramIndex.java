@@ -0,0 +1,152 @@
+package com.duongdat.filehub.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Posting lists of file ids by trigram (every three-character window of a normalized name or title).
+ * A file containing a fragment holds every trigram of the fragment, so intersecting their lists gives a
+ * superset of the matches; callers verify candidates (the listing queries keep their LIKE for that).
+ * Not thread safe, see {@link FilenameSearchIndex}.
+ */
+final class TrigramIndex {
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+
+    void add(int fileId, String... texts) {
+        for (long trigram : trigrams(texts)) {
+            postings.computeIfAbsent(trigram, key -> new Postings()).add(fileId);
+        }
+    }
+
+    void remove(int fileId, String... texts) {
+        for (long trigram : trigrams(texts)) {
+            Postings list = postings.get(trigram);
+            if (list != null && list.remove(fileId) && list.size == 0) {
+                postings.remove(trigram);
+            }
+        }
+    }
+
+    /**
+     * Ids of files that may contain the fragment, ascending. Null when the index cannot narrow the search:
+     * the fragment is shorter than a trigram, contains LIKE wildcards, its rarest trigram is in more than
+     * {@code maxScan} files, or more than {@code maxCandidates} files remain.
+     */
+    int[] candidates(String fragment, int maxScan, int maxCandidates) {
+        if (fragment.indexOf('%') >= 0 || fragment.indexOf('_') >= 0) {
+            return null;
+        }
+        Set<Long> trigrams = trigrams(fragment);
+        if (trigrams.isEmpty()) {
+            return null;
+        }
+        List<Postings> lists = new ArrayList<>(trigrams.size());
+        for (long trigram : trigrams) {
+            Postings list = postings.get(trigram);
+            if (list == null) {
+                return new int[0];
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        if (lists.get(0).size > maxScan) {
+            return null;
+        }
+
+        // Start from the rarest trigram and keep the ids every other list also holds
+        int[] result = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+        int count = result.length;
+        for (int l = 1; l < lists.size() && count > 0; l++) {
+            Postings list = lists.get(l);
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < count; i++) {
+                int position = Arrays.binarySearch(list.ids, from, list.size, result[i]);
+                if (position >= 0) {
+                    result[kept++] = result[i];
+                    from = position + 1;
+                } else {
+                    from = -position - 1;
+                }
+            }
+            count = kept;
+        }
+        return count > maxCandidates ? null : Arrays.copyOf(result, count);
+    }
+
+    int trigramCount() {
+        return postings.size();
+    }
+
+    private static Set<Long> trigrams(String... texts) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (String text : texts) {
+            if (text == null) {
+                continue;
+            }
+            String normalized = normalize(text);
+            for (int i = 0; i + 3 <= normalized.length(); i++) {
+                trigrams.add(((long) normalized.charAt(i) << 32) | ((long) normalized.charAt(i + 1) << 16) | normalized.charAt(i + 2));
+            }
+        }
+        return trigrams;
+    }
+
+    /**
+     * Lower case without accents, at least as lenient as the database's case- and accent-insensitive
+     * LIKE, so no match is ever missing from the candidates
+     */
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            c = Character.toLowerCase(c);
+            normalized.append(c == '\u0111' ? 'd' : c); // đ has no decomposition
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * Sorted, growable id list. Ids mostly arrive in increasing order, so adding is usually an append.
+     */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            int position = size > 0 && ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.dto.request.CreateUploadSessionRequest;
+import com.duongdat.filehub.dto.request.FileUploadRequest;
+import com.duongdat.filehub.dto.response.FileResponse;
+import com.duongdat.filehub.dto.response.UploadSessionResponse;
+import com.duongdat.filehub.entity.UploadSession;
+import com.duongdat.filehub.repository.UploadSessionRepository;
+import com.duongdat.filehub.util.SecurityUtil;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Resumable chunked uploads.
+ * Chunks are written to a per-session staging directory (one file per chunk index, renamed into place
+ * once complete), so they can arrive in parallel and out of order. Completing a session assembles the
+ * chunks with an incremental hash and hands the result to {@link FileService} for the usual
+ * authorization, duplicate and storage logic.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UploadSessionService {
+
+    private static final String STATUS_ACTIVE = "ACTIVE";
+    private static final String STATUS_ASSEMBLING = "ASSEMBLING";
+    private static final String STATUS_COMPLETED = "COMPLETED";
+    private static final String STATUS_ABORTED = "ABORTED";
+    private static final String CHUNK_SUFFIX = ".chunk";
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final UploadStagingService uploadStagingService;
+    private final FileService fileService;
+    private final SecurityUtil securityUtil;
+
+    @Value("${file.upload.session.default-chunk-size:8388608}") // 8MB default
+    private long defaultChunkSize;
+
+    @Value("${file.upload.session.max-chunk-size:67108864}") // 64MB default
+    private long maxChunkSize;
+
+    @Value("${file.upload.session.min-chunk-size:1048576}") // 1MB default; only the last chunk may be smaller
+    private long minChunkSize;
+
+    @Value("${file.upload.session.max-chunks:10000}")
+    private long maxChunks;
+
+    @Value("${file.upload.session.ttl-hours:24}") // Counted from the last received chunk
+    private long sessionTtlHours;
+
+    @Value("${file.upload.session.assembling-timeout-minutes:60}") // Completions running longer are considered abandoned
+    private long assemblingTimeoutMinutes;
+
+    public UploadSessionResponse createSession(CreateUploadSessionRequest request) {
+        Long userId = securityUtil.getCurrentUserId()
+                .orElseThrow(() -> new RuntimeException("User not authenticated"));
+
+        // Fail fast on the same checks the final upload will run
+        fileService.validateUploadPreconditions(toFileUploadRequest(request), request.getTotalSize());
+
+        long chunkSize = request.getChunkSize() != null ? request.getChunkSize() : defaultChunkSize;
+        if (chunkSize > maxChunkSize) {
+            throw new RuntimeException("Chunk size exceeds maximum allowed size of " + maxChunkSize + " bytes");
+        }
+        // A file smaller than the minimum may be sent as one chunk of its own size
+        if (chunkSize <= 0 || (chunkSize < minChunkSize && chunkSize < request.getTotalSize())) {
+            throw new RuntimeException("Chunk size must be at least " + minChunkSize + " bytes");
+        }
+        long totalChunks = (request.getTotalSize() + chunkSize - 1) / chunkSize;
+        if (totalChunks > maxChunks) {
+            throw new RuntimeException("Upload would need " + totalChunks + " chunks, the maximum is " + maxChunks
+                    + "; use a larger chunk size");
+        }
+
+        UploadSession session = new UploadSession();
+        session.setId(UUID.randomUUID().toString());
+        session.setUploaderId(userId);
+        session.setOriginalFilename(request.getOriginalFilename());
+        session.setContentType(request.getContentType() != null ? request.getContentType() : "application/octet-stream");
+        session.setTotalSize(request.getTotalSize());
+        session.setChunkSize(chunkSize);
+        session.setTotalChunks((int) totalChunks);
+        session.setExpectedHash(request.getFileHash() != null ? request.getFileHash().toLowerCase() : null);
+        session.setTitle(request.getTitle());
+        session.setDescription(request.getDescription());
+        session.setDepartmentId(request.getDepartmentId());
+        session.setDepartmentCategoryId(request.getDepartmentCategoryId());
+        session.setFileTypeId(request.getFileTypeId());
+        session.setProjectId(request.getProjectId());
+        session.setTags(request.getTags());
+        session.setVisibility(request.getVisibility() != null ? request.getVisibility().toUpperCase() : "PRIVATE");
+        session.setExpiresAt(LocalDateTime.now().plusHours(sessionTtlHours));
+
+        try {
+            Files.createDirectories(getSessionDirectory(session.getId()));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to create upload session staging area: " + e.getMessage(), e);
+        }
+
+        session = uploadSessionRepository.save(session);
+        log.info("Upload session {} created for {} ({} bytes in {} chunks)",
+                session.getId(), session.getOriginalFilename(), session.getTotalSize(), totalChunks);
+        return toResponse(session);
+    }
+
+    /**
+     * Store one chunk. Chunks are idempotent: re-sending an index replaces the previous copy.
+     * Every chunk extends the session's expiry, so a slow upload does not expire while it is making progress.
+     */
+    public UploadSessionResponse uploadChunk(String sessionId, int chunkIndex, InputStream body) throws IOException {
+        UploadSession session = getOwnedSession(sessionId);
+        requireStatus(session, STATUS_ACTIVE);
+
+        if (chunkIndex < 0 || chunkIndex >= session.getTotalChunks()) {
+            throw new RuntimeException("Chunk index out of range: " + chunkIndex);
+        }
+        long expectedLength = expectedChunkLength(session, chunkIndex);
+
+        Path sessionDirectory = getSessionDirectory(sessionId);
+        Path partialChunk = sessionDirectory.resolve(chunkIndex + CHUNK_SUFFIX + "." + UUID.randomUUID() + ".tmp");
+        long written = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (OutputStream outputStream = Files.newOutputStream(partialChunk)) {
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                written += read;
+                if (written > expectedLength) {
+                    throw new RuntimeException("Chunk " + chunkIndex + " is larger than the expected " + expectedLength + " bytes");
+                }
+                outputStream.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(partialChunk);
+            throw e;
+        }
+
+        if (written != expectedLength) {
+            Files.deleteIfExists(partialChunk);
+            throw new RuntimeException("Chunk " + chunkIndex + " is incomplete: expected " + expectedLength + " bytes, received " + written);
+        }
+
+        // Only fully received chunks become visible, so a dropped connection never leaves a torn chunk
+        Files.move(partialChunk, chunkPath(sessionId, chunkIndex),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.debug("Upload session {}: received chunk {} ({} bytes)", sessionId, chunkIndex, written);
+
+        LocalDateTime expiresAt = LocalDateTime.now().plusHours(sessionTtlHours);
+        if (uploadSessionRepository.extendExpiry(sessionId, expiresAt) > 0) {
+            session.setExpiresAt(expiresAt);
+        }
+        return toResponse(session);
+    }
+
+    public UploadSessionResponse getSession(String sessionId) {
+        return toResponse(getOwnedSession(sessionId));
+    }
+
+    /**
+     * Assemble all chunks and store the file through the regular upload pipeline
+     */
+    public FileResponse completeSession(String sessionId) throws IOException {
+        UploadSession session = getOwnedSession(sessionId);
+        requireStatus(session, STATUS_ACTIVE);
+
+        List<Integer> missingChunks = new ArrayList<>();
+        List<Path> chunks = new ArrayList<>(session.getTotalChunks());
+        for (int i = 0; i < session.getTotalChunks(); i++) {
+            Path chunk = chunkPath(sessionId, i);
+            if (!Files.exists(chunk)) {
+                missingChunks.add(i);
+            }
+            chunks.add(chunk);
+        }
+        if (!missingChunks.isEmpty()) {
+            throw new RuntimeException("Upload is incomplete, missing chunks: " + missingChunks);
+        }
+
+        // Only one completion may run per session
+        if (uploadSessionRepository.transitionStatus(sessionId, STATUS_ACTIVE, STATUS_ASSEMBLING) == 0) {
+            throw new RuntimeException("Upload session is already being completed");
+        }
+
+        try (StagedUpload stagedUpload = uploadStagingService.assemble(chunks, session.getOriginalFilename(), session.getContentType())) {
+            if (stagedUpload.getSize() != session.getTotalSize()) {
+                throw new RuntimeException("Assembled size " + stagedUpload.getSize() + " does not match declared size " + session.getTotalSize());
+            }
+            if (session.getExpectedHash() != null && !session.getExpectedHash().equals(stagedUpload.getFileHash())) {
+                throw new RuntimeException("Assembled file hash does not match the declared hash");
+            }
+
+            FileResponse fileResponse = fileService.uploadFile(stagedUpload, toFileUploadRequest(session));
+
+            if (uploadSessionRepository.markCompleted(sessionId, fileResponse.getId()) == 0) {
+                // Reset as abandoned while it ran; the file is stored all the same
+                log.warn("Upload session {} was reset while completing, stored as file {} anyway", sessionId, fileResponse.getId());
+            }
+            deleteSessionDirectory(sessionId);
+
+            log.info("Upload session {} completed as file {}", sessionId, fileResponse.getId());
+            return fileResponse;
+        } catch (Throwable e) {
+            // Keep the received chunks so the client can fix the problem and retry
+            uploadSessionRepository.transitionStatus(sessionId, STATUS_ASSEMBLING, STATUS_ACTIVE);
+            throw e;
+        }
+    }
+
+    /**
+     * Discard a session and its chunks. Only a session still receiving chunks can be aborted: a running completion
+     * is reading them, and a completed session already is a file.
+     */
+    public void abortSession(String sessionId) {
+        UploadSession session = getOwnedSession(sessionId);
+        if (uploadSessionRepository.transitionStatus(sessionId, STATUS_ACTIVE, STATUS_ABORTED) == 0) {
+            String status = uploadSessionRepository.findById(sessionId).map(UploadSession::getStatus).orElse(session.getStatus());
+            throw new RuntimeException("Upload session is " + status.toLowerCase() + " and can no longer be aborted");
+        }
+        deleteSessionDirectory(sessionId);
+        uploadSessionRepository.deleteById(sessionId);
+        log.info("Upload session {} aborted", sessionId);
+    }
+
+    /**
+     * Garbage-collect expired sessions together with their staged chunks.
+     * Completions still assembling after the timeout were abandoned (e.g. by a crash) and are handed back
+     * to the client first, so their sessions can be retried or expire like any other.
+     */
+    @Scheduled(fixedDelayString = "${file.upload.session.cleanup-interval-ms:600000}")
+    public void cleanupExpiredSessions() {
+        int abandoned = uploadSessionRepository.transitionStaleStatus(STATUS_ASSEMBLING, STATUS_ACTIVE,
+                LocalDateTime.now().minusMinutes(assemblingTimeoutMinutes));
+        if (abandoned > 0) {
+            log.warn("Reset {} abandoned upload session completions", abandoned);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int cleaned = 0;
+        for (UploadSession session : uploadSessionRepository.findByExpiresAtBefore(now)) {
+            // Never pull chunks out from under a running completion, or a session a new chunk just extended
+            if (uploadSessionRepository.deleteIfExpired(session.getId(), now) > 0) {
+                deleteSessionDirectory(session.getId());
+                cleaned++;
+            }
+        }
+        if (cleaned > 0) {
+            log.info("Cleaned up {} expired upload sessions", cleaned);
+        }
+    }
+
+    private UploadSession getOwnedSession(String sessionId) {
+        Long userId = securityUtil.getCurrentUserId()
+                .orElseThrow(() -> new RuntimeException("User not authenticated"));
+        UploadSession session = uploadSessionRepository.findByIdAndUploaderId(sessionId, userId)
+                .orElseThrow(() -> new RuntimeException("Upload session not found"));
+        if (session.getExpiresAt().isBefore(LocalDateTime.now())) {
+            throw new RuntimeException("Upload session not found or expired");
+        }
+        return session;
+    }
+
+    private void requireStatus(UploadSession session, String status) {
+        if (!status.equals(session.getStatus())) {
+            throw new RuntimeException("Upload session is " + session.getStatus().toLowerCase());
+        }
+    }
+
+    private long expectedChunkLength(UploadSession session, int chunkIndex) {
+        long offset = chunkIndex * session.getChunkSize();
+        return Math.min(session.getChunkSize(), session.getTotalSize() - offset);
+    }
+
+    private Path getSessionDirectory(String sessionId) throws IOException {
+        return uploadStagingService.getStagingPath().resolve("sessions").resolve(sessionId);
+    }
+
+    private Path chunkPath(String sessionId, int chunkIndex) throws IOException {
+        return getSessionDirectory(sessionId).resolve(chunkIndex + CHUNK_SUFFIX);
+    }
+
+    private List<Integer> listReceivedChunks(String sessionId) {
+        try {
+            Path sessionDirectory = getSessionDirectory(sessionId);
+            if (!Files.exists(sessionDirectory)) {
+                return List.of();
+            }
+            try (Stream<Path> entries = Files.list(sessionDirectory)) {
+                return entries
+                        .map(path -> path.getFileName().toString())
+                        .filter(name -> name.endsWith(CHUNK_SUFFIX))
+                        .map(name -> Integer.parseInt(name.substring(0, name.length() - CHUNK_SUFFIX.length())))
+                        .sorted()
+                        .toList();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to list chunks for upload session {}: {}", sessionId, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private void deleteSessionDirectory(String sessionId) {
+        try {
+            Path sessionDirectory = getSessionDirectory(sessionId);
+            if (!Files.exists(sessionDirectory)) {
+                return;
+            }
+            try (Stream<Path> entries = Files.walk(sessionDirectory)) {
+                entries.sorted(Comparator.reverseOrder()).forEach(path -> {
+                    try {
+                        Files.deleteIfExists(path);
+                    } catch (IOException e) {
+                        log.warn("Failed to delete {}: {}", path, e.getMessage());
+                    }
+                });
+            }
+        } catch (IOException e) {
+            log.warn("Failed to clean up upload session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    private FileUploadRequest toFileUploadRequest(CreateUploadSessionRequest request) {
+        FileUploadRequest uploadRequest = new FileUploadRequest();
+        uploadRequest.setTitle(request.getTitle() != null && !request.getTitle().trim().isEmpty()
+                ? request.getTitle().trim() : request.getOriginalFilename());
+        uploadRequest.setDescription(request.getDescription());
+        uploadRequest.setDepartmentCategoryId(request.getDepartmentCategoryId());
+        uploadRequest.setDepartmentId(request.getDepartmentId());
+        uploadRequest.setProjectId(request.getProjectId());
+        uploadRequest.setFileTypeId(request.getFileTypeId());
+        uploadRequest.setTags(request.getTags() != null && !request.getTags().trim().isEmpty() ? request.getTags().trim() : null);
+        uploadRequest.setVisibility(request.getVisibility() != null ? request.getVisibility().toUpperCase() : "PRIVATE");
+        return uploadRequest;
+    }
+
+    private FileUploadRequest toFileUploadRequest(UploadSession session) {
+        FileUploadRequest uploadRequest = new FileUploadRequest();
+        uploadRequest.setTitle(session.getTitle() != null && !session.getTitle().trim().isEmpty()
+                ? session.getTitle().trim() : session.getOriginalFilename());
+        uploadRequest.setDescription(session.getDescription());
+        uploadRequest.setDepartmentCategoryId(session.getDepartmentCategoryId());
+        uploadRequest.setDepartmentId(session.getDepartmentId());
+        uploadRequest.setProjectId(session.getProjectId());
+        uploadRequest.setFileTypeId(session.getFileTypeId());
+        uploadRequest.setTags(session.getTags() != null && !session.getTags().trim().isEmpty() ? session.getTags().trim() : null);
+        uploadRequest.setVisibility(session.getVisibility());
+        return uploadRequest;
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session) {
+        List<Integer> receivedChunks = STATUS_COMPLETED.equals(session.getStatus())
+                ? List.of() : listReceivedChunks(session.getId());
+
+        long receivedBytes = 0;
+        for (Integer chunkIndex : receivedChunks) {
+            receivedBytes += expectedChunkLength(session, chunkIndex);
+        }
+
+        // Contiguous prefix, for clients that resume sequentially
+        long committedOffset = 0;
+        for (int i = 0; i < receivedChunks.size() && receivedChunks.get(i) == i; i++) {
+            committedOffset += expectedChunkLength(session, i);
+        }
+        if (STATUS_COMPLETED.equals(session.getStatus())) {
+            receivedBytes = session.getTotalSize();
+            committedOffset = session.getTotalSize();
+        }
+
+        return new UploadSessionResponse(
+                session.getId(),
+                session.getStatus(),
+                session.getOriginalFilename(),
+                session.getTotalSize(),
+                session.getChunkSize(),
+                session.getTotalChunks(),
+                receivedChunks,
+                receivedBytes,
+                committedOffset,
+                session.getFileId(),
+                session.getExpiresAt()
+        );
+    }
+}
@@ -0,0 +1,120 @@
+package com.duongdat.filehub.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Single-pass ingest stage for uploads.
+ * The request body is read exactly once through a fixed-size buffer, hashed with SHA-256
+ * and written to a staging file, so memory per upload stays bounded regardless of file size.
+ */
+@Service
+@Slf4j
+public class UploadStagingService {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    @Value("${file.upload.staging.directory:uploads/.staging}")
+    private String stagingDirectory;
+
+    @Value("${file.max.size:104857600}") // 100MB default
+    private long maxFileSize;
+
+    public StagedUpload stage(MultipartFile multipartFile) throws IOException {
+        try (InputStream inputStream = multipartFile.getInputStream()) {
+            return stage(inputStream, multipartFile.getOriginalFilename(), multipartFile.getContentType());
+        }
+    }
+
+    /**
+     * Copy the stream into a new staging file, computing size and hash on the way through
+     */
+    public StagedUpload stage(InputStream inputStream, String originalFilename, String contentType) throws IOException {
+        Path stagingPath = getStagingPath();
+        Path stagedFile = Files.createTempFile(stagingPath, "upload-", ".part");
+
+        MessageDigest digest = newDigest();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long totalBytes = 0;
+
+        try (OutputStream outputStream = Files.newOutputStream(stagedFile)) {
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                totalBytes += read;
+                if (totalBytes > maxFileSize) {
+                    throw new RuntimeException("File size exceeds maximum allowed size");
+                }
+                digest.update(buffer, 0, read);
+                outputStream.write(buffer, 0, read);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(stagedFile);
+            throw e;
+        }
+
+        String fileHash = HexFormat.of().formatHex(digest.digest());
+        log.debug("Staged upload {} ({} bytes, sha256={}) at {}", originalFilename, totalBytes, fileHash, stagedFile);
+        return new StagedUpload(stagedFile, originalFilename, contentType, totalBytes, fileHash);
+    }
+
+    /**
+     * Concatenate already-received parts into one staged file, hashing incrementally as each part is appended
+     */
+    public StagedUpload assemble(List<Path> parts, String originalFilename, String contentType) throws IOException {
+        Iterator<Path> partIterator = parts.iterator();
+        Enumeration<InputStream> partStreams = new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return partIterator.hasNext();
+            }
+            
+            @Override
+            public InputStream nextElement() {
+                try {
+                    return Files.newInputStream(partIterator.next());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+        
+        try (InputStream inputStream = new SequenceInputStream(partStreams)) {
+            return stage(inputStream, originalFilename, contentType);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+    
+    public Path getStagingPath() throws IOException {
+        Path stagingPath = Paths.get(stagingDirectory);
+        if (!Files.exists(stagingPath)) {
+            Files.createDirectories(stagingPath);
+        }
+        return stagingPath;
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("Error calculating file hash", e);
+        }
+    }
+}
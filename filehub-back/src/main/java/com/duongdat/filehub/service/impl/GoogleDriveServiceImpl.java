@@ -9,11 +9,18 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
+import java.io.EOFException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service("googleDriveSimulation")
 @ConditionalOnProperty(name = "google.drive.use.real", havingValue = "false", matchIfMissing = true)
@@ -76,6 +83,26 @@ public class GoogleDriveServiceImpl implements GoogleDriveService {
         }
     }
     
+    @Override
+    public String uploadFile(Path source, String filename, String contentType) throws Exception {
+        if (!driveEnabled || driveStorageDirectory == null) {
+            throw new RuntimeException("Google Drive simulation not available");
+        }
+        
+        try {
+            String driveFileId = UUID.randomUUID().toString();
+            Path drivePath = Paths.get(driveStorageDirectory, driveFileId + "_" + filename);
+            Files.copy(source, drivePath, StandardCopyOption.REPLACE_EXISTING);
+            
+            log.info("File uploaded to Google Drive simulation: {} -> {}", filename, driveFileId);
+            return driveFileId;
+            
+        } catch (Exception e) {
+            log.error("Failed to upload file to Google Drive simulation: {}", e.getMessage(), e);
+            throw new Exception("Google Drive upload failed: " + e.getMessage());
+        }
+    }
+    
     @Override
     public byte[] downloadFile(String fileId) throws Exception {
         if (!driveEnabled || driveStorageDirectory == null) {
@@ -105,6 +132,44 @@ public class GoogleDriveServiceImpl implements GoogleDriveService {
         }
     }
     
+    @Override
+    public void downloadFile(String fileId, OutputStream outputStream) throws Exception {
+        if (!driveEnabled || driveStorageDirectory == null) {
+            throw new RuntimeException("Google Drive simulation not available");
+        }
+        
+        Files.copy(findSimulatedFile(fileId), outputStream);
+        log.info("File streamed from Google Drive simulation: {}", fileId);
+    }
+    
+    @Override
+    public void downloadFile(String fileId, long start, long end, OutputStream outputStream) throws Exception {
+        if (!driveEnabled || driveStorageDirectory == null) {
+            throw new RuntimeException("Google Drive simulation not available");
+        }
+        
+        try (FileChannel channel = FileChannel.open(findSimulatedFile(fileId), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(outputStream);
+            long position = start;
+            while (position <= end) {
+                long transferred = channel.transferTo(position, end - position + 1, target);
+                if (transferred <= 0) {
+                    throw new EOFException("Range " + start + "-" + end + " exceeds simulated file " + fileId);
+                }
+                position += transferred;
+            }
+        }
+    }
+    
+    private Path findSimulatedFile(String fileId) throws Exception {
+        try (Stream<Path> files = Files.list(Paths.get(driveStorageDirectory))) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(fileId + "_"))
+                    .findFirst()
+                    .orElseThrow(() -> new Exception("File not found in Google Drive simulation: " + fileId));
+        }
+    }
+    
     @Override
     public boolean deleteFile(String fileId) throws Exception {
         if (!driveEnabled || driveStorageDirectory == null) {
@@ -5,6 +5,7 @@ import com.duongdat.filehub.dto.response.GoogleDriveUploadResponse;
 import com.google.api.client.auth.oauth2.Credential;
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
 import com.google.api.client.http.FileContent;
+import com.google.api.client.http.HttpResponse;
 import com.google.api.client.http.HttpTransport;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.gson.GsonFactory;
@@ -21,11 +22,16 @@ import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.annotation.PostConstruct;
 import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.Collections;
+import java.util.stream.Stream;
 
 @Service("googleDriveReal")
 @Primary
@@ -156,7 +162,32 @@ public class GoogleDriveServiceRealImpl implements GoogleDriveService {
         }
     }
     
+    @Override
+    public String uploadFile(Path source, String filename, String contentType) throws Exception {
+        if (!driveEnabled) {
+            throw new RuntimeException("Google Drive service not available");
+        }
+        
+        if (useRealGoogleDrive && driveService != null) {
+            return uploadToRealGoogleDrive(source, filename, contentType);
+        } else {
+            return uploadToSimulation(source, filename);
+        }
+    }
+    
     private String uploadToRealGoogleDrive(MultipartFile file, String filename) throws Exception {
+        // Create temporary file for upload
+        Path tempFile = Files.createTempFile("upload-", filename);
+        try {
+            Files.copy(file.getInputStream(), tempFile, StandardCopyOption.REPLACE_EXISTING);
+            return uploadToRealGoogleDrive(tempFile, filename, file.getContentType());
+        } finally {
+            // Clean up temporary file
+            Files.deleteIfExists(tempFile);
+        }
+    }
+    
+    private String uploadToRealGoogleDrive(Path source, String filename, String contentType) throws Exception {
         try {
             // Validate and refresh credential if needed
             if (credential != null && !tokenRefreshService.isCredentialValid(credential)) {
@@ -175,26 +206,16 @@ public class GoogleDriveServiceRealImpl implements GoogleDriveService {
             fileMetadata.setName(filename);
             fileMetadata.setParents(Collections.singletonList(rootFolderId));
             
-            // Create temporary file for upload
-            Path tempFile = Files.createTempFile("upload-", filename);
-            try {
-                Files.copy(file.getInputStream(), tempFile, StandardCopyOption.REPLACE_EXISTING);
-                
-                // Create media content
-                FileContent mediaContent = new FileContent(file.getContentType(), tempFile.toFile());
-                
-                // Upload file
-                File uploadedFile = driveService.files().create(fileMetadata, mediaContent)
-                        .setFields("id,name,parents,size,createdTime")
-                        .execute();
-                
-                log.info("File uploaded to real Google Drive: {} -> {}", filename, uploadedFile.getId());
-                return uploadedFile.getId();
-                
-            } finally {
-                // Clean up temporary file
-                Files.deleteIfExists(tempFile);
-            }
+            // Media content is streamed straight from the source file
+            FileContent mediaContent = new FileContent(contentType, source.toFile());
+            
+            // Upload file
+            File uploadedFile = driveService.files().create(fileMetadata, mediaContent)
+                    .setFields("id,name,parents,size,createdTime")
+                    .execute();
+            
+            log.info("File uploaded to real Google Drive: {} -> {}", filename, uploadedFile.getId());
+            return uploadedFile.getId();
             
         } catch (Exception e) {
             log.error("Failed to upload file to real Google Drive: {}", e.getMessage(), e);
@@ -230,6 +251,21 @@ public class GoogleDriveServiceRealImpl implements GoogleDriveService {
         }
     }
     
+    private String uploadToSimulation(Path source, String filename) throws Exception {
+        try {
+            String driveFileId = java.util.UUID.randomUUID().toString();
+            Path drivePath = Paths.get(driveStorageDirectory, driveFileId + "_" + filename);
+            Files.copy(source, drivePath, StandardCopyOption.REPLACE_EXISTING);
+            
+            log.info("File uploaded to Google Drive simulation: {} -> {}", filename, driveFileId);
+            return driveFileId;
+            
+        } catch (Exception e) {
+            log.error("Failed to upload file to Google Drive simulation: {}", e.getMessage(), e);
+            throw new Exception("Google Drive simulation upload failed: " + e.getMessage());
+        }
+    }
+    
     @Override
     public byte[] downloadFile(String fileId) throws Exception {
         if (!driveEnabled) {
@@ -243,6 +279,72 @@ public class GoogleDriveServiceRealImpl implements GoogleDriveService {
         }
     }
     
+    @Override
+    public void downloadFile(String fileId, OutputStream outputStream) throws Exception {
+        if (!driveEnabled) {
+            throw new RuntimeException("Google Drive service not available");
+        }
+        
+        if (useRealGoogleDrive && driveService != null) {
+            // Media is copied to the output as it arrives
+            driveService.files().get(fileId).executeMediaAndDownloadTo(outputStream);
+            log.info("File streamed from real Google Drive: {}", fileId);
+        } else {
+            Files.copy(findSimulatedFile(fileId), outputStream);
+            log.info("File streamed from Google Drive simulation: {}", fileId);
+        }
+    }
+    
+    @Override
+    public void downloadFile(String fileId, long start, long end, OutputStream outputStream) throws Exception {
+        if (!driveEnabled) {
+            throw new RuntimeException("Google Drive service not available");
+        }
+        
+        long length = end - start + 1;
+        if (useRealGoogleDrive && driveService != null) {
+            // Ranged media download; only the requested bytes leave Drive
+            Drive.Files.Get request = driveService.files().get(fileId);
+            request.getRequestHeaders().setRange("bytes=" + start + "-" + end);
+            HttpResponse response = request.executeMedia();
+            try (InputStream inputStream = response.getContent()) {
+                if (response.getStatusCode() != 206) {
+                    // Range ignored, full content returned: skip to the start ourselves
+                    inputStream.skipNBytes(start);
+                }
+                copyExactly(inputStream, outputStream, length);
+            }
+            log.debug("Range {}-{} streamed from real Google Drive: {}", start, end, fileId);
+        } else {
+            try (InputStream inputStream = Files.newInputStream(findSimulatedFile(fileId))) {
+                inputStream.skipNBytes(start);
+                copyExactly(inputStream, outputStream, length);
+            }
+        }
+    }
+    
+    private Path findSimulatedFile(String fileId) throws Exception {
+        try (Stream<Path> files = Files.list(Paths.get(driveStorageDirectory))) {
+            return files
+                    .filter(path -> path.getFileName().toString().startsWith(fileId + "_"))
+                    .findFirst()
+                    .orElseThrow(() -> new Exception("File not found in Google Drive simulation: " + fileId));
+        }
+    }
+    
+    private static void copyExactly(InputStream inputStream, OutputStream outputStream, long length) throws IOException {
+        byte[] buffer = new byte[64 * 1024];
+        long remaining = length;
+        while (remaining > 0) {
+            int read = inputStream.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (read == -1) {
+                throw new EOFException("Content ended " + remaining + " bytes before the end of the range");
+            }
+            outputStream.write(buffer, 0, read);
+            remaining -= read;
+        }
+    }
+    
     private byte[] downloadFromRealGoogleDrive(String fileId) throws Exception {
         try {
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
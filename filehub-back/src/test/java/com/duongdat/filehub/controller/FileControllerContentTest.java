@@ -0,0 +1,167 @@
+package com.duongdat.filehub.controller;
+
+import com.duongdat.filehub.service.FileDownload;
+import com.duongdat.filehub.service.FileService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+/**
+ * Conditional and range handling of file content responses (download, preview and signed links share it)
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser
+class FileControllerContentTest {
+
+    private static final byte[] CONTENT = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+    private static final String FILE_HASH = "a".repeat(64);
+    private static final String ETAG = "\"" + FILE_HASH + "\"";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private FileService fileService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        FileDownload download = new FileDownload(1L, "notes.txt", "text/plain", CONTENT.length, FILE_HASH,
+                null, null, LocalDateTime.of(2024, 1, 15, 10, 30), "PRIVATE");
+        when(fileService.prepareDownload(1L)).thenReturn(download);
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            outputStream.write(CONTENT);
+            return null;
+        }).when(fileService).writeContent(any(FileDownload.class), any(OutputStream.class));
+        doAnswer(invocation -> {
+            OutputStream outputStream = invocation.getArgument(1);
+            long start = invocation.getArgument(2);
+            long length = invocation.getArgument(3);
+            outputStream.write(CONTENT, (int) start, (int) length);
+            return null;
+        }).when(fileService).writeContent(any(FileDownload.class), any(OutputStream.class), anyLong(), anyLong());
+    }
+
+    @Test
+    void shouldServeSingleRange() throws Exception {
+        MockHttpServletResponse response = perform(download().header(HttpHeaders.RANGE, "bytes=2-5"));
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 2-5/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("4", response.getHeader(HttpHeaders.CONTENT_LENGTH));
+        assertEquals("2345", response.getContentAsString());
+    }
+
+    @Test
+    void shouldServeSuffixRange() throws Exception {
+        MockHttpServletResponse response = perform(download().header(HttpHeaders.RANGE, "bytes=-4"));
+
+        assertEquals(206, response.getStatus());
+        assertEquals("bytes 16-19/20", response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("ghij", response.getContentAsString());
+    }
+
+    @Test
+    void shouldServeMultipleRangesAsByteranges() throws Exception {
+        MockHttpServletResponse response = perform(download().header(HttpHeaders.RANGE, "bytes=0-1,10-12"));
+
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges"));
+        String boundary = response.getContentType().substring(response.getContentType().indexOf("boundary=") + "boundary=".length());
+        String expectedBody = "--" + boundary + "\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "Content-Range: bytes 0-1/20\r\n\r\n"
+                + "01\r\n"
+                + "--" + boundary + "\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "Content-Range: bytes 10-12/20\r\n\r\n"
+                + "abc\r\n"
+                + "--" + boundary + "--\r\n";
+        assertEquals(expectedBody, response.getContentAsString());
+        // The declared length is computed before streaming and must match what is written
+        assertEquals(String.valueOf(response.getContentAsByteArray().length), response.getHeader(HttpHeaders.CONTENT_LENGTH));
+    }
+
+    @Test
+    void shouldRejectUnsatisfiableRange() throws Exception {
+        mockMvc.perform(download().header(HttpHeaders.RANGE, "bytes=30-40"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */20"));
+
+        verify(fileService, never()).writeContent(any(FileDownload.class), any(OutputStream.class), anyLong(), anyLong());
+    }
+
+    @Test
+    void shouldSendWholeFileWhenIfRangeDoesNotMatch() throws Exception {
+        MockHttpServletResponse response = perform(download()
+                .header(HttpHeaders.RANGE, "bytes=2-5")
+                .header(HttpHeaders.IF_RANGE, "\"" + "b".repeat(64) + "\""));
+
+        assertEquals(200, response.getStatus());
+        assertNull(response.getHeader(HttpHeaders.CONTENT_RANGE));
+        assertEquals("20", response.getHeader(HttpHeaders.CONTENT_LENGTH));
+        assertEquals("0123456789abcdefghij", response.getContentAsString());
+    }
+
+    @Test
+    void shouldHonourRangeWhenIfRangeMatches() throws Exception {
+        MockHttpServletResponse response = perform(download()
+                .header(HttpHeaders.RANGE, "bytes=2-5")
+                .header(HttpHeaders.IF_RANGE, ETAG));
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", response.getContentAsString());
+    }
+
+    @Test
+    void shouldAnswerNotModifiedForMatchingETag() throws Exception {
+        mockMvc.perform(download().header(HttpHeaders.IF_NONE_MATCH, "W/" + ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(content().string(""));
+
+        verify(fileService, never()).writeContent(any(FileDownload.class), any(OutputStream.class));
+        verify(fileService, never()).writeContent(any(FileDownload.class), any(OutputStream.class), anyLong(), anyLong());
+    }
+
+    private MockHttpServletRequestBuilder download() {
+        return get("/api/files/1/download");
+    }
+
+    /**
+     * Content is streamed asynchronously; wait for it and return the completed response
+     */
+    private MockHttpServletResponse perform(MockHttpServletRequestBuilder builder) throws Exception {
+        MvcResult started = mockMvc.perform(builder)
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return mockMvc.perform(asyncDispatch(started)).andReturn().getResponse();
+    }
+}
@@ -0,0 +1,179 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.entity.Department;
+import com.duongdat.filehub.entity.File;
+import com.duongdat.filehub.entity.FileBlob;
+import com.duongdat.filehub.entity.FileType;
+import com.duongdat.filehub.entity.User;
+import com.duongdat.filehub.repository.DepartmentRepository;
+import com.duongdat.filehub.repository.FileBlobRepository;
+import com.duongdat.filehub.repository.FileRepository;
+import com.duongdat.filehub.repository.FileTypeRepository;
+import com.duongdat.filehub.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "file.upload.directory=build/blob-store-test",
+        "file.upload.staging.directory=build/blob-store-test/.staging",
+        "file.storage.primary=google-drive",
+        "file.storage.fallback=local",
+        "file.storage.write-quorum=all",
+        "file.storage.retry-attempts=0"
+})
+@ActiveProfiles("test")
+class BlobStoreServiceTest {
+
+    @Autowired
+    private BlobStoreService blobStoreService;
+
+    @Autowired
+    private UploadStagingService uploadStagingService;
+
+    @Autowired
+    private FileBlobRepository fileBlobRepository;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private FileTypeRepository fileTypeRepository;
+
+    @MockBean
+    private GoogleDriveService googleDriveService;
+
+    private final List<String> storedHashes = new ArrayList<>();
+    private final List<File> legacyFiles = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (String fileHash : storedHashes) {
+            fileBlobRepository.findByFileHash(fileHash).ifPresent(blob -> {
+                blobStoreService.deleteContent(blob.getDriveFileId(), blob.getFilePath());
+                fileBlobRepository.delete(blob);
+            });
+        }
+        for (File file : legacyFiles) {
+            fileRepository.deleteById(file.getId());
+            userRepository.deleteById(file.getUploaderId());
+            departmentRepository.deleteById(file.getDepartmentId());
+            fileTypeRepository.deleteById(file.getFileTypeId());
+        }
+    }
+
+    @Test
+    void shouldFallBackToLocalCopyWhenDriveFails() throws Exception {
+        // Given
+        when(googleDriveService.uploadFile(any(Path.class), anyString(), anyString()))
+                .thenThrow(new RuntimeException("Drive unavailable"));
+
+        // When
+        FileBlob blob = store("drive-down.txt");
+
+        // Then
+        assertNull(blob.getDriveFileId());
+        assertNotNull(blob.getFilePath());
+        assertTrue(Files.exists(Paths.get(blob.getFilePath())));
+
+        FileBlob saved = fileBlobRepository.findByFileHash(blob.getFileHash()).orElseThrow();
+        assertNull(saved.getDriveFileId());
+        assertEquals(blob.getFilePath(), saved.getFilePath());
+        assertEquals(1, saved.getRefCount());
+    }
+
+    @Test
+    void shouldAdoptContentOfFilesStoredBeforeBlobs() throws Exception {
+        // Given: a file stored before blobs existed, with its own local copy and no blob
+        byte[] content = ("legacy " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8);
+        File legacy = legacyFile(content);
+
+        // When: the same content is uploaded again, then the older file is deleted
+        FileBlob blob = store("legacy.txt", content);
+        int refCountAfterUpload = blob.getRefCount();
+        legacy.setIsDeleted(true);
+        fileRepository.save(legacy);
+        blobStoreService.release(legacy.getFileHash());
+
+        // Then: the new upload shares the older copy and still holds its reference on it
+        verify(googleDriveService, never()).uploadFile(any(Path.class), anyString(), anyString());
+        assertEquals(legacy.getFilePath(), blob.getFilePath());
+        assertEquals(2, refCountAfterUpload);
+        FileBlob saved = fileBlobRepository.findByFileHash(blob.getFileHash()).orElseThrow();
+        assertEquals(1, saved.getRefCount());
+        assertTrue(Files.exists(Paths.get(saved.getFilePath())));
+    }
+
+    private File legacyFile(byte[] content) throws IOException {
+        User uploader = userRepository.save(new User("blob-user-" + UUID.randomUUID(), UUID.randomUUID() + "@example.com",
+                "password", "Blob User"));
+
+        Department department = new Department();
+        department.setName("Blob Department " + UUID.randomUUID());
+        department = departmentRepository.save(department);
+
+        FileType fileType = new FileType();
+        fileType.setName("BLOB_TYPE_" + UUID.randomUUID());
+        fileType = fileTypeRepository.save(fileType);
+
+        Path path = Paths.get("build/blob-store-test", UUID.randomUUID() + ".txt");
+        Files.createDirectories(path.getParent());
+        Files.write(path, content);
+
+        File file = new File();
+        file.setOriginalFilename("legacy.txt");
+        file.setStoredFilename(path.getFileName().toString());
+        file.setFilePath(path.toString());
+        file.setFileSize((long) content.length);
+        file.setContentType("text/plain");
+        file.setFileHash(hash(content));
+        file.setUploaderId(uploader.getId());
+        file.setDepartmentId(department.getId());
+        file.setFileTypeId(fileType.getId());
+        file = fileRepository.save(file);
+        legacyFiles.add(file);
+        return file;
+    }
+
+    private static String hash(byte[] content) {
+        return HexFormat.of().formatHex(UploadStagingService.newDigest().digest(content));
+    }
+
+    private FileBlob store(String filename) throws IOException {
+        return store(filename, (filename + " " + UUID.randomUUID()).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private FileBlob store(String filename, byte[] content) throws IOException {
+        try (StagedUpload stagedUpload = uploadStagingService.stage(new ByteArrayInputStream(content), filename, "text/plain")) {
+            storedHashes.add(stagedUpload.getFileHash());
+            return blobStoreService.store(stagedUpload, UUID.randomUUID() + ".txt");
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.dto.request.FileUploadRequest;
+import com.duongdat.filehub.dto.response.BatchUploadItemResult;
+import com.duongdat.filehub.entity.Department;
+import com.duongdat.filehub.entity.FileType;
+import com.duongdat.filehub.entity.User;
+import com.duongdat.filehub.repository.DepartmentRepository;
+import com.duongdat.filehub.repository.FileBlobRepository;
+import com.duongdat.filehub.repository.FileRepository;
+import com.duongdat.filehub.repository.FileTypeRepository;
+import com.duongdat.filehub.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "file.upload.directory=build/batch-upload-test",
+        "file.upload.staging.directory=build/batch-upload-test/.staging",
+        "file.storage.primary=google-drive",
+        "file.storage.fallback=none",
+        "file.storage.retry-attempts=0"
+})
+@ActiveProfiles("test")
+class FileBatchUploadTest {
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private UploadStagingService uploadStagingService;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private FileBlobRepository fileBlobRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private FileTypeRepository fileTypeRepository;
+
+    @MockBean
+    private GoogleDriveService googleDriveService;
+
+    private User uploader;
+    private Department department;
+    private FileType fileType;
+    private final List<StagedUpload> stagedUploads = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        uploader = userRepository.save(new User("batch-user", "batch-user@example.com", "password", "Batch User"));
+
+        department = new Department();
+        department.setName("Batch Department");
+        department = departmentRepository.save(department);
+
+        fileType = new FileType();
+        fileType.setName("BATCH_TYPE");
+        fileType = fileTypeRepository.save(fileType);
+    }
+
+    @AfterEach
+    void tearDown() {
+        stagedUploads.forEach(StagedUpload::close);
+        for (StagedUpload stagedUpload : stagedUploads) {
+            fileRepository.deleteAll(fileRepository.findByFileHashAndIsDeletedFalse(stagedUpload.getFileHash()));
+            fileBlobRepository.findByFileHash(stagedUpload.getFileHash()).ifPresent(fileBlobRepository::delete);
+        }
+        fileTypeRepository.delete(fileType);
+        departmentRepository.delete(department);
+        userRepository.delete(uploader);
+    }
+
+    @Test
+    void shouldReportEachFileOfAPartiallyFailedBatch() throws Exception {
+        // Given: storage rejects one of the files
+        when(googleDriveService.uploadFile(any(Path.class), anyString(), anyString())).thenAnswer(invocation -> {
+            String storedFilename = invocation.getArgument(1);
+            if (storedFilename.endsWith(".bad")) {
+                throw new RuntimeException("Drive unavailable");
+            }
+            return "drive-" + UUID.randomUUID();
+        });
+        String content = "batch " + UUID.randomUUID();
+        List<StagedUpload> batch = List.of(
+                stage("report.txt", content),
+                stage("empty.txt", ""),
+                stage("broken.bad", "broken " + UUID.randomUUID()),
+                stage("report-copy.txt", content));
+
+        // When
+        List<BatchUploadItemResult> results = fileService.storeStagedBatch(batch, uploadRequest(), uploader.getId());
+
+        // Then: results keep input order, and identical content is stored once for both of its files
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals("report.txt", results.get(0).getFile().getOriginalFilename());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("File is empty", results.get(1).getErrorMessage());
+        assertFalse(results.get(2).isSuccess());
+        assertEquals("broken.bad", results.get(2).getOriginalFilename());
+        assertNotNull(results.get(2).getErrorMessage());
+        assertTrue(results.get(3).isSuccess());
+        assertEquals(results.get(0).getFile().getDriveFileId(), results.get(3).getFile().getDriveFileId());
+
+        assertEquals(2, fileBlobRepository.findByFileHash(batch.get(0).getFileHash()).orElseThrow().getRefCount());
+        assertTrue(fileBlobRepository.findByFileHash(batch.get(2).getFileHash()).isEmpty());
+        assertTrue(fileRepository.findByFileHashAndIsDeletedFalse(batch.get(2).getFileHash()).isEmpty());
+    }
+
+    private StagedUpload stage(String filename, String content) throws IOException {
+        StagedUpload stagedUpload = uploadStagingService.stage(
+                new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)), filename, "text/plain");
+        stagedUploads.add(stagedUpload);
+        return stagedUpload;
+    }
+
+    private FileUploadRequest uploadRequest() {
+        FileUploadRequest request = new FileUploadRequest();
+        request.setDepartmentId(department.getId());
+        request.setFileTypeId(fileType.getId());
+        return request;
+    }
+}
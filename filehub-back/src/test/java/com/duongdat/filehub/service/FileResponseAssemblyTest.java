@@ -0,0 +1,155 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.dto.response.FileResponse;
+import com.duongdat.filehub.dto.response.PageResponse;
+import com.duongdat.filehub.entity.Department;
+import com.duongdat.filehub.entity.DepartmentCategory;
+import com.duongdat.filehub.entity.File;
+import com.duongdat.filehub.entity.FileType;
+import com.duongdat.filehub.entity.Project;
+import com.duongdat.filehub.entity.User;
+import com.duongdat.filehub.repository.DepartmentCategoryRepository;
+import com.duongdat.filehub.repository.DepartmentRepository;
+import com.duongdat.filehub.repository.FileRepository;
+import com.duongdat.filehub.repository.FileTypeRepository;
+import com.duongdat.filehub.repository.ProjectRepository;
+import com.duongdat.filehub.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Files are saved through the repository, which bypasses the in-memory filename index
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "file.search.trigram.enabled=false"
+})
+@ActiveProfiles("test")
+@Transactional
+class FileResponseAssemblyTest {
+
+    // Page select, its count query, and one IN query each for users, categories, file types, departments and projects
+    private static final long MAX_QUERIES_PER_PAGE = 7;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private DepartmentCategoryRepository departmentCategoryRepository;
+
+    @Autowired
+    private FileTypeRepository fileTypeRepository;
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @BeforeEach
+    void setUp() {
+        // Every file references a different uploader, department, category, type and project
+        List<File> files = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            User uploader = userRepository.save(new User("assembly-user-" + i, "assembly-" + i + "@example.com", "password", "Uploader " + i));
+
+            Department department = new Department();
+            department.setName("Assembly Department " + i);
+            department = departmentRepository.save(department);
+
+            DepartmentCategory category = new DepartmentCategory();
+            category.setName("Category " + i);
+            category.setDepartmentId(department.getId());
+            category = departmentCategoryRepository.save(category);
+
+            FileType fileType = new FileType();
+            fileType.setName("TYPE_" + i);
+            fileType = fileTypeRepository.save(fileType);
+
+            Project project = new Project();
+            project.setName("Project " + i);
+            project.setDepartmentId(department.getId());
+            project = projectRepository.save(project);
+
+            File file = new File();
+            file.setOriginalFilename("report-" + i + ".pdf");
+            file.setStoredFilename("assembly-" + i + ".pdf");
+            file.setFileSize(1024L);
+            file.setContentType("application/pdf");
+            file.setFileHash(String.format("%064d", i));
+            file.setUploaderId(uploader.getId());
+            file.setDepartmentId(department.getId());
+            file.setDepartmentCategoryId(category.getId());
+            file.setFileTypeId(fileType.getId());
+            file.setProjectId(project.getId());
+            files.add(file);
+        }
+        fileRepository.saveAll(files);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void shouldAssemblePageWithBoundedQueryCount() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        assertTrue(statistics.isStatisticsEnabled());
+
+        // When
+        statistics.clear();
+        PageResponse<FileResponse> page = fileService.getAllFilesWithFilters(
+                "report-", null, null, null, null, null, null, null, null, 0, 40, "uploadedAt", "DESC");
+        long queries = statistics.getPrepareStatementCount();
+
+        // Then
+        assertEquals(40, page.getContent().size());
+        assertTrue(queries <= MAX_QUERIES_PER_PAGE, "Expected at most " + MAX_QUERIES_PER_PAGE + " queries but got " + queries);
+        for (FileResponse response : page.getContent()) {
+            String suffix = response.getOriginalFilename().replaceAll("\\D", "");
+            assertEquals("Uploader " + suffix, response.getUploaderName());
+            assertEquals("Assembly Department " + suffix, response.getDepartmentName());
+            assertEquals("Category " + suffix, response.getDepartmentCategoryName());
+            assertEquals("TYPE_" + suffix, response.getFileTypeName());
+            assertEquals("Project " + suffix, response.getProjectName());
+        }
+    }
+
+    @Test
+    void shouldNotScaleQueryCountWithPageSize() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // When
+        statistics.clear();
+        fileService.getAllFilesWithFilters("report-", null, null, null, null, null, null, null, null, 0, 5, "uploadedAt", "DESC");
+        long smallPageQueries = statistics.getPrepareStatementCount();
+        entityManager.clear();
+        statistics.clear();
+        fileService.getAllFilesWithFilters("report-", null, null, null, null, null, null, null, null, 0, 40, "uploadedAt", "DESC");
+        long largePageQueries = statistics.getPrepareStatementCount();
+
+        // Then
+        assertEquals(smallPageQueries, largePageQueries);
+    }
+}
@@ -0,0 +1,151 @@
+package com.duongdat.filehub.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Compares the listing's infix filename filter as a plain {@code LIKE '%fragment%'} scan against trigram
+ * candidates followed by an id lookup, on an H2 table of synthetic file names (1M rows by default,
+ * {@code -Dbenchmark.rows=N} to change it). Reports the median latency per fragment. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class FilenameTrigramIndexBenchmark {
+
+    private static final int ROWS = Integer.getInteger("benchmark.rows", 1_000_000);
+    private static final int ROUNDS = 21;
+    private static final int PAGE_SIZE = 20;
+    private static final String[] WORDS = {
+            "bao-cao", "hop-dong", "ke-hoach", "bien-ban", "de-xuat", "quyet-dinh", "thong-bao", "tai-lieu",
+            "report", "invoice", "contract", "budget", "meeting", "minutes", "design", "proposal"
+    };
+    private static final String[] EXTENSIONS = {".pdf", ".docx", ".xlsx", ".pptx", ".png", ".txt"};
+
+    private static Connection connection;
+    private static TrigramIndex index;
+    private static String rareFragment;
+
+    @BeforeAll
+    static void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:trigram-benchmark;DB_CLOSE_DELAY=-1", "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE files (id BIGINT PRIMARY KEY, original_filename VARCHAR(255), " +
+                    "title VARCHAR(255), uploaded_at TIMESTAMP)");
+            statement.execute("CREATE INDEX idx_files_uploaded_at ON files (uploaded_at)");
+        }
+
+        index = new TrigramIndex();
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO files VALUES (?, ?, ?, ?)")) {
+            for (int id = 1; id <= ROWS; id++) {
+                String token = Integer.toString((1 << 25) + random.nextInt(1 << 30), 36);
+                String filename = WORDS[random.nextInt(WORDS.length)] + "-" + token + EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+                String title = WORDS[random.nextInt(WORDS.length)] + " " + (2000 + random.nextInt(26));
+                insert.setLong(1, id);
+                insert.setString(2, filename);
+                insert.setString(3, title);
+                insert.setTimestamp(4, new Timestamp(now - id * 1000L));
+                insert.addBatch();
+                index.add(id, filename, title);
+                if (id % 10_000 == 0) {
+                    insert.executeBatch();
+                }
+                if (id == ROWS / 2) {
+                    rareFragment = token;
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    @AfterAll
+    static void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Test
+    void compareLikeAndTrigramCandidates() throws SQLException {
+        assertNotNull(rareFragment);
+        System.out.printf("%-14s %10s %12s %12s %12s%n", "fragment", "matches", "LIKE ms", "trigram ms", "candidates");
+        for (String fragment : new String[]{rareFragment, "hop-dong-" + rareFragment.substring(0, 2), "invoice", "2024", "zzqx"}) {
+            List<Long> likeIds = likeQuery(fragment);
+            int[] candidates = index.candidates(fragment, 200_000, 5000);
+            List<Long> trigramIds = candidates == null ? likeIds : candidateQuery(fragment, candidates);
+            assertEquals(likeIds, trigramIds);
+
+            double likeMillis = medianMillis(() -> likeQuery(fragment));
+            double trigramMillis = medianMillis(() -> {
+                int[] ids = index.candidates(fragment, 200_000, 5000);
+                return ids == null ? likeQuery(fragment) : candidateQuery(fragment, ids);
+            });
+            System.out.printf("%-14s %10d %12.2f %12.2f %12s%n", fragment, likeIds.size(), likeMillis, trigramMillis,
+                    candidates == null ? "LIKE" : String.valueOf(candidates.length));
+        }
+    }
+
+    private static List<Long> likeQuery(String fragment) throws SQLException {
+        return query("SELECT id FROM files WHERE (LOWER(original_filename) LIKE ? OR LOWER(title) LIKE ?) " +
+                "ORDER BY uploaded_at DESC, id LIMIT " + PAGE_SIZE, fragment);
+    }
+
+    private static List<Long> candidateQuery(String fragment, int[] candidates) throws SQLException {
+        if (candidates.length == 0) {
+            return List.of();
+        }
+        String ids = Arrays.stream(candidates).mapToObj(String::valueOf).collect(Collectors.joining(","));
+        return query("SELECT id FROM files WHERE id IN (" + ids + ") AND (LOWER(original_filename) LIKE ? OR LOWER(title) LIKE ?) " +
+                "ORDER BY uploaded_at DESC, id LIMIT " + PAGE_SIZE, fragment);
+    }
+
+    private static List<Long> query(String sql, String fragment) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            String pattern = "%" + fragment.toLowerCase() + "%";
+            statement.setString(1, pattern);
+            statement.setString(2, pattern);
+            List<Long> ids = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    ids.add(resultSet.getLong(1));
+                }
+            }
+            return ids;
+        }
+    }
+
+    private static double medianMillis(Lookup lookup) throws SQLException {
+        double[] millis = new double[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            long started = System.nanoTime();
+            lookup.run();
+            millis[i] = (System.nanoTime() - started) / 1e6;
+        }
+        Arrays.sort(millis);
+        return millis[ROUNDS / 2];
+    }
+
+    @FunctionalInterface
+    private interface Lookup {
+        List<Long> run() throws SQLException;
+    }
+}
@@ -0,0 +1,145 @@
+package com.duongdat.filehub.service;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the ways a local copy can be sent to a client socket: the old whole-file read into a byte[],
+ * the buffered positional copy used when sendfile is unavailable, and FileChannel.transferTo (sendfile).
+ * Reports throughput and sender CPU time per GB. Run with {@code ./gradlew benchmark}.
+ */
+@Tag("benchmark")
+class LocalContentTransferBenchmark {
+
+    private static final long FILE_SIZE = 256L * 1024 * 1024;
+    private static final int ROUNDS = 5;
+    private static final double GB = 1024.0 * 1024 * 1024;
+
+    private static Path file;
+    private static ServerSocketChannel server;
+    private static Thread drain;
+
+    @BeforeAll
+    static void setUp() throws IOException {
+        file = Files.createTempFile("transfer-benchmark-", ".bin");
+        byte[] chunk = new byte[1024 * 1024];
+        ThreadLocalRandom.current().nextBytes(chunk);
+        try (OutputStream outputStream = Files.newOutputStream(file)) {
+            for (long written = 0; written < FILE_SIZE; written += chunk.length) {
+                outputStream.write(chunk);
+            }
+        }
+
+        // Receiver that discards everything, standing in for the client
+        server = ServerSocketChannel.open().bind(new InetSocketAddress("127.0.0.1", 0));
+        drain = new Thread(() -> {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+            while (server.isOpen()) {
+                try (SocketChannel client = server.accept()) {
+                    while (client.read(buffer.clear()) >= 0) {
+                        // Discard
+                    }
+                } catch (IOException e) {
+                    return;
+                }
+            }
+        }, "benchmark-drain");
+        drain.setDaemon(true);
+        drain.start();
+    }
+
+    @AfterAll
+    static void tearDown() throws IOException {
+        server.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void compareTransferStrategies() throws IOException {
+        Transfer readAllBytes = socket -> {
+            byte[] content = Files.readAllBytes(file);
+            Channels.newOutputStream(socket).write(content);
+            return content.length;
+        };
+        Transfer bufferedCopy = socket -> {
+            OutputStream outputStream = Channels.newOutputStream(socket);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+                long position = 0;
+                int read;
+                while ((read = channel.read(buffer.clear(), position)) != -1) {
+                    outputStream.write(buffer.array(), 0, read);
+                    position += read;
+                }
+                return position;
+            }
+        };
+        Transfer sendfile = socket -> {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long position = 0;
+                while (position < FILE_SIZE) {
+                    position += channel.transferTo(position, FILE_SIZE - position, socket);
+                }
+                return position;
+            }
+        };
+
+        // Warm up every path before measuring
+        for (Transfer transfer : new Transfer[]{readAllBytes, bufferedCopy, sendfile}) {
+            run(transfer);
+        }
+
+        System.out.printf("%-16s %12s %14s%n", "strategy", "MB/s", "CPU ms / GB");
+        report("readAllBytes", readAllBytes);
+        report("buffered 64KB", bufferedCopy);
+        report("transferTo", sendfile);
+    }
+
+    private void report(String name, Transfer transfer) throws IOException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long bytes = 0;
+        long cpuStart = threads.getCurrentThreadCpuTime();
+        long wallStart = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            bytes += run(transfer);
+        }
+        long wallNanos = System.nanoTime() - wallStart;
+        long cpuNanos = threads.getCurrentThreadCpuTime() - cpuStart;
+
+        double megabytesPerSecond = bytes / (1024.0 * 1024) / (wallNanos / 1e9);
+        double cpuMillisPerGb = cpuNanos / 1e6 / (bytes / GB);
+        System.out.printf("%-16s %12.1f %14.1f%n", name, megabytesPerSecond, cpuMillisPerGb);
+    }
+
+    private long run(Transfer transfer) throws IOException {
+        try (SocketChannel socket = SocketChannel.open(server.getLocalAddress())) {
+            long sent = transfer.send(socket);
+            assertEquals(FILE_SIZE, sent);
+            return sent;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Transfer {
+        long send(SocketChannel socket) throws IOException;
+    }
+}
@@ -0,0 +1,174 @@
+package com.duongdat.filehub.service;
+
+import com.duongdat.filehub.dto.response.FileResponse;
+import com.duongdat.filehub.dto.response.PageResponse;
+import com.duongdat.filehub.dto.response.TagCountResponse;
+import com.duongdat.filehub.entity.Department;
+import com.duongdat.filehub.entity.File;
+import com.duongdat.filehub.entity.FileType;
+import com.duongdat.filehub.entity.Role;
+import com.duongdat.filehub.entity.User;
+import com.duongdat.filehub.repository.DepartmentRepository;
+import com.duongdat.filehub.repository.FileRepository;
+import com.duongdat.filehub.repository.FileTypeRepository;
+import com.duongdat.filehub.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+class TagServiceTest {
+
+    @Autowired
+    private TagService tagService;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private FileRepository fileRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private DepartmentRepository departmentRepository;
+
+    @Autowired
+    private FileTypeRepository fileTypeRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private User admin;
+    private User outsider;
+    private File report;
+    private File budget;
+
+    @BeforeEach
+    void setUp() {
+        User uploader = userRepository.save(new User("tag-user", "tag-user@example.com", "password", "Tag User"));
+        outsider = userRepository.save(new User("tag-outsider", "tag-outsider@example.com", "password", "Tag Outsider"));
+        admin = new User("tag-admin", "tag-admin@example.com", "password", "Tag Admin");
+        admin.setRole(Role.ADMIN);
+        admin = userRepository.save(admin);
+
+        Department department = new Department();
+        department.setName("Tag Department");
+        department = departmentRepository.save(department);
+
+        FileType fileType = new FileType();
+        fileType.setName("TAG_TYPE");
+        fileType = fileTypeRepository.save(fileType);
+
+        report = newFile("report.pdf", "Finance, Annual Report, #Q4", uploader, department, fileType);
+        report.setVisibility("PUBLIC");
+        report = fileRepository.save(report);
+        budget = fileRepository.save(newFile("budget.xlsx", "[\"finance\", \"HR\"]", uploader, department, fileType));
+        tagService.tagFile(report);
+        tagService.tagFile(budget);
+    }
+
+    @Test
+    void shouldNormalizeTagsAndCountFiles() {
+        // When
+        Map<String, Long> counts = tagCloud();
+
+        // Then
+        assertEquals(Map.of("finance", 2L, "annual report", 1L, "q4", 1L, "hr", 1L), counts);
+        assertEquals(Set.of("finance", "annual report", "q4"), tagService.getTagNames(List.of(report.getId())).get(report.getId()));
+    }
+
+    @Test
+    void shouldNotCountTagsTwice() {
+        // When
+        tagService.addTags(report.getId(), List.of("FINANCE", "audit"), TagService.SOURCE_AI);
+
+        // Then
+        Map<String, Long> counts = tagCloud();
+        assertEquals(2L, counts.get("finance"));
+        assertEquals(1L, counts.get("audit"));
+    }
+
+    @Test
+    void shouldDecrementCountsWhenFileIsUntagged() {
+        // When
+        tagService.untagFile(report.getId());
+
+        // Then
+        assertEquals(Map.of("finance", 1L, "hr", 1L), tagCloud());
+    }
+
+    @Test
+    void shouldFilterListingsByAnyOrAllTags() {
+        // When
+        List<String> any = filenames(List.of("hr", "q4"), "any");
+        List<String> all = filenames(List.of("finance", "hr"), "all");
+        List<String> unknown = filenames(List.of("finance", "missing"), "all");
+
+        // Then
+        assertEquals(List.of("budget.xlsx", "report.pdf"), any);
+        assertEquals(List.of("budget.xlsx"), all);
+        assertTrue(unknown.isEmpty());
+    }
+
+    @Test
+    @WithMockUser(username = "tag-outsider")
+    void shouldOnlyCountAccessibleFilesForRegularUsers() {
+        // When: the budget is private to a department the user is not in
+        Map<String, Long> counts = tagCloud(outsider);
+
+        // Then
+        assertEquals(Map.of("finance", 1L, "annual report", 1L, "q4", 1L), counts);
+    }
+
+    @Test
+    void shouldRejectUnknownMatchMode() {
+        assertThrows(RuntimeException.class, () -> tagService.fileFilter(List.of("finance"), "most"));
+    }
+
+    private Map<String, Long> tagCloud() {
+        return tagCloud(admin);
+    }
+
+    private Map<String, Long> tagCloud(User user) {
+        // Counters are updated in bulk, bypassing the persistence context
+        entityManager.clear();
+        return tagService.getTagCloud(user.getId(), 50).stream()
+                .collect(Collectors.toMap(TagCountResponse::getName, TagCountResponse::getFileCount));
+    }
+
+    private List<String> filenames(List<String> tags, String tagMatch) {
+        PageResponse<FileResponse> page = fileService.getAllFilesWithFilters(
+                null, null, null, null, null, null, null, tags, tagMatch, 0, 10, "originalFilename", "ASC");
+        return page.getContent().stream().map(FileResponse::getOriginalFilename).collect(Collectors.toList());
+    }
+
+    private File newFile(String filename, String tags, User uploader, Department department, FileType fileType) {
+        File file = new File();
+        file.setOriginalFilename(filename);
+        file.setStoredFilename("tag-" + filename);
+        file.setFileSize(1024L);
+        file.setContentType("application/octet-stream");
+        file.setFileHash(String.format("%064d", filename.hashCode() & 0x7fffffff));
+        file.setUploaderId(uploader.getId());
+        file.setDepartmentId(department.getId());
+        file.setFileTypeId(fileType.getId());
+        file.setTags(tags);
+        return file;
+    }
+}
@@ -33,6 +33,33 @@ export interface FileUploadWithAnalysisResponse {
   analysisResponse?: FileAnalysisResponse
   analysisEnabled: boolean
   analysisMessage: string
+  analysisJobId?: number
+}
+
+export interface BatchUploadItemResult {
+  index: number
+  originalFilename: string
+  success: boolean
+  file?: FileResponse
+  errorMessage?: string
+}
+
+export interface BatchUploadResponse {
+  totalFiles: number
+  successCount: number
+  failureCount: number
+  results: BatchUploadItemResult[]
+}
+
+export interface AnalysisJobResponse {
+  jobId: number
+  fileId: number
+  status: 'QUEUED' | 'RUNNING' | 'DONE' | 'FAILED'
+  result?: FileAnalysisResponse
+  errorMessage?: string
+  createdAt: string
+  startedAt?: string
+  completedAt?: string
 }
 
 // File interfaces
@@ -93,6 +120,13 @@ export interface PageResponse<T> {
   last: boolean
 }
 
+export interface CursorPageResponse<T> {
+  content: T[]
+  size: number
+  nextCursor: string | null
+  hasNext: boolean
+}
+
 export interface FileFilters {
   filename?: string
   departmentCategoryId?: number
@@ -100,6 +134,8 @@ export interface FileFilters {
   projectId?: number
   fileTypeId?: number
   contentType?: string
+  tags?: string[]
+  tagMatch?: 'any' | 'all' // Files with any of the tags (default) or with all of them
   page?: number
   size?: number
   sortBy?: string
@@ -110,6 +146,15 @@ export interface AdminFileFilters extends FileFilters {
   uploaderId?: number
 }
 
+export interface TagCount {
+  name: string
+  fileCount: number
+}
+
+export interface CursorFileFilters extends Omit<FileFilters, 'page'> {
+  cursor?: string // nextCursor of the previous page; omit for the first page
+}
+
 class FileApiService {
   /**
    * Helper method to build URL search parameters from filters
@@ -123,6 +168,8 @@ class FileApiService {
     if (filters.projectId) params.append('projectId', filters.projectId.toString())
     if (filters.fileTypeId) params.append('fileTypeId', filters.fileTypeId.toString())
     if (filters.contentType) params.append('contentType', filters.contentType)
+    filters.tags?.forEach(tag => params.append('tags', tag))
+    if (filters.tags?.length && filters.tagMatch) params.append('tagMatch', filters.tagMatch)
     if (filters.page !== undefined) params.append('page', filters.page.toString())
     if (filters.size !== undefined) params.append('size', filters.size.toString())
     if (filters.sortBy) params.append('sortBy', filters.sortBy)
@@ -136,6 +183,12 @@ class FileApiService {
     return params
   }
 
+  private buildCursorParams(filters: CursorFileFilters): URLSearchParams {
+    const params = this.buildFilterParams(filters)
+    if (filters.cursor) params.append('cursor', filters.cursor)
+    return params
+  }
+
   /**
    * Upload a file with metadata and optional AI analysis
    */
@@ -148,6 +201,30 @@ class FileApiService {
     })
   }
 
+  /**
+   * Upload many files sharing the same metadata in one request ('files' parts)
+   */
+  async uploadFiles(formData: FormData): Promise<ApiResponse<BatchUploadResponse>> {
+    return await apiService.post('/files/upload/batch', formData, {
+      headers: {
+        'Content-Type': 'multipart/form-data',
+      },
+      timeout: 600000, // 10 minutes timeout for large batches
+    })
+  }
+
+  /**
+   * Upload a ZIP/TAR archive that is expanded into individual files on the server
+   */
+  async uploadArchive(formData: FormData): Promise<ApiResponse<BatchUploadResponse>> {
+    return await apiService.post('/files/upload/archive', formData, {
+      headers: {
+        'Content-Type': 'multipart/form-data',
+      },
+      timeout: 600000, // 10 minutes timeout for large archives
+    })
+  }
+
   /**
    * Analyze an existing file with AI
    */
@@ -170,6 +247,29 @@ class FileApiService {
     })
   }
 
+  /**
+   * Check whether content with this SHA-256 hash is already stored and accessible
+   */
+  async probeContent(fileHash: string, fileSize: number): Promise<ApiResponse<{ fileHash: string; fileSize: number; exists: boolean }>> {
+    return await apiService.post('/files/probe', { fileHash, fileSize })
+  }
+
+  /**
+   * Create a file from content that is already stored, without sending the body
+   */
+  async uploadByReference(
+    request: FileUploadRequest & { fileHash: string; fileSize: number; originalFilename?: string }
+  ): Promise<ApiResponse<FileResponse>> {
+    return await apiService.post('/files/upload-by-reference', request)
+  }
+
+  /**
+   * Get status and result of a background AI analysis job
+   */
+  async getAnalysisJob(jobId: number): Promise<ApiResponse<AnalysisJobResponse>> {
+    return await apiService.get(`/files/analysis-jobs/${jobId}`)
+  }
+
   /**
    * Get user's files with optional filters
    */
@@ -216,6 +316,36 @@ class FileApiService {
     })
   }
 
+  /**
+   * Download several files as one ZIP: the given ids, or every accessible file of a project or department
+   */
+  async downloadArchive(scope: { ids?: number[]; departmentId?: number; projectId?: number }): Promise<Blob> {
+    const params = new URLSearchParams()
+    scope.ids?.forEach((id) => params.append('ids', id.toString()))
+    if (scope.departmentId !== undefined) params.append('departmentId', scope.departmentId.toString())
+    if (scope.projectId !== undefined) params.append('projectId', scope.projectId.toString())
+    return await apiService.get(`/files/archive?${params.toString()}`, {
+      responseType: 'blob',
+    })
+  }
+
+  /**
+   * Create a short-lived signed link (relative to the API root) that works without an Authorization header,
+   * e.g. as the src of a video or PDF viewer
+   */
+  async createSignedDownloadUrl(id: number, inline = false): Promise<ApiResponse<{ url: string; expiresAt: string }>> {
+    return await apiService.post(`/files/${id}/signed-url?inline=${inline}`)
+  }
+
+  /**
+   * Small preview image for grids (images and PDFs); fails with 404 while it is still being generated
+   */
+  async getThumbnail(id: number): Promise<Blob> {
+    return await apiService.get(`/files/${id}/thumbnail`, {
+      responseType: 'blob',
+    })
+  }
+
   /**
    * Preview file (for supported file types)
    */
@@ -256,6 +386,53 @@ class FileApiService {
     return await apiService.get(`/files/shared/project/${projectId}?${params.toString()}`)
   }
 
+  /**
+   * Cursor-paginated listings: constant cost per page however deep the client scrolls.
+   * Pass the previous response's nextCursor with unchanged filters and sort to get the following page.
+   */
+  async scrollUserFiles(filters: CursorFileFilters = {}): Promise<ApiResponse<CursorPageResponse<FileResponse>>> {
+    const params = this.buildCursorParams(filters)
+    return await apiService.get(`/files/scroll?${params.toString()}`)
+  }
+
+  async scrollSharedFiles(filters: CursorFileFilters = {}): Promise<ApiResponse<CursorPageResponse<FileResponse>>> {
+    const params = this.buildCursorParams(filters)
+    return await apiService.get(`/files/shared/scroll?${params.toString()}`)
+  }
+
+  async scrollSharedFilesByDepartment(departmentId: number, filters: CursorFileFilters = {}): Promise<ApiResponse<CursorPageResponse<FileResponse>>> {
+    const params = this.buildCursorParams(filters)
+    return await apiService.get(`/files/shared/department/${departmentId}/scroll?${params.toString()}`)
+  }
+
+  async scrollSharedFilesByProject(projectId: number, filters: CursorFileFilters = {}): Promise<ApiResponse<CursorPageResponse<FileResponse>>> {
+    const params = this.buildCursorParams(filters)
+    return await apiService.get(`/files/shared/project/${projectId}/scroll?${params.toString()}`)
+  }
+
+  /**
+   * Full-text search over filename, title, description, tags and document text, best match first
+   */
+  async searchFiles(
+    query: string,
+    options: { departmentId?: number; projectId?: number; fileTypeId?: number; page?: number; size?: number } = {}
+  ): Promise<ApiResponse<PageResponse<FileResponse>>> {
+    const params = new URLSearchParams({ q: query })
+    if (options.departmentId) params.append('departmentId', options.departmentId.toString())
+    if (options.projectId) params.append('projectId', options.projectId.toString())
+    if (options.fileTypeId) params.append('fileTypeId', options.fileTypeId.toString())
+    if (options.page !== undefined) params.append('page', options.page.toString())
+    if (options.size !== undefined) params.append('size', options.size.toString())
+    return await apiService.get(`/files/search?${params.toString()}`)
+  }
+
+  /**
+   * Most used tags with their file counts, for a tag cloud
+   */
+  async getTagCloud(limit = 50): Promise<ApiResponse<TagCount[]>> {
+    return await apiService.get(`/files/tags?limit=${limit}`)
+  }
+
   /**
    * Admin: Get all shared files (admin only)
    */
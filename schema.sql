@@ -106,10 +106,10 @@ CREATE TABLE files (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
     original_filename VARCHAR(255) NOT NULL,
     stored_filename VARCHAR(255) UNIQUE NOT NULL,
-    file_path VARCHAR(500) NOT NULL,
+    file_path VARCHAR(500), -- Bản lưu local (NULL nếu chỉ có trên Google Drive)
     file_size BIGINT NOT NULL,
     content_type VARCHAR(100) NOT NULL, -- MIME type
-    file_hash VARCHAR(64) UNIQUE NOT NULL, -- SHA-256 hash để tránh duplicate
+    file_hash VARCHAR(64) NOT NULL, -- SHA-256 hash, trỏ tới nội dung dùng chung trong file_blobs
     
     -- Core classifications
     uploader_id BIGINT NOT NULL, -- Người upload file
@@ -185,6 +185,91 @@ CREATE TABLE system_configs (
     updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Bảng nội dung file theo hash (file_blobs) - nhiều bản ghi files có thể dùng chung một blob
+CREATE TABLE file_blobs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    file_hash VARCHAR(64) UNIQUE NOT NULL, -- SHA-256 của nội dung
+    file_size BIGINT NOT NULL,
+    content_type VARCHAR(100),
+    drive_file_id VARCHAR(255), -- Vị trí trên Google Drive
+    file_path VARCHAR(500), -- Vị trí lưu local
+    ref_count INT NOT NULL DEFAULT 0, -- Số file (chưa xóa) đang tham chiếu
+    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE', -- 'ACTIVE', 'RECLAIMING'
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Bảng phiên upload theo chunk (upload_sessions)
+CREATE TABLE upload_sessions (
+    id VARCHAR(36) PRIMARY KEY, -- UUID, cũng là tên thư mục staging
+    uploader_id BIGINT NOT NULL,
+    original_filename VARCHAR(255) NOT NULL,
+    content_type VARCHAR(100),
+    total_size BIGINT NOT NULL,
+    chunk_size BIGINT NOT NULL,
+    total_chunks INT NOT NULL,
+    expected_hash VARCHAR(64), -- SHA-256 do client khai báo (optional)
+    title VARCHAR(255),
+    description TEXT,
+    department_id BIGINT,
+    department_category_id BIGINT,
+    file_type_id BIGINT,
+    project_id BIGINT,
+    tags TEXT,
+    visibility VARCHAR(20) DEFAULT 'PRIVATE',
+    status VARCHAR(20) NOT NULL DEFAULT 'ACTIVE', -- 'ACTIVE', 'ASSEMBLING', 'COMPLETED', 'ABORTED'
+    file_id BIGINT NULL, -- File được tạo khi hoàn tất
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    expires_at TIMESTAMP NOT NULL,
+    FOREIGN KEY (uploader_id) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Bảng hàng đợi phân tích AI (analysis_jobs)
+CREATE TABLE analysis_jobs (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    file_id BIGINT NOT NULL,
+    requested_by BIGINT NOT NULL, -- Người dùng yêu cầu phân tích
+    status VARCHAR(20) NOT NULL DEFAULT 'QUEUED', -- 'QUEUED', 'RUNNING', 'DONE', 'FAILED'
+    department_id BIGINT,
+    project_id BIGINT,
+    title VARCHAR(255),
+    description TEXT,
+    result TEXT, -- Kết quả phân tích (JSON)
+    error_message TEXT,
+    attempts INT DEFAULT 0,
+    worker_id VARCHAR(64), -- Tiến trình (instance) đang chạy job khi RUNNING
+    heartbeat_at TIMESTAMP NULL, -- Nhịp tim gần nhất của tiến trình; quá hạn thì job được đưa lại hàng đợi
+    next_attempt_at TIMESTAMP NULL, -- Job lỗi chờ đến thời điểm này mới được chạy lại
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    started_at TIMESTAMP NULL,
+    completed_at TIMESTAMP NULL,
+    FOREIGN KEY (file_id) REFERENCES files(id) ON DELETE CASCADE,
+    FOREIGN KEY (requested_by) REFERENCES users(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Bảng từ điển tag (tags) - tên đã chuẩn hóa (chữ thường, một khoảng trắng)
+CREATE TABLE tags (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(100) UNIQUE NOT NULL,
+    file_count BIGINT NOT NULL DEFAULT 0, -- Số file (chưa xóa) gắn tag, cập nhật khi gắn/gỡ tag
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- Bảng liên kết file - tag (file_tags)
+CREATE TABLE file_tags (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    file_id BIGINT NOT NULL,
+    tag_id BIGINT NOT NULL,
+    source VARCHAR(10) NOT NULL DEFAULT 'USER', -- 'USER' (nhập khi upload), 'AI' (gợi ý từ phân tích AI)
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_file_tags_file_tag (file_id, tag_id),
+    FOREIGN KEY (file_id) REFERENCES files(id) ON DELETE CASCADE,
+    FOREIGN KEY (tag_id) REFERENCES tags(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
 -- Indexes để tối ưu performance
 CREATE INDEX idx_users_email ON users(email);
 CREATE INDEX idx_users_username ON users(username);
@@ -215,6 +300,20 @@ CREATE INDEX idx_file_access_logs_user_id ON file_access_logs(user_id);
 CREATE INDEX idx_file_access_logs_created_at ON file_access_logs(created_at);
 CREATE INDEX idx_file_shares_file_id ON file_shares(file_id);
 CREATE INDEX idx_file_shares_shared_with ON file_shares(shared_with);
+CREATE INDEX idx_upload_sessions_uploader_id ON upload_sessions(uploader_id);
+CREATE INDEX idx_upload_sessions_expires_at ON upload_sessions(expires_at);
+CREATE INDEX idx_analysis_jobs_status_created ON analysis_jobs(status, created_at);
+CREATE INDEX idx_analysis_jobs_file_id ON analysis_jobs(file_id);
+CREATE INDEX idx_file_blobs_ref_count ON file_blobs(ref_count, status);
+-- Phân trang theo cursor: seek trên (cột sắp xếp, id); InnoDB tự thêm id vào cuối index
+CREATE INDEX idx_files_original_filename ON files(original_filename);
+CREATE INDEX idx_files_file_size ON files(file_size);
+CREATE INDEX idx_files_uploader_uploaded_at ON files(uploader_id, uploaded_at);
+CREATE INDEX idx_files_department_uploaded_at ON files(department_id, uploaded_at);
+CREATE INDEX idx_files_project_uploaded_at ON files(project_id, uploaded_at);
+-- Lọc file theo tag: tag_id -> danh sách file_id; tag cloud sắp xếp theo file_count
+CREATE INDEX idx_file_tags_tag_file ON file_tags(tag_id, file_id);
+CREATE INDEX idx_tags_file_count ON tags(file_count);
 
 -- JSON indexes cho MySQL 8.0+ (cho tags)
 -- MySQL sử dụng functional indexes cho JSON